@@ -0,0 +1,209 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    DualMoteCameraBenchmark.java
+*/
+package dualCamera;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import util.XYZ;
+
+/**
+ * JMH benchmarks for the work DualMoteCamera does for each frame. The 
+ * benchmarks are kept out of src so the demos do not need JMH. The bench 
+ * profile in pom.xml builds them into benchmarks.jar, which is run with the
+ * gc profiler to add gc.alloc.rate.norm, the bytes made per call:
+ * <blockquote><pre>
+ *     mvn -P bench package
+ *     java -jar target/benchmarks.jar -prof gc
+ * </pre></blockquote>
+ * motej has to be installed into the local Maven repository first, see 
+ * pom.xml.
+ * The reports are made up front from a pair of markers sweeping back and 
+ * forth in front of the default board, projected through the camera's own
+ * RayTables, so every run uses the same input. The scene picks which 
+ * branch of findRealPoints is timed:
+ * <ul>
+ * <li>SAME_Y - both markers at the same height, so both pairings fit the
+ * epipolar lines and the ordering and tracking decide.</li>
+ * <li>DIFFERENT_Y - the markers are at different heights so only one 
+ * pairing fits.</li>
+ * <li>MISSING - the right camera loses the second marker.</li>
+ * <li>UNEQUAL - 3 markers are tracked with the StereoMatcher and the right
+ * camera loses the first one, so the left camera has more points than the 
+ * right. This once threw from updateTracking, so it doubles as a check 
+ * that an unmatched marker is handled.</li>
+ * </ul>
+ * frame and frameWithGestures are the same except the GestureEngine only
+ * runs in frameWithGestures, so the difference between them is the cost of
+ * looking for gestures.
+ * 
+ * @author Jason Creighton
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DualMoteCameraBenchmark
+{
+	/**
+	 * The number of frames in the sweep
+	 */
+	private static final int FRAMES = 256;
+	
+	@Param({"SAME_Y", "DIFFERENT_Y", "MISSING", "UNEQUAL"})
+	public String scene;
+	
+	private DualMoteCamera camera;
+	private DualMoteCamera gestureCamera;
+	private final ManualClock clock = new ManualClock();
+	
+	/**
+	 * The reports for each frame, [frame][mote][point]
+	 */
+	private final int[][][] x = new int[FRAMES][2][IrReportBuffer.POINTS];
+	private final int[][][] y = new int[FRAMES][2][IrReportBuffer.POINTS];
+	private final int[][][] size = new int[FRAMES][2][IrReportBuffer.POINTS];
+	private int frame = 0;
+	
+	private XYZ left, right;
+	private final double[] out = new double[4];
+	
+	@Setup
+	public void setUp()
+	{
+		camera = new DualMoteCamera(609.6, Math.toRadians(22.5));
+		gestureCamera = new DualMoteCamera(609.6, Math.toRadians(22.5), new Gestures() {
+			public void pinch(XYZ location) { }
+			public void unPinch(XYZ location) { }
+			public void swipeInX(XYZ origin, int direction) { }
+			public void swipeInY(XYZ origin, int direction) { }
+			public void swipeInZ(XYZ origin, int direction) { }
+		});
+		camera.setClock(clock);
+		gestureCamera.setClock(clock);
+		
+		boolean unequal = scene.equals("UNEQUAL");
+		int markers = unequal ? 3 : 2;
+		camera.setMarkers(markers);
+		gestureCamera.setMarkers(markers);
+		
+		double height = scene.equals("DIFFERENT_Y") || unequal ? 80 : 0;
+		double[] pixel = new double[2];
+		for(int f = 0; f < FRAMES; f++)
+		{
+			double center = 304.8 + 150 * Math.sin(2 * Math.PI * f / FRAMES);
+			for(int mote = DualMoteCamera.LEFT; mote <= DualMoteCamera.RIGHT; mote++)
+			{
+				for(int i = 0; i < IrReportBuffer.POINTS; i++)
+				{
+					x[f][mote][i] = IrReportBuffer.NOT_FOUND;
+					y[f][mote][i] = IrReportBuffer.NOT_FOUND;
+				}
+				int slot = 0;
+				for(int i = 0; i < markers; i++)
+				{
+					if(scene.equals("MISSING") && mote == DualMoteCamera.RIGHT && i == 1)
+					{
+						slot++;
+						continue;
+					}
+					//The right camera sees the other markers in the first slots
+					if(unequal && mote == DualMoteCamera.RIGHT && i == 0)
+						continue;
+					camera.getRays(mote).project(center - 40 + 80 * i, height * i, 700, pixel);
+					x[f][mote][slot] = (int) Math.round(pixel[0]);
+					y[f][mote][slot] = (int) Math.round(pixel[1]);
+					size[f][mote][slot] = 3;
+					slot++;
+				}
+			}
+		}
+		
+		left  = new XYZ(x[0][DualMoteCamera.LEFT][0], y[0][DualMoteCamera.LEFT][0], 0);
+		right = new XYZ(x[0][DualMoteCamera.RIGHT][0], y[0][DualMoteCamera.RIGHT][0], 0);
+	}
+	
+	/*
+	 * Passes the next frame of the sweep to a camera
+	 */
+	private DualCameraFrame nextFrame(DualMoteCamera cameras)
+	{
+		clock.advance(10000000);
+		cameras.irReport(DualMoteCamera.LEFT, x[frame][DualMoteCamera.LEFT], y[frame][DualMoteCamera.LEFT], size[frame][DualMoteCamera.LEFT]);
+		cameras.irReport(DualMoteCamera.RIGHT, x[frame][DualMoteCamera.RIGHT], y[frame][DualMoteCamera.RIGHT], size[frame][DualMoteCamera.RIGHT]);
+		frame = (frame + 1) % FRAMES;
+		return cameras.getLatestFrame();
+	}
+	
+	/**
+	 * One point from a pair of camera points, making an XYZ for the answer
+	 */
+	@Benchmark
+	public XYZ getRealCoordinates()
+	{
+		return camera.getRealCoordinates(left, right);
+	}
+	
+	/**
+	 * One point from a pair of camera points without making any objects
+	 */
+	@Benchmark
+	public double triangulate()
+	{
+		camera.triangulate(left.getX(), left.getY(), right.getX(), right.getY(), out);
+		return out[XYZ.X];
+	}
+	
+	/**
+	 * A whole frame from the two reports through to the DualCameraFrame, 
+	 * with gestures off
+	 */
+	@Benchmark
+	public DualCameraFrame frame()
+	{
+		return nextFrame(camera);
+	}
+	
+	/**
+	 * A whole frame with the swipe and pinch recognizers run on it
+	 */
+	@Benchmark
+	public DualCameraFrame frameWithGestures()
+	{
+		return nextFrame(gestureCamera);
+	}
+}
@@ -0,0 +1,103 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    Find3DPointBenchmark.java
+*/
+package util;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import dualCamera.RayTable;
+
+/**
+ * Times Find3DPoint.raysIntersectionPoint for the rays of one marker in 
+ * front of the default board. See dualCamera.DualMoteCameraBenchmark for 
+ * how to run the benchmarks.
+ * 
+ * @author Jason Creighton
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Find3DPointBenchmark
+{
+	private static final double SPACING = 609.6;
+	private static final double ANGLE = Math.toRadians(22.5);
+	
+	private XYZ lefto, leftd, righto, rightd;
+	private final double[] l = new double[3];
+	private final double[] r = new double[3];
+	private final double[] out = new double[4];
+	
+	@Setup
+	public void setUp()
+	{
+		RayTable left  = new RayTable(0, ANGLE, .761, .5829, 512, 384);
+		RayTable right = new RayTable(SPACING, 2*Math.PI - ANGLE, .761, .5829, 512, 384);
+		
+		//The pixels of a marker at (250, 10, 700)
+		double[] pixel = new double[2];
+		left.project(250, 10, 700, pixel);
+		left.rayDirection(Math.round(pixel[0]), Math.round(pixel[1]), l);
+		right.project(250, 10, 700, pixel);
+		right.rayDirection(Math.round(pixel[0]), Math.round(pixel[1]), r);
+		
+		lefto  = new XYZ(0, 0, 0);
+		righto = new XYZ(SPACING, 0, 0);
+		//The XYZ version takes a point along each ray rather than a direction
+		leftd  = new XYZ(l[XYZ.X], l[XYZ.Y], l[XYZ.Z]);
+		rightd = new XYZ(SPACING + r[XYZ.X], r[XYZ.Y], r[XYZ.Z]);
+	}
+	
+	/**
+	 * The XYZ version, which makes a new XYZ for the answer
+	 */
+	@Benchmark
+	public XYZ intersectionPoint()
+	{
+		return Find3DPoint.raysIntersectionPoint(lefto, leftd, righto, rightd);
+	}
+	
+	/**
+	 * The array version, which makes no objects
+	 */
+	@Benchmark
+	public double intersectionPointArray()
+	{
+		Find3DPoint.raysIntersectionPoint(0, 0, 0, l[XYZ.X], l[XYZ.Y], l[XYZ.Z],
+				SPACING, 0, 0, r[XYZ.X], r[XYZ.Y], r[XYZ.Z], out);
+		return out[Find3DPoint.GAP];
+	}
+}
@@ -0,0 +1,100 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    CalibrateCameras.java
+*/
+package demo;
+
+import java.io.IOException;
+
+import dualCamera.CalibrationSolver;
+import dualCamera.DualMoteCamera;
+import dualCamera.StereoCalibration;
+
+/**
+ * CalibrateCameras solves for where the Wii Remotes on the board are and 
+ * saves it to StereoCalibration.DFLT_FILE, where the other demos load it 
+ * from. Move one IR light slowly through the whole space the cameras can
+ * see until it is done. To also solve for the spacing, hold two lights a 
+ * known distance apart and pass the distance in mm as the first argument.
+ * 
+ * @author Jason Creighton
+ */
+public class CalibrateCameras
+{
+	/**
+	 * How many samples to collect before solving
+	 */
+	private static final int SAMPLES = 3000;
+	
+	public static void main(String[] args)
+	{
+		//Starts from the hand measured board, 609.6 mm and 22.5 degrees
+		StereoCalibration start = new StereoCalibration(609.6, Math.toRadians(22.5));
+		DualMoteCamera cameras = new DualMoteCamera(start);
+		
+		CalibrationSolver solver = new CalibrationSolver();
+		if(args.length > 0)
+			solver.setWandLength(Double.parseDouble(args[0]));
+		
+		if(!cameras.setUpMotes())
+			System.exit(1);
+		cameras.addDualCameraListener(solver);
+		
+		System.out.println("Move the light around the whole space the cameras can see");
+		int last = 0;
+		while(solver.getSampleCount() < SAMPLES)
+		{
+			try
+			{
+				Thread.sleep(1000);
+			}
+			catch (InterruptedException e)
+			{
+				break;
+			}
+			
+			int count = solver.getSampleCount();
+			if(count / 500 != last / 500)
+				System.out.println(count + " of " + SAMPLES + " samples");
+			last = count;
+		}
+		cameras.removeDualCameraListener(solver);
+		cameras.disconnectMotes();
+		
+		StereoCalibration calibration = solver.solve(start);
+		if(calibration == null)
+			System.exit(1);
+		System.out.println("Solved: " + calibration);
+		
+		try
+		{
+			calibration.save(StereoCalibration.DFLT_FILE);
+			System.out.println("Saved to " + StereoCalibration.DFLT_FILE);
+		}
+		catch (IOException e)
+		{
+			System.out.println("Could not save the calibration, " + e.getMessage());
+			System.exit(1);
+		}
+		System.exit(0);
+	}
+}
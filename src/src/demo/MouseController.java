@@ -33,11 +33,14 @@ import util.XYZ;
 import dualCamera.DualCameraEvent;
 import dualCamera.DualCameraListener;
 import dualCamera.DualMoteCamera;
+import dualCamera.FilteredDualCameraListener;
 import dualCamera.Gestures;
+import dualCamera.StereoCalibration;
 
 /**
  * MouseController allows the mouse to be controlled using the Wii Remotes. 
- * Pinching/Unpinching is used as a click.
+ * Pinching/Unpinching is used as a click. The points are smoothed by a
+ * FilteredDualCameraListener so the cursor does not shake.
  */
 public class MouseController implements DualCameraListener, Gestures
 {
@@ -76,13 +79,16 @@ public class MouseController implements DualCameraListener, Gestures
 		 * 
 		 * The distance does not have to be mm. Whatever units you input will be
 		 * the units output by DualMoteCamera. See DualMoteCamera Documentation. 
+		 * 
+		 * If CalibrateCameras has saved a calibration it is used instead.
 		 */
-		DualMoteCamera cameras = new DualMoteCamera(609.6, Math.toRadians(22.5), controller);
+		DualMoteCamera cameras = new DualMoteCamera(StereoCalibration.load(StereoCalibration.DFLT_FILE, 
+				new StereoCalibration(609.6, Math.toRadians(22.5))), controller);
 		
 		if(!cameras.setUpMotes())
 			System.exit(1);
 		
-		cameras.addDualCameraListener(controller);
+		cameras.addDualCameraListener(new FilteredDualCameraListener(controller));
 		
 		//Go FOREVER!!! or just turn off the Wii Remotes to quit...
 		
@@ -33,10 +33,12 @@ import javax.swing.JFrame;
 import javax.swing.JPanel;
 
 import util.XYZ;
+import dualCamera.AsyncDualCameraListener;
 import dualCamera.DualCameraEvent;
 import dualCamera.DualCameraListener;
 import dualCamera.DualMoteCamera;
 import dualCamera.Gestures;
+import dualCamera.StereoCalibration;
 
 
 /**
@@ -98,8 +100,11 @@ public class XYZGesturesWindow extends JPanel implements Gestures {
 		 * 
 		 * The distance does not have to be mm. Whatever units you input will be
 		 * the units output by DualMoteCamera. See DualMoteCamera Documentation. 
+		 * 
+		 * If CalibrateCameras has saved a calibration it is used instead.
 		 */
-	    DualMoteCamera cameras = new DualMoteCamera(609.6,Math.toRadians(22.5), window);
+	    DualMoteCamera cameras = new DualMoteCamera(StereoCalibration.load(StereoCalibration.DFLT_FILE, 
+	    		new StereoCalibration(609.6, Math.toRadians(22.5))), window);
 	    
 	    if(!cameras.setUpMotes())
 	    	System.exit(1);
@@ -112,6 +117,7 @@ public class XYZGesturesWindow extends JPanel implements Gestures {
 		frame.setVisible(true);
 		frame.repaint();
 	    
+	    //Printing and repainting is slow so only the latest frame is drawn
 	    cameras.addDualCameraListener(new DualCameraListener() {
 
 			public void pointChanged(DualCameraEvent evt)
@@ -129,7 +135,7 @@ public class XYZGesturesWindow extends JPanel implements Gestures {
 				
 				frame.repaint();
 			}
-	    });
+	    }, AsyncDualCameraListener.Policy.KEEP_LATEST);
 	    
 	    	
 	}
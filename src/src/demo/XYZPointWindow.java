@@ -32,9 +32,11 @@ import javax.swing.JFrame;
 import javax.swing.JPanel;
 
 import util.XYZ;
+import dualCamera.AsyncDualCameraListener;
 import dualCamera.DualCameraEvent;
 import dualCamera.DualCameraListener;
 import dualCamera.DualMoteCamera;
+import dualCamera.StereoCalibration;
 
 
 /**    
@@ -81,8 +83,11 @@ public class XYZPointWindow extends JPanel{
 		 * 
 		 * The distance does not have to be mm. Whatever units you input will be
 		 * the units output by DualMoteCamera. See DualMoteCamera Documentation. 
+		 * 
+		 * If CalibrateCameras has saved a calibration it is used instead.
 		 */
-	    DualMoteCamera cameras = new DualMoteCamera(609.6, Math.toRadians(22.5));
+	    DualMoteCamera cameras = new DualMoteCamera(StereoCalibration.load(StereoCalibration.DFLT_FILE, 
+	    		new StereoCalibration(609.6, Math.toRadians(22.5))));
 	    
 	    if(!cameras.setUpMotes())
 	    	System.exit(1);
@@ -95,6 +100,7 @@ public class XYZPointWindow extends JPanel{
 		frame.setVisible(true);
 		frame.repaint();
 	    
+	    //Printing and repainting is slow so only the latest frame is drawn
 	    cameras.addDualCameraListener(new DualCameraListener() {
 
 			public void pointChanged(DualCameraEvent evt)
@@ -112,7 +118,7 @@ public class XYZPointWindow extends JPanel{
 				
 				frame.repaint();
 			}
-	    });
+	    }, AsyncDualCameraListener.Policy.KEEP_LATEST);
 	    	
 	}
 	
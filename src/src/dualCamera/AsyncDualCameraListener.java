@@ -0,0 +1,346 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    AsyncDualCameraListener.java
+*/
+package dualCamera;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * AsyncDualCameraListener passes events on to another DualCameraListener on
+ * its own thread. DualMoteCamera fires events on the Bluetooth thread of the 
+ * Wii Remotes, so a listener that is slow, like one that prints and repaints,
+ * holds up the reports from both Wii Remotes. Wrapping it in an 
+ * AsyncDualCameraListener puts the events in a queue for that listener only.
+ * <p>
+ * Each listener picks what happens when its queue is full:
+ * <ul>
+ * <li>DELIVER_ALL waits for room so no event is lost. This still holds up 
+ * the Wii Remotes when the listener falls behind.</li>
+ * <li>KEEP_LATEST only keeps the newest event, which is best for drawing 
+ * and anything else that only cares where the points are now.</li>
+ * <li>DROP_OLDEST throws away the oldest event in the queue to make room.</li>
+ * </ul>
+ * Events can be handed between threads since every DualCameraFrame is 
+ * immutable. Use it like this:
+ * <blockquote><pre>
+ *     cameras.addDualCameraListener(listener, AsyncDualCameraListener.Policy.KEEP_LATEST);
+ * </pre></blockquote>
+ * 
+ * @author Amy Ciavolino
+ */
+public class AsyncDualCameraListener implements DualCameraListener
+{
+	/**
+	 * What to do with a new event when the queue is full
+	 */
+	public enum Policy { DELIVER_ALL, KEEP_LATEST, DROP_OLDEST }
+	
+	/**
+	 * The default size of the queue for DELIVER_ALL and DROP_OLDEST
+	 */
+	public static final int DFLT_CAPACITY = 16;
+	
+	/**
+	 * The listener events are passed on to
+	 */
+	private final DualCameraListener listener;
+	
+	private final Policy policy;
+	
+	/**
+	 * The events waiting for the listener
+	 */
+	private final BlockingQueue<DualCameraEvent> queue;
+	
+	/**
+	 * Runs the listener. If the executor was made here it is shut down by shutdown().
+	 */
+	private final Executor executor;
+	private final boolean ownsExecutor;
+	
+	/**
+	 * Set while the executor has been told to empty the queue
+	 */
+	private final AtomicBoolean scheduled = new AtomicBoolean(false);
+	
+	/**
+	 * Set by shutdown. Events that come in after are dropped.
+	 */
+	private volatile boolean closed = false;
+	
+	/**
+	 * Counts of events thrown away and given to the listener
+	 */
+	private final AtomicLong dropped = new AtomicLong(0);
+	private final AtomicLong delivered = new AtomicLong(0);
+	
+	/**
+	 * How long the listener takes for each event, on its own thread
+	 */
+	private final LatencyHistogram handling = new LatencyHistogram();
+	
+	/**
+	 * Empties the queue into the listener
+	 */
+	private final Runnable drain = new Runnable() {
+		
+		public void run()
+		{
+			boolean stopped = false;
+			try
+			{
+				emptyQueue();
+				stopped = true;
+			}
+			finally
+			{
+				//An Error from the listener must not leave the queue marked 
+				//as being emptied or no event would be passed on again
+				if(!stopped)
+					scheduled.set(false);
+			}
+		}
+		
+		private void emptyQueue()
+		{
+			for(;;)
+			{
+				DualCameraEvent evt;
+				while((evt = queue.poll()) != null)
+				{
+					long start = System.nanoTime();
+					try
+					{
+						listener.pointChanged(evt);
+					}
+					catch (RuntimeException e)
+					{
+						e.printStackTrace();
+					}
+					handling.record(System.nanoTime() - start);
+					delivered.incrementAndGet();
+				}
+				
+				//Stop unless an event came in after the queue was emptied
+				scheduled.set(false);
+				if(queue.isEmpty() || !scheduled.compareAndSet(false, true))
+					return;
+			}
+		}
+	};
+	
+	/**
+	 * Passes on only the latest event to the listener on a thread of its own.
+	 * @param listener The listener to pass events to.
+	 */
+	public AsyncDualCameraListener(DualCameraListener listener)
+	{
+		this(listener, Policy.KEEP_LATEST);
+	}
+	
+	/**
+	 * Passes on events to the listener on a thread of its own.
+	 * @param listener The listener to pass events to.
+	 * @param policy What to do when the queue is full.
+	 */
+	public AsyncDualCameraListener(DualCameraListener listener, Policy policy)
+	{
+		this(listener, policy, DFLT_CAPACITY);
+	}
+	
+	/**
+	 * Passes on events to the listener on a thread of its own.
+	 * @param listener The listener to pass events to.
+	 * @param policy What to do when the queue is full.
+	 * @param capacity The size of the queue. KEEP_LATEST always uses 1.
+	 */
+	public AsyncDualCameraListener(DualCameraListener listener, Policy policy, int capacity)
+	{
+		this(listener, policy, capacity, null);
+	}
+	
+	/**
+	 * Passes on events to the listener using the executor given. The executor
+	 * should run one task at a time for this listener or events may be passed
+	 * on out of order.
+	 * @param listener The listener to pass events to.
+	 * @param policy What to do when the queue is full.
+	 * @param capacity The size of the queue. KEEP_LATEST always uses 1.
+	 * @param executor Runs the listener, or null to start a thread for it. 
+	 */
+	public AsyncDualCameraListener(DualCameraListener listener, Policy policy, int capacity, Executor executor)
+	{
+		if(listener == null || policy == null)
+			throw new IllegalArgumentException("listener and policy can not be null");
+		if(capacity < 1)
+			throw new IllegalArgumentException("capacity must be at least 1");
+		
+		this.listener = listener;
+		this.policy = policy;
+		this.queue = new ArrayBlockingQueue<DualCameraEvent>(policy == Policy.KEEP_LATEST ? 1 : capacity);
+		
+		if(executor == null)
+		{
+			this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				
+				public Thread newThread(Runnable r)
+				{
+					Thread t = new Thread(r, "DualCameraListener " + AsyncDualCameraListener.this.listener);
+					t.setDaemon(true);
+					return t;
+				}
+			});
+			ownsExecutor = true;
+		}
+		else
+		{
+			this.executor = executor;
+			ownsExecutor = false;
+		}
+	}
+	
+	/**
+	 * Puts the event in the queue and returns right away unless the policy
+	 * is DELIVER_ALL and the queue is full.
+	 */
+	public void pointChanged(DualCameraEvent evt)
+	{
+		//A DualMoteCamera can still be firing an event when this is removed
+		if(closed)
+		{
+			dropped.incrementAndGet();
+			return;
+		}
+		
+		if(policy == Policy.DELIVER_ALL)
+		{
+			try
+			{
+				queue.put(evt);
+			}
+			catch (InterruptedException e)
+			{
+				dropped.incrementAndGet();
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+		else
+		{
+			//Make room by throwing away the oldest event
+			while(!queue.offer(evt))
+			{
+				if(queue.poll() != null)
+					dropped.incrementAndGet();
+			}
+		}
+		
+		if(scheduled.compareAndSet(false, true))
+		{
+			try
+			{
+				executor.execute(drain);
+			}
+			catch (RejectedExecutionException e)
+			{
+				//Shut down, or an executor passed in is full. The events stay 
+				//queued for the next one unless this is closed.
+				scheduled.set(false);
+				if(closed)
+					queue.clear();
+			}
+		}
+	}
+	
+	/**
+	 * Stops the thread made for the listener. Events still in the queue and
+	 * any that come in after are not passed on. Does nothing to an executor
+	 * passed in.
+	 */
+	public void shutdown()
+	{
+		closed = true;
+		if(ownsExecutor)
+			((ExecutorService) executor).shutdownNow();
+		queue.clear();
+	}
+	
+	/* Get Methods */
+	
+	public DualCameraListener getListener()
+	{
+		return listener;
+	}
+	
+	public Policy getPolicy()
+	{
+		return policy;
+	}
+	
+	/**
+	 * Returns how many events were thrown away because the listener was
+	 * behind.
+	 * @return the number of events dropped
+	 */
+	public long getDroppedCount()
+	{
+		return dropped.get();
+	}
+	
+	/**
+	 * Returns how many events have been passed on to the listener.
+	 * @return the number of events delivered
+	 */
+	public long getDeliveredCount()
+	{
+		return delivered.get();
+	}
+	
+	/**
+	 * Returns how long the listener has taken for each event on its own 
+	 * thread. The time DualMoteCamera records for this listener is only how
+	 * long putting the event in the queue took.
+	 * @return the histogram of the listener's pointChanged
+	 */
+	public LatencyHistogram getHandlingHistogram()
+	{
+		return handling;
+	}
+	
+	/**
+	 * Returns how many events are waiting for the listener.
+	 * @return the number of events in the queue
+	 */
+	public int getQueuedCount()
+	{
+		return queue.size();
+	}
+}
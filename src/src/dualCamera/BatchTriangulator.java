@@ -0,0 +1,418 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    BatchTriangulator.java
+*/
+package dualCamera;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import util.XYZ;
+
+/**
+ * BatchTriangulator finds the real points for a lot of pixel pairs at once,
+ * for going back over recordings or trying out calibrations. The pixels come
+ * in as separate arrays for the left X, left Y, right X and right Y, and the 
+ * answers go in separate arrays for X, Y, Z and the error, so no objects are
+ * made for each pair. The answers are the same as getRealCoordinates gives.
+ * <p>
+ * It does not need any Wii Remotes, only the RayTables for the two cameras:
+ * <blockquote><pre>
+ *     BatchTriangulator batch = new BatchTriangulator(new DualMoteCamera());
+ *     int found = batch.triangulateParallel(lx, ly, rx, ry, x, y, z, error);
+ * </pre></blockquote>
+ * The parallel version splits big batches into chunks run on a pool with a 
+ * thread for each core, with the calling thread doing the last chunk.
+ * <p>
+ * The rays are looked up a block at a time and the math of 
+ * Find3DPoint.raysIntersectionPoint is done for the block by a 
+ * TriangulationKernel. When VectorTriangulationKernel has been compiled in
+ * and the jdk.incubator.vector module is added, it is loaded and checked 
+ * against ScalarTriangulationKernel the first time a BatchTriangulator is 
+ * made. If it is missing or its answers are off by more than TOLERANCE the
+ * scalar kernel is used. Setting the system property nuwii.vector to false
+ * always uses the scalar kernel.
+ * 
+ * @author Jason Creighton
+ */
+public class BatchTriangulator
+{
+	/**
+	 * The fewest pairs worth giving to another thread
+	 */
+	public static final int MIN_CHUNK = 16384;
+	
+	/**
+	 * How far a kernel's answers can be from Find3DPoint's, as a fraction 
+	 * of the answer or absolute for answers under 1
+	 */
+	public static final double TOLERANCE = 1e-9;
+	
+	/**
+	 * The number of rays looked up before calling the kernel
+	 */
+	private static final int BLOCK = 256;
+	
+	private static final String VECTOR_KERNEL = "dualCamera.VectorTriangulationKernel";
+	
+	private final RayTable left_rays, right_rays;
+	
+	private volatile TriangulationKernel kernel = getDefaultKernel();
+	
+	/**
+	 * Makes a BatchTriangulator for the cameras of a DualMoteCamera.
+	 * @param camera The DualMoteCamera. It does not need to have motes.
+	 */
+	public BatchTriangulator(DualMoteCamera camera)
+	{
+		this(camera.getRays(DualMoteCamera.LEFT), camera.getRays(DualMoteCamera.RIGHT));
+	}
+	
+	/**
+	 * Makes a BatchTriangulator for two cameras.
+	 * @param left_rays The rays of the left camera.
+	 * @param right_rays The rays of the right camera.
+	 */
+	public BatchTriangulator(RayTable left_rays, RayTable right_rays)
+	{
+		this.left_rays = left_rays;
+		this.right_rays = right_rays;
+	}
+	
+	/**
+	 * Triangulates every pair in the arrays. All the arrays must be at least
+	 * as long as lx. Pairs with no point, such as when the rays are parallel,
+	 * get NaN for everything.
+	 * 
+	 * @param lx The left X pixels.
+	 * @param ly The left Y pixels.
+	 * @param rx The right X pixels.
+	 * @param ry The right Y pixels.
+	 * @param x Where the X of each point is put.
+	 * @param y Where the Y of each point is put.
+	 * @param z Where the Z of each point is put.
+	 * @param error Where the error of each point is put.
+	 * @return The number of pairs that had a point.
+	 */
+	public int triangulate(double[] lx, double[] ly, double[] rx, double[] ry,
+			double[] x, double[] y, double[] z, double[] error)
+	{
+		return triangulate(lx, ly, rx, ry, x, y, z, error, 0, lx.length);
+	}
+	
+	/**
+	 * Triangulates the pairs from index from up to but not including index to.
+	 * @return The number of pairs that had a point.
+	 */
+	public int triangulate(double[] lx, double[] ly, double[] rx, double[] ry,
+			double[] x, double[] y, double[] z, double[] error, int from, int to)
+	{
+		Block block = new Block();
+		int found = 0;
+		for(int start = from; start < to; start += BLOCK)
+		{
+			int count = Math.min(BLOCK, to - start);
+			for(int i = 0; i < count; i++)
+				block.rays(i, lx[start + i], ly[start + i], rx[start + i], ry[start + i]);
+			found += block.intersect(count, x, y, z, error, start);
+		}
+		return found;
+	}
+	
+	/**
+	 * The same as the double version for pixels stored as floats.
+	 * @return The number of pairs that had a point.
+	 */
+	public int triangulate(float[] lx, float[] ly, float[] rx, float[] ry,
+			double[] x, double[] y, double[] z, double[] error)
+	{
+		return triangulate(lx, ly, rx, ry, x, y, z, error, 0, lx.length);
+	}
+	
+	/**
+	 * Triangulates the pairs from index from up to but not including index to.
+	 * @return The number of pairs that had a point.
+	 */
+	public int triangulate(float[] lx, float[] ly, float[] rx, float[] ry,
+			double[] x, double[] y, double[] z, double[] error, int from, int to)
+	{
+		Block block = new Block();
+		int found = 0;
+		for(int start = from; start < to; start += BLOCK)
+		{
+			int count = Math.min(BLOCK, to - start);
+			for(int i = 0; i < count; i++)
+				block.rays(i, lx[start + i], ly[start + i], rx[start + i], ry[start + i]);
+			found += block.intersect(count, x, y, z, error, start);
+		}
+		return found;
+	}
+	
+	/*
+	 * The ray directions for a block of pairs. Each thread uses its own.
+	 */
+	private class Block
+	{
+		final double[] ldx = new double[BLOCK], ldy = new double[BLOCK], ldz = new double[BLOCK];
+		final double[] rdx = new double[BLOCK], rdy = new double[BLOCK], rdz = new double[BLOCK];
+		final double[] dir = new double[3];
+		
+		void rays(int i, double lx, double ly, double rx, double ry)
+		{
+			left_rays.rayDirection(lx, ly, dir);
+			ldx[i] = dir[XYZ.X];
+			ldy[i] = dir[XYZ.Y];
+			ldz[i] = dir[XYZ.Z];
+			right_rays.rayDirection(rx, ry, dir);
+			rdx[i] = dir[XYZ.X];
+			rdy[i] = dir[XYZ.Y];
+			rdz[i] = dir[XYZ.Z];
+		}
+		
+		int intersect(int count, double[] x, double[] y, double[] z, double[] error, int offset)
+		{
+			return kernel.intersect(
+					left_rays.getOriginX(), left_rays.getOriginY(), left_rays.getOriginZ(), ldx, ldy, ldz,
+					right_rays.getOriginX(), right_rays.getOriginY(), right_rays.getOriginZ(), rdx, rdy, rdz,
+					count, x, y, z, error, offset);
+		}
+	}
+	
+	/**
+	 * Triangulates every pair, splitting big batches across all the cores. 
+	 * Small batches are done on the calling thread.
+	 * @return The number of pairs that had a point.
+	 */
+	public int triangulateParallel(final double[] lx, final double[] ly, final double[] rx, final double[] ry,
+			final double[] x, final double[] y, final double[] z, final double[] error)
+	{
+		return split(lx.length, new Chunk() {
+			public int run(int from, int to)
+			{
+				return triangulate(lx, ly, rx, ry, x, y, z, error, from, to);
+			}
+		});
+	}
+	
+	/**
+	 * The same as the double version for pixels stored as floats.
+	 * @return The number of pairs that had a point.
+	 */
+	public int triangulateParallel(final float[] lx, final float[] ly, final float[] rx, final float[] ry,
+			final double[] x, final double[] y, final double[] z, final double[] error)
+	{
+		return split(lx.length, new Chunk() {
+			public int run(int from, int to)
+			{
+				return triangulate(lx, ly, rx, ry, x, y, z, error, from, to);
+			}
+		});
+	}
+	
+	/*
+	 * Part of a batch
+	 */
+	private interface Chunk
+	{
+		public int run(int from, int to);
+	}
+	
+	/*
+	 * Splits length pairs into chunks, runs all but the last on the pool 
+	 * and the last on this thread, then adds up how many were found.
+	 */
+	private int split(int length, final Chunk chunk)
+	{
+		int threads = Runtime.getRuntime().availableProcessors();
+		int chunks = Math.min(threads * 4, length / MIN_CHUNK);
+		if(threads == 1 || chunks <= 1)
+			return chunk.run(0, length);
+		
+		List<Future<Integer>> futures = new ArrayList<Future<Integer>>(chunks - 1);
+		int size = (length + chunks - 1) / chunks;
+		int from = 0;
+		for(int c = 0; c < chunks - 1; c++, from += size)
+		{
+			final int start = from, end = from + size;
+			futures.add(Pool.EXECUTOR.submit(new Callable<Integer>() {
+				public Integer call()
+				{
+					return chunk.run(start, end);
+				}
+			}));
+		}
+		
+		int found = chunk.run(from, length);
+		boolean interrupted = false;
+		for(Future<Integer> f : futures)
+		{
+			while(true)
+			{
+				try
+				{
+					found += f.get();
+					break;
+				}
+				catch (InterruptedException e)
+				{
+					//Finish the batch so the arrays are not left half done
+					interrupted = true;
+				}
+				catch (ExecutionException e)
+				{
+					throw new RuntimeException(e.getCause());
+				}
+			}
+		}
+		if(interrupted)
+			Thread.currentThread().interrupt();
+		return found;
+	}
+	
+	/* Kernel Methods */
+	
+	/**
+	 * Sets the kernel that does the math, such as to compare kernels.
+	 * @param kernel The kernel, null for the default.
+	 */
+	public void setKernel(TriangulationKernel kernel)
+	{
+		this.kernel = (kernel == null) ? getDefaultKernel() : kernel;
+	}
+	
+	public TriangulationKernel getKernel()
+	{
+		return kernel;
+	}
+	
+	/**
+	 * Returns the kernel used when none is set, VectorTriangulationKernel if
+	 * it loaded and passed checkKernel, otherwise ScalarTriangulationKernel.
+	 * @return the default kernel
+	 */
+	public static TriangulationKernel getDefaultKernel()
+	{
+		return Kernels.DEFAULT;
+	}
+	
+	/**
+	 * Checks a kernel against ScalarTriangulationKernel on a fixed set of 
+	 * pairs, some of which have no point. 
+	 * @param kernel The kernel to check.
+	 * @return true if every answer is within TOLERANCE.
+	 */
+	public static boolean checkKernel(TriangulationKernel kernel)
+	{
+		int count = 1000 + 3;
+		double[][] d = new double[6][count];
+		java.util.Random random = new java.util.Random(1);
+		for(int i = 0; i < count; i++)
+		{
+			d[0][i] = random.nextDouble() - 0.2;
+			d[1][i] = random.nextDouble() - 0.5;
+			d[2][i] = 1;
+			d[3][i] = random.nextDouble() - 0.8;
+			d[4][i] = random.nextDouble() - 0.5;
+			d[5][i] = 1;
+		}
+		//A left ray with no direction and a pair of parallel rays
+		d[0][7] = d[1][7] = d[2][7] = 0;
+		for(int j = 0; j < 3; j++)
+			d[j + 3][8] = d[j][8];
+		
+		double[][] expect = new double[4][count];
+		double[][] got = new double[4][count];
+		int e = new ScalarTriangulationKernel().intersect(0, 0, 0, d[0], d[1], d[2], 609.6, 0, 0, d[3], d[4], d[5],
+				count, expect[0], expect[1], expect[2], expect[3], 0);
+		int g = kernel.intersect(0, 0, 0, d[0], d[1], d[2], 609.6, 0, 0, d[3], d[4], d[5],
+				count, got[0], got[1], got[2], got[3], 0);
+		if(e != g)
+			return false;
+		
+		for(int j = 0; j < 4; j++)
+			for(int i = 0; i < count; i++)
+			{
+				if(Double.isNaN(expect[j][i]) != Double.isNaN(got[j][i]))
+					return false;
+				if(Math.abs(expect[j][i] - got[j][i]) > TOLERANCE * Math.max(1, Math.abs(expect[j][i])))
+					return false;
+			}
+		return true;
+	}
+	
+	/*
+	 * The default kernel is loaded the first time it is asked for
+	 */
+	private static class Kernels
+	{
+		static final TriangulationKernel DEFAULT = load();
+		
+		private static TriangulationKernel load()
+		{
+			if(!"false".equals(System.getProperty("nuwii.vector")))
+			{
+				try
+				{
+					TriangulationKernel vector = (TriangulationKernel) Class.forName(VECTOR_KERNEL).getDeclaredConstructor().newInstance();
+					if(checkKernel(vector))
+						return vector;
+					System.out.println("VectorTriangulationKernel does not match Find3DPoint, using the scalar kernel");
+				}
+				catch (Exception e)
+				{
+					//Not compiled in, the scalar kernel is used
+				}
+				catch (LinkageError e)
+				{
+					//Compiled in but jdk.incubator.vector was not added
+				}
+			}
+			return new ScalarTriangulationKernel();
+		}
+	}
+	
+	/*
+	 * The pool is only made the first time a big batch is split
+	 */
+	private static class Pool
+	{
+		static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+				Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+					
+			private final AtomicInteger count = new AtomicInteger();
+			
+			public Thread newThread(Runnable r)
+			{
+				Thread t = new Thread(r, "BatchTriangulator-" + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+}
@@ -0,0 +1,778 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    CalibrationSolver.java
+*/
+package dualCamera;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import util.Find3DPoint;
+import util.XYZ;
+
+/**
+ * CalibrationSolver works out a StereoCalibration from points both Wii 
+ * Remotes saw at the same time, instead of measuring the board by hand. 
+ * When the calibration is right the two rays of a point meet, so it looks
+ * for the spacing and the yaw, pitch and roll of each Wii Remote that make 
+ * the gaps Find3DPoint finds between the rays as small as it can.
+ * <p>
+ * There are two kinds of samples:
+ * <ul>
+ * <li>Pairs - one IR light moved around freely, seen once by each Wii 
+ * Remote. Pairs fix the angles but not the spacing, since shrinking the 
+ * whole rig shrinks every gap, so the spacing is left as it was.</li>
+ * <li>Wands - two IR lights a known distance apart, set with 
+ * setWandLength. The distance between the two points found is also made 
+ * to match, which fixes the spacing too.</li>
+ * </ul>
+ * Add it as a DualCameraListener to collect samples while the lights are
+ * moved through the whole space the cameras can see, then call solve with
+ * the hand measured calibration to start from. Frames with one light seen 
+ * by each camera are taken as pairs, and frames with two lights as wands 
+ * if a wand length is set.
+ * <p>
+ * It is solved with Levenberg-Marquardt. The gaps and how they change with
+ * each value are added up in chunks on a pool of threads. Samples with a 
+ * gap more than OUTLIER times the average are taken to be bad matches and 
+ * left out of a second solve. Tilting the whole board does not change any
+ * gap, so the left Wii Remote's pitch is kept as given to set which way is
+ * up.
+ * <p>
+ * With setSolveDistortion it also solves for the radial LensDistortion of 
+ * each lens, k1 and k2. This needs samples right out to the edges of both
+ * images, where the distortion is.
+ * 
+ * @author Jason Creighton
+ */
+public class CalibrationSolver implements DualCameraListener
+{
+	/**
+	 * The most samples kept. Any more are ignored.
+	 */
+	public static final int MAX_SAMPLES = 20000;
+	
+	/**
+	 * The fewest samples solve will work with
+	 */
+	public static final int MIN_SAMPLES = 50;
+	
+	/**
+	 * Samples with a gap more than this many times the root mean square gap
+	 * are left out of the second solve
+	 */
+	public static final double OUTLIER = 3;
+	
+	/**
+	 * The values solved for, in the order they are kept. The angles are 
+	 * ANGLES + mote * 3 + StereoCalibration.YAW, PITCH or ROLL and the 
+	 * lens is LENS + mote * 2 for k1 and one more for k2.
+	 */
+	private static final int SPACING = 0;
+	private static final int ANGLES  = 1;
+	private static final int LENS    = 7;
+	private static final int PARAMS  = 11;
+	
+	/**
+	 * Each sample is kept as left x, y and right x, y of the first light, 
+	 * then of the second light for a wand
+	 */
+	private static final int STRIDE = 8;
+	
+	private static final int MAX_ITERATIONS = 100;
+	private static final double STEP = 1e-6;
+	private static final double MIN_CHANGE = 1e-10;
+	private static final double MAX_DAMPING = 1e10;
+	
+	/**
+	 * The fewest samples worth sending to another thread
+	 */
+	private static final int MIN_CHUNK = 512;
+	
+	private double[] samples = new double[STRIDE * 256];
+	private boolean[] wands = new boolean[256];
+	private int count = 0;
+	private int wand_count = 0;
+	
+	/**
+	 * The distance between the wand's two lights, 0 if there is no wand
+	 */
+	private double wand_length = 0;
+	
+	/**
+	 * If the radial distortion of the lenses is solved for
+	 */
+	private boolean solve_distortion = false;
+	
+	/**
+	 * Matches the wand's lights in frames from the camera it was made for
+	 */
+	private StereoMatcher matcher;
+	private DualMoteCamera matcher_camera;
+	
+	/**
+	 * Space for the points of a frame
+	 */
+	private final int[] lx = new int[IrReportBuffer.POINTS];
+	private final int[] ly = new int[IrReportBuffer.POINTS];
+	private final int[] rx = new int[IrReportBuffer.POINTS];
+	private final int[] ry = new int[IrReportBuffer.POINTS];
+	
+	/* Collecting Samples */
+	
+	/**
+	 * Adds one light seen by both Wii Remotes.
+	 * @param lx The X pixel in the left camera.
+	 * @param ly The Y pixel in the left camera.
+	 * @param rx The X pixel in the right camera.
+	 * @param ry The Y pixel in the right camera.
+	 * @return false if there are already MAX_SAMPLES.
+	 */
+	public synchronized boolean addPair(double lx, double ly, double rx, double ry)
+	{
+		if(!grow())
+			return false;
+		
+		int s = count * STRIDE;
+		samples[s]     = lx;
+		samples[s + 1] = ly;
+		samples[s + 2] = rx;
+		samples[s + 3] = ry;
+		wands[count++] = false;
+		return true;
+	}
+	
+	/**
+	 * Adds both lights of the wand seen by both Wii Remotes. Only used if 
+	 * a wand length is set.
+	 * @param lx1, ly1, rx1, ry1 The pixels of the first light.
+	 * @param lx2, ly2, rx2, ry2 The pixels of the second light.
+	 * @return false if there are already MAX_SAMPLES.
+	 */
+	public synchronized boolean addWand(double lx1, double ly1, double rx1, double ry1,
+			double lx2, double ly2, double rx2, double ry2)
+	{
+		if(!grow())
+			return false;
+		
+		int s = count * STRIDE;
+		samples[s]     = lx1;
+		samples[s + 1] = ly1;
+		samples[s + 2] = rx1;
+		samples[s + 3] = ry1;
+		samples[s + 4] = lx2;
+		samples[s + 5] = ly2;
+		samples[s + 6] = rx2;
+		samples[s + 7] = ry2;
+		wands[count++] = true;
+		wand_count++;
+		return true;
+	}
+	
+	/*
+	 * Makes room for one more sample, false if it is full
+	 */
+	private boolean grow()
+	{
+		if(count >= MAX_SAMPLES)
+			return false;
+		
+		if(count == wands.length)
+		{
+			int size = Math.min(wands.length * 2, MAX_SAMPLES);
+			double[] s = new double[size * STRIDE];
+			boolean[] w = new boolean[size];
+			System.arraycopy(samples, 0, s, 0, count * STRIDE);
+			System.arraycopy(wands, 0, w, 0, count);
+			samples = s;
+			wands = w;
+		}
+		return true;
+	}
+	
+	/**
+	 * Takes a sample from a frame if it has one light in each camera, or two
+	 * lights and a wand length is set.
+	 */
+	public synchronized void pointChanged(DualCameraEvent evt)
+	{
+		DualCameraFrame frame = evt.getFrame();
+		int left  = points(frame, DualMoteCamera.LEFT,  lx, ly);
+		int right = points(frame, DualMoteCamera.RIGHT, rx, ry);
+		
+		if(left == 1 && right == 1)
+		{
+			addPair(lx[0], ly[0], rx[0], ry[0]);
+		}
+		else if(left == 2 && right == 2 && wand_length > 0)
+		{
+			DualMoteCamera camera = evt.getSource();
+			if(matcher_camera != camera)
+			{
+				matcher = new StereoMatcher(camera.getRays(DualMoteCamera.LEFT), camera.getRays(DualMoteCamera.RIGHT));
+				matcher_camera = camera;
+			}
+			
+			//Only take wands where it is clear which light is which
+			if(matcher.match(lx, ly, rx, ry, 2) == 2 && !matcher.isAmbiguous())
+			{
+				int m0 = matcher.getMatch(0), m1 = matcher.getMatch(1);
+				addWand(lx[0], ly[0], rx[m0], ry[m0], lx[1], ly[1], rx[m1], ry[m1]);
+			}
+		}
+	}
+	
+	/*
+	 * Packs the points one camera found into the front of the arrays and 
+	 * returns how many there are
+	 */
+	private static int points(DualCameraFrame frame, int mote, int[] x, int[] y)
+	{
+		int found = 0;
+		for(int slot = 0; slot < IrReportBuffer.POINTS; slot++)
+		{
+			XYZ p = (mote == DualMoteCamera.LEFT) ? frame.getLeftPoint(slot) : frame.getRightPoint(slot);
+			if(p != null && (int) p.x != IrReportBuffer.NOT_FOUND)
+			{
+				x[found] = (int) p.x;
+				y[found] = (int) p.y;
+				found++;
+			}
+		}
+		for(int i = found; i < IrReportBuffer.POINTS; i++)
+			x[i] = IrReportBuffer.NOT_FOUND;
+		return found;
+	}
+	
+	/**
+	 * Throws away every sample.
+	 */
+	public synchronized void clear()
+	{
+		count = 0;
+		wand_count = 0;
+	}
+	
+	/* Solving */
+	
+	/**
+	 * Solves for the calibration that best fits the samples.
+	 * @param start The calibration to start from, such as one measured by 
+	 * hand. The field of view, the left pitch and the tangential distortion
+	 * are kept from it, and the spacing too if there are no wands.
+	 * @return the calibration, or null if there are too few samples.
+	 */
+	public StereoCalibration solve(StereoCalibration start)
+	{
+		double[] pixels;
+		boolean[] wand;
+		int n;
+		boolean spacing_free, lens_free;
+		double length;
+		synchronized(this)
+		{
+			lens_free = solve_distortion;
+			n = count;
+			pixels = samples.clone();
+			wand = wands.clone();
+			length = wand_length;
+			spacing_free = wand_count > 0 && wand_length > 0;
+		}
+		
+		if(n < MIN_SAMPLES)
+		{
+			System.out.println("Only " + n + " calibration samples, need at least " + MIN_SAMPLES);
+			return null;
+		}
+		
+		//The tangents seen do not change with the values solved for, so they are found once
+		double[] tan = new double[n * STRIDE];
+		double[] t = new double[2];
+		double cx = RayTable.WIDTH / 2, cy = RayTable.HEIGHT / 2;
+		for(int i = 0; i < n * STRIDE; i += 2)
+		{
+			RayTable.tangent(pixels[i], pixels[i + 1], start.getHfov(), start.getVfov(), cx, cy, t);
+			tan[i]     = t[0];
+			tan[i + 1] = t[1];
+		}
+		Samples data = new Samples(tan, wand, n, length, start);
+		
+		double[] p = new double[PARAMS];
+		p[SPACING] = start.getSpacing();
+		System.arraycopy(start.getAngles(DualMoteCamera.LEFT),  0, p, ANGLES, 3);
+		System.arraycopy(start.getAngles(DualMoteCamera.RIGHT), 0, p, ANGLES + 3, 3);
+		for(int mote = DualMoteCamera.LEFT; mote <= DualMoteCamera.RIGHT; mote++)
+		{
+			p[LENS + mote * 2]     = start.getDistortion(mote).getK1();
+			p[LENS + mote * 2 + 1] = start.getDistortion(mote).getK2();
+		}
+		
+		boolean[] free = new boolean[PARAMS];
+		for(int k = 0; k < PARAMS; k++)
+			free[k] = true;
+		free[SPACING] = spacing_free;
+		free[ANGLES + StereoCalibration.PITCH] = false;
+		for(int k = LENS; k < PARAMS; k++)
+			free[k] = lens_free;
+		
+		//Solve with every sample, then again without the bad matches
+		Sums fit = levenbergMarquardt(data, p, free, Double.POSITIVE_INFINITY);
+		fit = levenbergMarquardt(data, p, free, OUTLIER * fit.rmsGap());
+		
+		double[] left = new double[3], right = new double[3];
+		System.arraycopy(p, ANGLES, left, 0, 3);
+		System.arraycopy(p, ANGLES + 3, right, 0, 3);
+		return new StereoCalibration(p[SPACING], left, right, start.getHfov(), start.getVfov(), 
+				data.lens(p, DualMoteCamera.LEFT), data.lens(p, DualMoteCamera.RIGHT), fit.rmsGap());
+	}
+	
+	/*
+	 * Moves p to the best fit and returns the sums at it. Samples with a 
+	 * gap over limit are left out.
+	 */
+	private Sums levenbergMarquardt(Samples data, double[] p, boolean[] free, double limit)
+	{
+		double damping = 1e-3;
+		Sums at = evaluate(data, p, free, limit, true);
+		double[] a = new double[PARAMS * PARAMS];
+		double[] b = new double[PARAMS];
+		double[] trial = new double[PARAMS];
+		
+		for(int iteration = 0; iteration < MAX_ITERATIONS && damping < MAX_DAMPING; iteration++)
+		{
+			// (JtJ + damping * diag(JtJ)) step = -Jtr, with fixed values left alone
+			for(int i = 0; i < PARAMS; i++)
+			{
+				for(int j = 0; j < PARAMS; j++)
+					a[i * PARAMS + j] = (free[i] && free[j]) ? at.jtj[i * PARAMS + j] : 0;
+				a[i * PARAMS + i] = free[i] ? at.jtj[i * PARAMS + i] * (1 + damping) + 1e-12 : 1;
+				b[i] = free[i] ? -at.jtr[i] : 0;
+			}
+			if(!solveLinear(a, b, PARAMS))
+			{
+				damping *= 10;
+				continue;
+			}
+			
+			for(int k = 0; k < PARAMS; k++)
+				trial[k] = p[k] + b[k];
+			Sums next = evaluate(data, trial, free, limit, false);
+			
+			if(next.cost < at.cost)
+			{
+				boolean done = at.cost - next.cost < MIN_CHANGE * at.cost;
+				System.arraycopy(trial, 0, p, 0, PARAMS);
+				damping /= 10;
+				at = done ? next : evaluate(data, p, free, limit, true);
+				if(done)
+					break;
+			}
+			else
+				damping *= 10;
+		}
+		return at;
+	}
+	
+	/*
+	 * Adds up the cost, and JtJ and Jtr if jacobian, over every sample. Big
+	 * sets of samples are split over the pool.
+	 */
+	private Sums evaluate(final Samples data, double[] p, boolean[] free, final double limit, final boolean jacobian)
+	{
+		//The rotations and lenses for p and for p with each value nudged
+		final double[][] params = new double[PARAMS + 1][];
+		final double[][] rotations = new double[(PARAMS + 1) * 2][9];
+		final LensDistortion[] lenses = new LensDistortion[(PARAMS + 1) * 2];
+		final double[] steps = new double[PARAMS];
+		params[PARAMS] = p.clone();
+		for(int k = 0; k < PARAMS; k++)
+		{
+			if(!jacobian || !free[k])
+				continue;
+			steps[k] = STEP * Math.max(1, Math.abs(p[k]));
+			params[k] = p.clone();
+			params[k][k] += steps[k];
+		}
+		for(int k = 0; k <= PARAMS; k++)
+		{
+			if(params[k] == null)
+				continue;
+			double[] q = params[k];
+			RayTable.rotation(q[ANGLES], q[ANGLES + 1], q[ANGLES + 2], rotations[k * 2]);
+			RayTable.rotation(q[ANGLES + 3], q[ANGLES + 4], q[ANGLES + 5], rotations[k * 2 + 1]);
+			lenses[k * 2]     = data.lens(q, DualMoteCamera.LEFT);
+			lenses[k * 2 + 1] = data.lens(q, DualMoteCamera.RIGHT);
+		}
+		
+		int threads = Runtime.getRuntime().availableProcessors();
+		int chunks = Math.min(threads * 4, data.count / MIN_CHUNK);
+		if(threads == 1 || chunks <= 1)
+			return new Sums().add(data, 0, data.count, params, rotations, lenses, steps, limit);
+		
+		List<Future<Sums>> futures = new ArrayList<Future<Sums>>(chunks - 1);
+		int size = (data.count + chunks - 1) / chunks;
+		int from = 0;
+		for(int c = 0; c < chunks - 1; c++, from += size)
+		{
+			final int start = from, end = from + size;
+			futures.add(Pool.EXECUTOR.submit(new Callable<Sums>() {
+				public Sums call()
+				{
+					return new Sums().add(data, start, end, params, rotations, lenses, steps, limit);
+				}
+			}));
+		}
+		
+		Sums total = new Sums().add(data, from, data.count, params, rotations, lenses, steps, limit);
+		boolean interrupted = false;
+		for(Future<Sums> f : futures)
+		{
+			while(true)
+			{
+				try
+				{
+					total.merge(f.get());
+					break;
+				}
+				catch (InterruptedException e)
+				{
+					interrupted = true;
+				}
+				catch (ExecutionException e)
+				{
+					throw new RuntimeException(e.getCause());
+				}
+			}
+		}
+		if(interrupted)
+			Thread.currentThread().interrupt();
+		return total;
+	}
+	
+	/*
+	 * Solves a * x = b for a small n by n matrix with partial pivoting. b is
+	 * replaced with x. False if a is singular.
+	 */
+	static boolean solveLinear(double[] a, double[] b, int n)
+	{
+		for(int col = 0; col < n; col++)
+		{
+			int pivot = col;
+			for(int row = col + 1; row < n; row++)
+				if(Math.abs(a[row * n + col]) > Math.abs(a[pivot * n + col]))
+					pivot = row;
+			if(a[pivot * n + col] == 0)
+				return false;
+			
+			if(pivot != col)
+			{
+				for(int k = 0; k < n; k++)
+				{
+					double swap = a[col * n + k];
+					a[col * n + k] = a[pivot * n + k];
+					a[pivot * n + k] = swap;
+				}
+				double swap = b[col];
+				b[col] = b[pivot];
+				b[pivot] = swap;
+			}
+			
+			for(int row = col + 1; row < n; row++)
+			{
+				double f = a[row * n + col] / a[col * n + col];
+				for(int k = col; k < n; k++)
+					a[row * n + k] -= f * a[col * n + k];
+				b[row] -= f * b[col];
+			}
+		}
+		
+		for(int row = n - 1; row >= 0; row--)
+		{
+			double sum = b[row];
+			for(int k = row + 1; k < n; k++)
+				sum -= a[row * n + k] * b[k];
+			b[row] = sum / a[row * n + row];
+		}
+		return true;
+	}
+	
+	/*
+	 * The samples as tangents, shared by every chunk
+	 */
+	private static class Samples
+	{
+		final double[] tan;
+		final boolean[] wand;
+		final int count;
+		final double length;
+		final StereoCalibration start;
+		
+		Samples(double[] tan, boolean[] wand, int count, double length, StereoCalibration start)
+		{
+			this.tan = tan;
+			this.wand = wand;
+			this.count = count;
+			this.length = length;
+			this.start = start;
+		}
+		
+		/*
+		 * The lens of one mote for the values in p, keeping the tangential
+		 * distortion of the start
+		 */
+		LensDistortion lens(double[] p, int mote)
+		{
+			LensDistortion given = start.getDistortion(mote);
+			double k1 = p[LENS + mote * 2], k2 = p[LENS + mote * 2 + 1];
+			if(k1 == given.getK1() && k2 == given.getK2())
+				return given;
+			return new LensDistortion(k1, k2, given.getP1(), given.getP2());
+		}
+	}
+	
+	/*
+	 * What one chunk adds up. Each chunk has its own so there is no locking.
+	 */
+	private static class Sums
+	{
+		final double[] jtj = new double[PARAMS * PARAMS];
+		final double[] jtr = new double[PARAMS];
+		double cost;
+		double gaps;
+		int gap_count;
+		
+		/*
+		 * Space for the residuals of one sample. A pair has 1, the gap, and a
+		 * wand has 3, the two gaps and how far off its length is.
+		 */
+		private final double[] base = new double[3];
+		private final double[] nudged = new double[3];
+		private final double[] jacobian = new double[3 * PARAMS];
+		private final double[] out = new double[4];
+		private final double[] undistorted = new double[2];
+		
+		Sums add(Samples data, int from, int to, double[][] params, double[][] rotations, LensDistortion[] lenses,
+				double[] steps, double limit)
+		{
+			double[] p = params[PARAMS];
+			double[] left = rotations[PARAMS * 2], right = rotations[PARAMS * 2 + 1];
+			LensDistortion left_lens = lenses[PARAMS * 2], right_lens = lenses[PARAMS * 2 + 1];
+			
+			for(int i = from; i < to; i++)
+			{
+				int size = residuals(data, i, p[SPACING], left, right, left_lens, right_lens, base);
+				if(size == 0)
+					continue;
+				
+				//Left out as a bad match
+				if(Math.abs(base[0]) > limit || (size == 3 && Math.abs(base[1]) > limit))
+					continue;
+				
+				for(int r = 0; r < size; r++)
+					cost += base[r] * base[r];
+				gaps += base[0] * base[0];
+				gap_count++;
+				if(size == 3)
+				{
+					gaps += base[1] * base[1];
+					gap_count++;
+				}
+				
+				boolean usable = true;
+				for(int k = 0; k < PARAMS; k++)
+				{
+					if(params[k] == null)
+						continue;
+					if(residuals(data, i, params[k][SPACING], rotations[k * 2], rotations[k * 2 + 1], 
+							lenses[k * 2], lenses[k * 2 + 1], nudged) != size)
+					{
+						usable = false;
+						break;
+					}
+					for(int r = 0; r < size; r++)
+						jacobian[r * PARAMS + k] = (nudged[r] - base[r]) / steps[k];
+				}
+				if(!usable)
+					continue;
+				
+				for(int j = 0; j < PARAMS; j++)
+				{
+					if(params[j] == null)
+						continue;
+					for(int r = 0; r < size; r++)
+					{
+						double jr = jacobian[r * PARAMS + j];
+						jtr[j] += jr * base[r];
+						for(int k = 0; k < PARAMS; k++)
+							if(params[k] != null)
+								jtj[j * PARAMS + k] += jr * jacobian[r * PARAMS + k];
+					}
+				}
+			}
+			return this;
+		}
+		
+		void merge(Sums other)
+		{
+			for(int i = 0; i < jtj.length; i++)
+				jtj[i] += other.jtj[i];
+			for(int i = 0; i < jtr.length; i++)
+				jtr[i] += other.jtr[i];
+			cost += other.cost;
+			gaps += other.gaps;
+			gap_count += other.gap_count;
+		}
+		
+		double rmsGap()
+		{
+			return (gap_count == 0) ? Double.NaN : Math.sqrt(gaps / gap_count);
+		}
+		
+		/*
+		 * Finds the residuals of one sample and returns how many there are, 
+		 * 0 if the rays are parallel.
+		 */
+		private int residuals(Samples data, int i, double spacing, double[] left, double[] right, 
+				LensDistortion left_lens, LensDistortion right_lens, double[] r)
+		{
+			int s = i * STRIDE;
+			double[] tan = data.tan;
+			if(!gap(tan, s, spacing, left, right, left_lens, right_lens, r, 0))
+				return 0;
+			if(!data.wand[i])
+				return 1;
+			
+			double x = out[XYZ.X], y = out[XYZ.Y], z = out[XYZ.Z];
+			if(!gap(tan, s + 4, spacing, left, right, left_lens, right_lens, r, 1))
+				return 0;
+			double dx = out[XYZ.X] - x, dy = out[XYZ.Y] - y, dz = out[XYZ.Z] - z;
+			r[2] = Math.sqrt(dx * dx + dy * dy + dz * dz) - data.length;
+			return 3;
+		}
+		
+		/*
+		 * Finds the point and gap of one light with Find3DPoint. The gap is 
+		 * given the sign of which side of the left ray the right ray passes, 
+		 * so it changes smoothly through 0 as the angles change.
+		 */
+		private boolean gap(double[] tan, int s, double spacing, double[] left, double[] right, 
+				LensDistortion left_lens, LensDistortion right_lens, double[] r, int index)
+		{
+			left_lens.undistort(tan[s], tan[s + 1], undistorted);
+			double ltx = undistorted[0], lty = undistorted[1];
+			right_lens.undistort(tan[s + 2], tan[s + 3], undistorted);
+			double rtx = undistorted[0], rty = undistorted[1];
+			double ldx = ltx * left[0] + lty * left[1] + left[2];
+			double ldy = ltx * left[3] + lty * left[4] + left[5];
+			double ldz = ltx * left[6] + lty * left[7] + left[8];
+			double rdx = rtx * right[0] + rty * right[1] + right[2];
+			double rdy = rtx * right[3] + rty * right[4] + right[5];
+			double rdz = rtx * right[6] + rty * right[7] + right[8];
+			
+			if(!Find3DPoint.raysIntersectionPoint(0, 0, 0, ldx, ldy, ldz, spacing, 0, 0, rdx, rdy, rdz, out))
+				return false;
+			
+			// The baseline is along X, so only the X of left x right matters
+			double side = ldy * rdz - ldz * rdy;
+			r[index] = (side < 0) ? -out[Find3DPoint.GAP] : out[Find3DPoint.GAP];
+			return true;
+		}
+	}
+	
+	/* Set Methods */
+	
+	/**
+	 * Sets the distance between the two lights of the wand, in the units
+	 * the spacing should be in. 0 means there is no wand.
+	 * @param length The length of the wand.
+	 */
+	public synchronized void setWandLength(double length)
+	{
+		if(length >= 0)
+			wand_length = length;
+	}
+	
+	/**
+	 * Sets whether solve also solves for the radial distortion of each lens.
+	 * @param solve true to solve for k1 and k2 of both lenses.
+	 */
+	public synchronized void setSolveDistortion(boolean solve)
+	{
+		solve_distortion = solve;
+	}
+	
+	/* Get Methods */
+	
+	public synchronized boolean getSolveDistortion()
+	{
+		return solve_distortion;
+	}
+	
+	public synchronized double getWandLength()
+	{
+		return wand_length;
+	}
+	
+	/**
+	 * Returns how many samples have been added, pairs and wands.
+	 * @return the number of samples.
+	 */
+	public synchronized int getSampleCount()
+	{
+		return count;
+	}
+	
+	/**
+	 * Returns how many of the samples are wands.
+	 * @return the number of wand samples.
+	 */
+	public synchronized int getWandCount()
+	{
+		return wand_count;
+	}
+	
+	/*
+	 * The pool is only made the first time a big solve is split
+	 */
+	private static class Pool
+	{
+		static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+				Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+					
+			private final AtomicInteger count = new AtomicInteger();
+			
+			public Thread newThread(Runnable r)
+			{
+				Thread t = new Thread(r, "CalibrationSolver-" + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+}
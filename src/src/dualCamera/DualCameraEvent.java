@@ -27,7 +27,8 @@ import util.XYZ;
 
 /**
  * DualCameraEvent is used to provide contextual information about an event
- * to the handler processing the event
+ * to the handler processing the event. Every listener gets the same 
+ * DualCameraFrame, which is found once when the event is fired.
  *
  */
 public class DualCameraEvent 
@@ -38,12 +39,19 @@ public class DualCameraEvent
 	DualMoteCamera source;
 	
 	/**
-	 * Constructor which takes in a DualMoteCamera
+	 * The frame this event is for
+	 */
+	DualCameraFrame frame;
+	
+	/**
+	 * Constructor which takes in a DualMoteCamera and the frame it found
 	 * @param source
+	 * @param frame
 	 */
-	DualCameraEvent(DualMoteCamera source)
+	DualCameraEvent(DualMoteCamera source, DualCameraFrame frame)
 	{
 		this.source = source;
+		this.frame = frame;
 	}
 	
 	/**
@@ -54,6 +62,14 @@ public class DualCameraEvent
 		return source;
 	}
 	
+	/**
+	 * Returns the frame this event is for. 
+	 * @return
+	 */
+	public DualCameraFrame getFrame() {
+		return frame;
+	}
+	
 	/**
 	 * Retrieves a point from the left Wii Remote. The point retrieved
 	 * corresponds to the slot number passed in.
@@ -62,7 +78,7 @@ public class DualCameraEvent
 	 */
 	public XYZ getLeftPoint(int slot)
 	{
-		return source.getLeftMotePoint(slot); 
+		return frame.getLeftPoint(slot); 
 	}
 	
 	/**
@@ -73,7 +89,7 @@ public class DualCameraEvent
 	 */
 	public XYZ getRightPoint(int slot)
 	{
-		return source.getRightMotePoint(slot); 
+		return frame.getRightPoint(slot); 
 	}
 	
 	/**
@@ -83,7 +99,7 @@ public class DualCameraEvent
 	 */
 	public XYZ[] getRealPoints()
 	{
-		return source.getRealPoints();
+		return frame.getRealPoints();
 	}
 	
 	/**
@@ -95,19 +111,25 @@ public class DualCameraEvent
 	 */
 	public XYZ getAveragePoint()
 	{
-		XYZ[] points = source.getRealPoints();
-		
-		if(points[0] == null && points[1] == null)
-			return new XYZ();
-		
-		if(points[0] == null)
-			return points[1];
-		
-		if(points[1] == null)
-			return points[0];
-		
-		return points[0].average(points[1]);
+		return frame.getAveragePoint();
 	}
 	
+	/**
+	 * Returns the average error of the real points in this frame.
+	 * @return
+	 */
+	public double getError()
+	{
+		return frame.getError();
+	}
+	
+	/**
+	 * Returns the sequence number of the frame. See DualCameraFrame. 
+	 * @return
+	 */
+	public long getSequence()
+	{
+		return frame.getSequence();
+	}
 	
 }
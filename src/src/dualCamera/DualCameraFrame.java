@@ -0,0 +1,330 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    DualCameraFrame.java
+*/
+package dualCamera;
+
+import util.XYZ;
+
+/**
+ * DualCameraFrame holds everything DualMoteCamera found for one stereo frame.
+ * It is made once when the frame is fired and the same frame is given to 
+ * every DualCameraListener, so adding listeners does not add triangulation 
+ * work and does not change what the tracking sees.
+ * <p>
+ * A frame never changes once it is made. The get methods return copies of 
+ * the points so a listener changing a point does not change it for the 
+ * other listeners. getX, getY and getZ read a real point without making a
+ * copy, for code that runs on every frame such as a GestureRecognizer.
+ * 
+ * @author Amy Ciavolino
+ */
+public class DualCameraFrame
+{
+	/**
+	 * Counts up by one for each frame fired by a DualMoteCamera 
+	 */
+	private final long sequence;
+	
+	/**
+	 * When the frame was paired, from System.nanoTime()
+	 */
+	private final long time;
+	
+	/**
+	 * The raw 2D points from each camera. The Z value is 0.
+	 */
+	private final XYZ[] left_points, right_points;
+	
+	/**
+	 * The points in space found from the raw points. See getRealPoints in
+	 * DualMoteCamera.
+	 */
+	private final XYZ[] real_points;
+	
+	/**
+	 * The ID of the tracked marker each real point belongs to. See PointTracker.
+	 */
+	private final int[] ids;
+	
+	/**
+	 * The average of the real points
+	 */
+	private final XYZ average;
+	
+	/**
+	 * The average error of the real points that were found
+	 */
+	private final double error;
+	
+	/**
+	 * How many real points were found
+	 */
+	private final int found;
+	
+	/**
+	 * Makes a frame. The points passed in are copied.
+	 * 
+	 * @param sequence The number of the frame.
+	 * @param time When the frame was paired.
+	 * @param left_points The raw points from the left camera.
+	 * @param right_points The raw points from the right camera.
+	 * @param real_points The points found in space.
+	 * @param ids The ID of the marker for each real point.
+	 */
+	DualCameraFrame(long sequence, long time, XYZ[] left_points, XYZ[] right_points, XYZ[] real_points, int[] ids)
+	{
+		this.ids = ids.clone();
+		this.sequence = sequence;
+		this.time = time;
+		this.left_points  = copy(left_points);
+		this.right_points = copy(right_points);
+		this.real_points  = copy(real_points);
+		this.average = averageOf(this.real_points);
+		
+		double total = 0;
+		int found = 0;
+		for(XYZ p: this.real_points)
+		{
+			if(p != null)
+			{
+				total += p.getError();
+				found++;
+			}
+		}
+		error = (found == 0) ? 0 : total/found;
+		this.found = found;
+	}
+	
+	/**
+	 * Makes a copy of this frame with other real points, such as the 
+	 * smoothed points of FilteredDualCameraListener.
+	 * @param real_points The new real points, in the same order.
+	 * @return the new frame.
+	 */
+	DualCameraFrame withRealPoints(XYZ[] real_points)
+	{
+		return new DualCameraFrame(sequence, time, left_points, right_points, real_points, ids);
+	}
+	
+	/**
+	 * Averages together the points that were found. When none were found
+	 * the average is a default point of 0,0,0.
+	 */
+	private static XYZ averageOf(XYZ[] points)
+	{
+		XYZ found = null;
+		int count = 0;
+		double x = 0, y = 0, z = 0;
+		for(XYZ p: points)
+		{
+			if(p != null)
+			{
+				found = p;
+				x += p.x;
+				y += p.y;
+				z += p.z;
+				count++;
+			}
+		}
+		
+		if(count == 0)
+			return new XYZ();
+		
+		//A single point is returned as is, error included
+		if(count == 1)
+			return copy(found);
+		
+		return new XYZ(x/count, y/count, z/count);
+	}
+	
+	/*
+	 * Copies each point including the error. XYZ's copy constructor
+	 * does not copy the error.
+	 */
+	private static XYZ copy(XYZ point)
+	{
+		if(point == null)
+			return null;
+		XYZ copy = new XYZ(point);
+		copy.setError(point.getError());
+		return copy;
+	}
+	
+	private static XYZ[] copy(XYZ[] points)
+	{
+		XYZ[] copy = new XYZ[points.length];
+		for(int i = 0; i < points.length; i++)
+			copy[i] = copy(points[i]);
+		return copy;
+	}
+	
+	/* Get Methods */
+	
+	/**
+	 * Returns the number of this frame. Each DualMoteCamera counts up by one
+	 * for every frame it fires so a gap means frames were skipped.
+	 * @return the sequence number of the frame
+	 */
+	public long getSequence()
+	{
+		return sequence;
+	}
+	
+	/**
+	 * Returns when the frame was paired, in System.nanoTime() units.
+	 * @return the time of the frame
+	 */
+	public long getTime()
+	{
+		return time;
+	}
+	
+	/**
+	 * Returns the raw 2D point from the left camera or null if the slot is
+	 * out of range or the left mote was not connected.
+	 * @param slot The point you want from the camera, from 0 to 3.
+	 * @return The X and Y from the camera with the Z value set to 0.
+	 */
+	public XYZ getLeftPoint(int slot)
+	{
+		if(slot < 0 || slot >= left_points.length)
+			return null;
+		return copy(left_points[slot]);
+	}
+	
+	/**
+	 * Returns the raw 2D point from the right camera or null if the slot is
+	 * out of range or the right mote was not connected.
+	 * @param slot The point you want from the camera, from 0 to 3.
+	 * @return The X and Y from the camera with the Z value set to 0.
+	 */
+	public XYZ getRightPoint(int slot)
+	{
+		if(slot < 0 || slot >= right_points.length)
+			return null;
+		return copy(right_points[slot]);
+	}
+	
+	/**
+	 * Returns the points in space found for this frame. Points that could not
+	 * be found are null. See getRealPoints in DualMoteCamera for details.
+	 * @return the real points of this frame
+	 */
+	public XYZ[] getRealPoints()
+	{
+		return copy(real_points);
+	}
+	
+	/**
+	 * Returns how many real points there are, found or not.
+	 * @return the length of getRealPoints
+	 */
+	public int getPointCount()
+	{
+		return real_points.length;
+	}
+	
+	/**
+	 * Returns how many of the real points were found.
+	 * @return the number of points that are not null
+	 */
+	public int getFoundCount()
+	{
+		return found;
+	}
+	
+	/**
+	 * Returns whether a real point was found.
+	 * @param index The index of the point in getRealPoints.
+	 * @return false if the point is null or the index is out of range.
+	 */
+	public boolean isFound(int index)
+	{
+		return index >= 0 && index < real_points.length && real_points[index] != null;
+	}
+	
+	/**
+	 * Returns the X of a real point without copying it.
+	 * @param index The index of the point in getRealPoints.
+	 * @return the X or NaN if the point was not found.
+	 */
+	public double getX(int index)
+	{
+		return isFound(index) ? real_points[index].x : Double.NaN;
+	}
+	
+	/**
+	 * Returns the Y of a real point without copying it.
+	 * @param index The index of the point in getRealPoints.
+	 * @return the Y or NaN if the point was not found.
+	 */
+	public double getY(int index)
+	{
+		return isFound(index) ? real_points[index].y : Double.NaN;
+	}
+	
+	/**
+	 * Returns the Z of a real point without copying it.
+	 * @param index The index of the point in getRealPoints.
+	 * @return the Z or NaN if the point was not found.
+	 */
+	public double getZ(int index)
+	{
+		return isFound(index) ? real_points[index].z : Double.NaN;
+	}
+	
+	/**
+	 * Returns the ID of the tracked marker a real point belongs to. A marker 
+	 * keeps its ID from frame to frame while it is tracked, even when the 
+	 * cameras lose it for a few frames, so the ID can be used to tell which 
+	 * point is which no matter what index it is at. 
+	 * @param index The index of the point in getRealPoints.
+	 * @return the ID or PointTracker.NO_ID if the point was not found.
+	 */
+	public int getPointId(int index)
+	{
+		if(index < 0 || index >= ids.length)
+			return PointTracker.NO_ID;
+		return ids[index];
+	}
+	
+	/**
+	 * Returns the average of the real points that were found or a default
+	 * point of 0,0,0 if none were.
+	 * @return the average real point
+	 */
+	public XYZ getAveragePoint()
+	{
+		return copy(average);
+	}
+	
+	/**
+	 * Returns the average error of the real points that were found. The error
+	 * is how far apart the rays from the two cameras are at the point. 
+	 * @return the average error, 0 if no points were found
+	 */
+	public double getError()
+	{
+		return error;
+	}
+}
@@ -23,18 +23,19 @@
 */
 package dualCamera;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import javax.swing.event.EventListenerList;
 
 
-import motej.IrCameraMode;
-import motej.IrCameraSensitivity;
 import motej.IrPoint;
 import motej.Mote;
 import motej.event.IrCameraEvent;
 import motej.event.IrCameraListener;
-import motej.request.ReportModeRequest;
+import motej.event.MoteDisconnectedEvent;
+import motej.event.MoteDisconnectedListener;
 import util.Find3DPoint;
 import util.MultiMoteFinder;
 import util.XYZ;
@@ -52,11 +53,6 @@ import util.XYZ;
 public class DualMoteCamera
 {		
 	
-	/**
-	 * Boolean to keep track of if pinch gesture was recognized
-	 */
-	private boolean pinched = false;
-	
 	/**
 	 * points_not_found counts up the number of points that are missing. It assumes 4 points total.
 	 */
@@ -115,34 +111,6 @@ public class DualMoteCamera
 	 */
 	public static final XYZ MAX = new XYZ(575, 132, 1640);
 
-	/**
-	 * Pi variable intialized to save time in later calculations
-	 */
-	private static final double PIE = Math.PI;
-    
-	/**
-	 * angle between wiimote and the board holding them.
-	 * It is assumed that the angle is the inner angle
-	 */
-	private static double wiimote_angle = .392699; //22.5 degrees;		
-	private static double wiimote2_angle = 2*PIE - .392699 ; //22.5 degrees;
-	 
-	/**
-	 * 43.6 degrees is the horizontal field of view for a wiimote camera
-	 * 33.4 degrees is the vertical field of view for a wiimote camera
-	 * The units below are in radians
-	 */
-	private static final double hfov = .761;
-	private static final double vfov = .5829; 
-	
-	/**
-	 * The center of projection. The total viewing cooridnates for a WiiRemote
-	 * are 0-1024 for the domain and 0-768 for the range
-	 * Halfing those values is the center.
-	 */
-	private static final double centerofprojectionx = 512.0; //1024 total
-	private static final double centerofprojectiony = 384.0; //768 total
-	
 	/**
 	 * The default spacing between the two Wii Remotes. For our board the
 	 * spacing is 609.6 millimeters. wiimote_spacing can be assigned this 
@@ -161,6 +129,11 @@ public class DualMoteCamera
 	 * the units of the final result.
 	 */
 	private double wiimote_spacing;
+	
+	/**
+	 * Where the Wii Remotes are and which way they point
+	 */
+	private final StereoCalibration calibration;
 		
 	/**
 	 * Listenerlist which gets added a DuelMoteCameraListener later
@@ -168,17 +141,13 @@ public class DualMoteCamera
 	private EventListenerList listenerList = new EventListenerList();
 	
 	/**
-	 * Gesturehandler which gets passed in. It takes care of what
-	 * happens when a gesture is sensed.
+	 * Runs the gesture recognizers on each frame. The swipe and pinch 
+	 * recognizers are always added, and the Gestures passed in is told 
+	 * about them through a GesturesAdapter.
 	 */
-	private Gestures gesturehandler;
-	
-	/**
-	 * GesturesEnabled is set true when looking for gestures
-	 * It is set false by default and set true when a gesturehandler
-	 * is passed in
-	 */
-	private boolean gesturesEnabled = false;
+	private final GestureEngine gestures = new GestureEngine();
+	private final SwipeRecognizer swipe_recognizer = new SwipeRecognizer();
+	private final PinchRecognizer pinch_recognizer = new PinchRecognizer();
 
 	/**
 	 * The two Wii Remotes used in sensing points
@@ -186,10 +155,104 @@ public class DualMoteCamera
 	private Mote left_mote, right_mote;
 	
 	/**
-	 * Points seen by the left and right Wii Remotes respectively
+	 * The listeners added to each mote, so they can be taken off when the 
+	 * mote is replaced
+	 */
+	private final IrCameraListener[] ir_listeners = new IrCameraListener[2];
+	private final MoteLostListener[] lost_listeners = new MoteLostListener[2];
+	
+	/**
+	 * When each mote last reported and when it was set up, from 
+	 * System.nanoTime(), and whether it has disconnected. Used by 
+	 * MoteSupervisor to tell when a mote needs to be reconnected.
+	 */
+	private final AtomicLongArray last_arrival = new AtomicLongArray(2);
+	private final AtomicLongArray attached = new AtomicLongArray(2);
+	private final boolean[] lost = new boolean[2];
+	
+	/**
+	 * Indexes for the left and right Wii Remotes
+	 */
+	public static final int LEFT  = 0;
+	public static final int RIGHT = 1;
+	
+	/**
+	 * Pairs up the reports from the two Wii Remotes so there is one
+	 * event for each stereo frame
+	 */
+	private final StereoFramePairer pairer = new StereoFramePairer();
+	
+	/**
+	 * Where the time of each report comes from. See FrameClock.
+	 */
+	private volatile FrameClock clock = FrameClock.SYSTEM;
+	
+	/**
+	 * Saves every report to a file while it is set
+	 */
+	private volatile IrReportRecorder recorder = null;
+	
+	/**
+	 * How long each stage of making a frame takes. See DualMoteCameraStats.
+	 */
+	private final DualMoteCameraStats stats = new DualMoteCameraStats();
+	
+	/**
+	 * The latest frame fired and the sequence number it was given
+	 */
+	private volatile DualCameraFrame latest_frame = null;
+	private long sequence = 0;
+	
+	/**
+	 * Points seen by the left and right Wii Remotes respectively. Each is
+	 * written by its Wii Remote's thread and read without locking.
+	 * See IrReportBuffer.
+	 */
+	private final IrReportBuffer[] reports = new IrReportBuffer[]{ new IrReportBuffer(), new IrReportBuffer() };
+	
+	/**
+	 * Space to copy a report from each Wii Remote into when making a frame
+	 */
+	private final int[][] report_x    = new int[2][IrReportBuffer.POINTS];
+	private final int[][] report_y    = new int[2][IrReportBuffer.POINTS];
+	private final int[][] report_size = new int[2][IrReportBuffer.POINTS];
+	
+	/**
+	 * The rays through each pixel of the left and right Wii Remotes. These are
+	 * built once by the constructor since the calibration does not change.
+	 */
+	private final RayTable left_rays, right_rays;
+	
+	/**
+	 * Matches up the points when more than 2 markers are tracked and
+	 * triangulates the points for getRealCoordinates
+	 */
+	private final StereoMatcher matcher;
+	
+	/**
+	 * Keeps the identity of each marker from frame to frame and the space 
+	 * to pass it the points
+	 */
+	private final PointTracker tracker = new PointTracker();
+	private final double[] track_points = new double[PointTracker.MAX_TRACKS * 3];
+	private final boolean[] track_found = new boolean[PointTracker.MAX_TRACKS];
+	
+	/**
+	 * The number of markers being tracked. The default of 2 uses the 
+	 * matching in findRealPoints, more than 2 uses the StereoMatcher.
+	 */
+	private int markers = 2;
+	
+	/**
+	 * How the Wii Remote cameras are set up and how many blobs of each 
+	 * report are used. See IrCameraConfig.
+	 */
+	private volatile IrCameraConfig ir_config = IrCameraConfig.DEFAULT;
+	
+	/**
+	 * Space for the answer so getRealCoordinates does not need to make new arrays
 	 */
-	private IrPoint[] left_points  = new IrPoint[4];
-	private IrPoint[] right_points = new IrPoint[4];
+	private final double[] real_point = new double[4];
 	
 	/**
 	 * Creates a DualMoteCamera object using the given length for the board.
@@ -213,40 +276,47 @@ public class DualMoteCamera
 	 */
 	public DualMoteCamera(double boardLength, double angle1, Gestures gesturehandler)
 	{
-		wiimote_spacing = boardLength;
-		
-		wiimote_angle = angle1;
-		wiimote2_angle = 2*PIE - angle1;
-		
-		initializeIrPointArray(left_points);
-		initializeIrPointArray(right_points);
-		
-		if(gesturehandler != null)
-		{
-			gesturesEnabled = true;
-			this.gesturehandler = gesturehandler;
-		}
+		this(new StereoCalibration(boardLength, angle1), gesturehandler);
 	}
 	
 	/**
-	 * Creates a DualMoteCamera object using the default length for the board.
-	 * Units are in millimeters. 
+	 * Creates a DualMoteCamera from a calibration, such as one solved by
+	 * CalibrationSolver and loaded from a file.
+	 * @param calibration Where the Wii Remotes are and which way they point.
 	 */
-	public DualMoteCamera()
+	public DualMoteCamera(StereoCalibration calibration)
 	{
-		this(DFLT_SPACING, 0, null);
+		this(calibration, null);
 	}
 	
 	/**
-	 * Initialize the arrays which will contain the points read in by 
-	 * each camera
-	 * 
-	 * @param array
+	 * Creates a DualMoteCamera from a calibration.
+	 * @param calibration Where the Wii Remotes are and which way they point.
+	 * @param gesturehandler Told about gestures, or null.
+	 */
+	public DualMoteCamera(StereoCalibration calibration, Gestures gesturehandler)
+	{
+		this.calibration = calibration;
+		wiimote_spacing = calibration.getSpacing();
+		
+		left_rays  = calibration.makeRays(LEFT);
+		right_rays = calibration.makeRays(RIGHT);
+		matcher    = new StereoMatcher(left_rays, right_rays);
+		
+		gestures.addRecognizer(swipe_recognizer);
+		gestures.addRecognizer(pinch_recognizer);
+		if(gesturehandler != null)
+			gestures.addGestureListener(new GesturesAdapter(gesturehandler));
+	}
+	
+	/**
+	 * Creates a DualMoteCamera object using the calibration saved in 
+	 * StereoCalibration.DFLT_FILE, or the default length for the board if
+	 * there is not one. Units are in millimeters. 
 	 */
-	private void initializeIrPointArray(IrPoint[] array)
+	public DualMoteCamera()
 	{
-		for(int i = 0; i < array.length; i++)
-			array[i] = new IrPoint();
+		this(StereoCalibration.load(StereoCalibration.DFLT_FILE, new StereoCalibration(DFLT_SPACING, 0)), null);
 	}
 	
 	/**
@@ -266,37 +336,10 @@ public class DualMoteCamera
 	    	if(motes.size() == 2)
 	    	{
 	    		//retrieves the points seen by the Wii Remotes
-		    	left_mote  = motes.get(0);
-		    	right_mote = motes.get(1);
-		    	
-		    	/* Each listener updates the appropriate array of points and
-		    	 * tells the dual camera the points have been updated*/
-				IrCameraListener left_listen = new IrCameraListener() {
-					
-					public void irImageChanged(IrCameraEvent evt)
-					{
-						left_points[0] = evt.getIrPoint(0);
-						left_points[1] = evt.getIrPoint(1);
-						fireDualCameraEvent();
-					}
-				};
+		    	attachMote(LEFT,  motes.get(0));
+		    	attachMote(RIGHT, motes.get(1));
 		    	
-		    	initializeMote(left_mote,  left_listen);
-				
-		    	IrCameraListener right_listen = new IrCameraListener() {
-				
-		    		public void irImageChanged(IrCameraEvent evt)
-					{
-		    			right_points[0] = evt.getIrPoint(0);
-		    			right_points[1] = evt.getIrPoint(1);
-						fireDualCameraEvent();
-					}
-				};
-		    	
-		    	initializeMote(right_mote, right_listen);
-		    	
-		    	left_mote.setPlayerLeds(new boolean[]{true,true,false,false});
-		    	right_mote.setPlayerLeds(new boolean[]{false,false,true,true});
+		    	stats.register();
 		    	return true;
 		    }
 	    	
@@ -309,7 +352,274 @@ public class DualMoteCamera
 	
 	
 	/**
-	 * Enables the IR camera and sets the wiimote to report data.
+	 * Sets up a Wii Remote as the left or right camera. The listener updates
+	 * the appropriate array of points and tells the dual camera the points 
+	 * have been updated. The event is fired once both Wii Remotes have 
+	 * reported. Each mote has 2 LEDs lit on its outside.
+	 * @param side LEFT or RIGHT
+	 * @param mote The Wii Remote.
+	 */
+	private synchronized void attachMote(final int side, final Mote mote)
+	{
+		IrCameraListener listen = new IrCameraListener() {
+			
+			public void irImageChanged(IrCameraEvent evt)
+			{
+				irReport(side, evt);
+			}
+		};
+		
+		MoteLostListener disconnect = new MoteLostListener(side, mote);
+		
+		initializeMote(mote, listen);
+		mote.addMoteDisconnectedListener(disconnect);
+		
+		if(side == LEFT)
+		{
+			left_mote = mote;
+			mote.setPlayerLeds(new boolean[]{true,true,false,false});
+		}
+		else
+		{
+			right_mote = mote;
+			mote.setPlayerLeds(new boolean[]{false,false,true,true});
+		}
+		ir_listeners[side] = listen;
+		lost_listeners[side] = disconnect;
+		attached.set(side, System.nanoTime());
+		lost[side] = false;
+	}
+	
+	/*
+	 * Marks a mote as lost if it is still the one being used for that side.
+	 * A mote that was replaced or disconnected on purpose is ignored.
+	 */
+	private class MoteLostListener implements MoteDisconnectedListener<Mote>
+	{
+		private final int side;
+		private final Mote mote;
+		
+		MoteLostListener(int side, Mote mote)
+		{
+			this.side = side;
+			this.mote = mote;
+		}
+		
+		public void moteDisconnected(MoteDisconnectedEvent<Mote> evt)
+		{
+			synchronized(DualMoteCamera.this)
+			{
+				if(getMote(side) == mote)
+					lost[side] = true;
+			}
+		}
+	}
+	
+	/**
+	 * Puts a new Wii Remote in place of one that was lost, such as after it
+	 * reconnects. The listeners, gestures and tracked markers are kept. The
+	 * old mote is disconnected if it is not already. Passing the same mote
+	 * sets it up again, which restarts a report stream that stalled.
+	 * 
+	 * @param side LEFT or RIGHT
+	 * @param mote The new Wii Remote.
+	 */
+	synchronized void replaceMote(int side, Mote mote)
+	{
+		Mote old = getMote(side);
+		if(old != null)
+		{
+			old.removeIrCameraListener(ir_listeners[side]);
+			old.removeMoteDisconnectedListener(lost_listeners[side]);
+			
+			if(old != mote)
+			{
+				try
+				{
+					old.disconnect();
+				}
+				catch (RuntimeException e)
+				{
+					//It is already gone
+				}
+			}
+		}
+		
+		//A report left over from before the mote was lost should not be paired
+		pairer.reset();
+		attachMote(side, mote);
+	}
+	
+	/**
+	 * Returns one of the Wii Remotes.
+	 * @param side LEFT or RIGHT
+	 * @return the Wii Remote or null if it is not set up.
+	 */
+	public synchronized Mote getMote(int side)
+	{
+		return (side == LEFT) ? left_mote : right_mote;
+	}
+	
+	/**
+	 * Returns whether a Wii Remote has disconnected since it was set up.
+	 * @param side LEFT or RIGHT
+	 * @return true if it disconnected.
+	 */
+	public synchronized boolean isMoteLost(int side)
+	{
+		return lost[side];
+	}
+	
+	/**
+	 * Returns when a Wii Remote last reported.
+	 * @param side LEFT or RIGHT
+	 * @return the time from System.nanoTime(), 0 if it never has.
+	 */
+	public long getLastReport(int side)
+	{
+		return last_arrival.get(side);
+	}
+	
+	/*
+	 * When a Wii Remote was last set up, from System.nanoTime()
+	 */
+	long getSetUpTime(int side)
+	{
+		return attached.get(side);
+	}
+	
+	/**
+	 * Stores a report from one of the Wii Remotes and fires an event if it 
+	 * finishes a stereo frame. Called on the Wii Remote's own thread. 
+	 * <p>
+	 * When the IrCameraConfig uses fewer than 4 blobs, all 4 slots are still
+	 * looked at and the first points found are moved to the front. The 
+	 * camera keeps each blob in the slot it was first seen in, so after a 
+	 * stray reflection a marker can be in slot 2 or 3. With all 4 blobs the 
+	 * points stay in their slots.
+	 * @param mote LEFT or RIGHT
+	 * @param evt The report from the Wii Remote.
+	 */
+	private void irReport(int mote, IrCameraEvent evt)
+	{
+		long arrived = System.nanoTime();
+		long time = clock.nanoTime();
+		IrReportBuffer report = reports[mote];
+		int blobs = ir_config.getBlobs();
+		int written = 0;
+		
+		report.begin();
+		try
+		{
+			for(int i = 0; i < IrReportBuffer.POINTS && written < blobs; i++)
+			{
+				IrPoint p = evt.getIrPoint(i);
+				if(p != null && p.x != IrReportBuffer.NOT_FOUND)
+					report.set(written++, p.x, p.y, p.size);
+				else if(blobs == IrReportBuffer.POINTS)
+					report.set(written++, IrReportBuffer.NOT_FOUND, IrReportBuffer.NOT_FOUND, 0);
+			}
+		}
+		catch (RuntimeException e)
+		{
+			System.out.println("Bad IR report: " + e);
+		}
+		finally
+		{
+			endReport(report, written, time);
+		}
+		reported(mote, arrived, time);
+	}
+	
+	/**
+	 * Passes in a report the same way a Wii Remote does. This is how 
+	 * IrReportReplay plays back recordings, and it can be used to run a 
+	 * DualMoteCamera without Wii Remotes. Only as many points as the 
+	 * IrCameraConfig has blobs are kept, the same way as for a Wii Remote.
+	 * Reports for the same mote must 
+	 * come from one thread at a time and should not be mixed with reports
+	 * from a real Wii Remote. 
+	 * 
+	 * @param mote LEFT or RIGHT
+	 * @param x The X of each point, 1023 if the point was not found.
+	 * @param y The Y of each point.
+	 * @param size The size of each point.
+	 */
+	public void irReport(int mote, int[] x, int[] y, int[] size)
+	{
+		long arrived = System.nanoTime();
+		long time = clock.nanoTime();
+		IrReportBuffer report = reports[mote];
+		int blobs = ir_config.getBlobs();
+		int written = 0;
+		
+		//Points past the end of a short array are missing
+		int given = Math.min(x.length, Math.min(y.length, size.length));
+		
+		report.begin();
+		try
+		{
+			for(int i = 0; i < given && written < blobs; i++)
+			{
+				if(x[i] != IrReportBuffer.NOT_FOUND)
+					report.set(written++, x[i], y[i], size[i]);
+				else if(blobs == IrReportBuffer.POINTS)
+					report.set(written++, IrReportBuffer.NOT_FOUND, IrReportBuffer.NOT_FOUND, 0);
+			}
+		}
+		finally
+		{
+			endReport(report, written, time);
+		}
+		reported(mote, arrived, time);
+	}
+	
+	/*
+	 * Marks the points from written on as missing and finishes the report.
+	 * Called from a finally so a report is always finished, otherwise the
+	 * version stays odd and readers wait on it forever.
+	 */
+	private static void endReport(IrReportBuffer report, int written, long time)
+	{
+		for(int i = written; i < IrReportBuffer.POINTS; i++)
+			report.set(i, IrReportBuffer.NOT_FOUND, IrReportBuffer.NOT_FOUND, 0);
+		report.end(time);
+	}
+	
+	/*
+	 * Records a finished report if recording and fires an event if it 
+	 * finishes a stereo frame. arrived is when the report came in, always 
+	 * from System.nanoTime() since it is only used for the stats, and time
+	 * is when it came in by the clock.
+	 */
+	private void reported(int mote, long arrived, long time)
+	{
+		IrReportRecorder r = recorder;
+		if(r != null)
+		{
+			try
+			{
+				r.record(mote, reports[mote]);
+			}
+			catch (IOException e)
+			{
+				System.out.println("Recording stopped: " + e.getMessage());
+				recorder = null;
+			}
+		}
+		
+		last_arrival.set(mote, arrived);
+		stats.recordReport(mote, arrived);
+		boolean paired = pairer.report(mote, time);
+		stats.record(DualMoteCameraStats.INTAKE, System.nanoTime() - arrived);
+		
+		if(paired)
+			fireDualCameraEvent(time, arrived);
+	}
+	
+	/**
+	 * Enables the IR camera and sets the wiimote to report data, both the way
+	 * the IrCameraConfig says.
 	 * @param m The mote to initialize.
 	 * @param l The listener to add to the mote.
 	 */
@@ -317,10 +627,15 @@ public class DualMoteCamera
 	{
     	//adds the listener to the remote 
 		m.addIrCameraListener(l);
-		m.enableIrCamera(IrCameraMode.EXTENDED, IrCameraSensitivity.INIO);
+		configureMote(m, ir_config);
+	}
+	
+	private static void configureMote(Mote m, IrCameraConfig config)
+	{
+		m.enableIrCamera(config.getMode(), config.getSensitivity());
 		
 		//tells the remote to report data
-		m.setReportMode(ReportModeRequest.DATA_REPORT_0x33);
+		m.setReportMode(config.getReportMode());
 	}
 
 	/**
@@ -329,22 +644,33 @@ public class DualMoteCamera
 	 */
 	public void disconnectMotes()
 	{
-		if(left_mote != null)
-			left_mote.disconnect();
-		if(right_mote != null)
-			right_mote.disconnect();
+		Mote left, right;
+		
+		//Cleared first so the disconnects are not taken as lost motes
+		synchronized(this)
+		{
+			left  = left_mote;
+			right = right_mote;
+			right_mote = left_mote = null;
+			lost[LEFT] = lost[RIGHT] = false;
+		}
 		
-		right_mote = left_mote = null;
+		if(left != null)
+			left.disconnect();
+		if(right != null)
+			right.disconnect();
+		
+		stats.unregister();
 	}
 	
 	
 	/**
 	 * Returns whether there are motes connected.
-	 * @return whether there are motes connected.
+	 * @return whether both motes are set up and neither has disconnected.
 	 */
-	public boolean motesConnected()
+	public synchronized boolean motesConnected()
 	{
-		return (left_mote == null || right_mote == null);
+		return left_mote != null && right_mote != null && !lost[LEFT] && !lost[RIGHT];
 	}
 	
 	/**
@@ -354,9 +680,26 @@ public class DualMoteCamera
 	 */
 	public void addDualCameraListener(DualCameraListener listener) 
 	{
+		stats.addListener(listener);
 		listenerList.add(DualCameraListener.class, listener);
 	}
 	
+	/**
+	 * Adds a DualCameraListener that gets events on its own thread so it does
+	 * not hold up the Wii Remotes. See AsyncDualCameraListener.
+	 * 
+	 * @param listener
+	 * @param policy What to do when the listener falls behind.
+	 * @return The AsyncDualCameraListener that was added. Pass it to 
+	 * removeDualCameraListener to remove the listener.
+	 */
+	public AsyncDualCameraListener addDualCameraListener(DualCameraListener listener, AsyncDualCameraListener.Policy policy)
+	{
+		AsyncDualCameraListener async = new AsyncDualCameraListener(listener, policy);
+		addDualCameraListener(async);
+		return async;
+	}
+	
 	/**
 	 * Removes the DualCameraListener
 	 * 
@@ -365,6 +708,11 @@ public class DualMoteCamera
 	public void removeDualCameraListener(DualCameraListener listener) 
 	{
 		listenerList.remove(DualCameraListener.class, listener);
+		stats.removeListener(listener);
+		
+		//Stop the thread made for an asynchronous listener
+		if(listener instanceof AsyncDualCameraListener)
+			((AsyncDualCameraListener) listener).shutdown();
 	}
 	
 	/**
@@ -372,13 +720,193 @@ public class DualMoteCamera
 	 * 
 	 */
 	protected void fireDualCameraEvent()
+	{
+		fireDualCameraEvent(clock.nanoTime());
+	}
+	
+	/**
+	 * Finds the frame once and gives the same event to every listener.
+	 * 
+	 * @param time When the frame was paired.
+	 */
+	protected void fireDualCameraEvent(long time)
+	{
+		fireDualCameraEvent(time, System.nanoTime());
+	}
+	
+	/*
+	 * Fires the frame and times each stage. arrived is when the report that
+	 * finished the frame came in.
+	 */
+	private void fireDualCameraEvent(long time, long arrived)
 	{
 		DualCameraListener[] listeners = listenerList.getListeners(DualCameraListener.class);
-		DualCameraEvent evt = new DualCameraEvent(this);
+		
+		long start = System.nanoTime();
+		DualCameraFrame frame = nextFrame(time);
+		long found = System.nanoTime();
+		stats.record(DualMoteCameraStats.FRAME, found - start);
+		
+		//Gestures run once on the finished frame, before the listeners see it
+		if(gestures.hasListeners())
+		{
+			gestures.process(frame);
+			long looked = System.nanoTime();
+			stats.record(DualMoteCameraStats.GESTURES, looked - found);
+			found = looked;
+		}
+		DualCameraEvent evt = new DualCameraEvent(this, frame);
+		
+		long before = found;
 		for (DualCameraListener l : listeners) 
 		{
 			l.pointChanged(evt);
+			long after = System.nanoTime();
+			stats.recordListener(l, after - before);
+			before = after;
 		}
+		stats.record(DualMoteCameraStats.LISTENERS, before - found);
+		stats.record(DualMoteCameraStats.TOTAL, before - arrived);
+	}
+	
+	/**
+	 * Reads the raw points, finds the real points and tracks them. 
+	 * This is the only place the tracking variables get changed so they 
+	 * change once per frame no matter how many listeners there are.
+	 * 
+	 * @param time When the frame was paired.
+	 * @return The new frame.
+	 */
+	private synchronized DualCameraFrame nextFrame(long time)
+	{
+		XYZ[] left  = readReport(LEFT);
+		XYZ[] right = readReport(RIGHT);
+		XYZ[] real;
+		
+		tracker.predict(time);
+		
+		if(markers > 2)
+			real = matchRealPoints();
+		else
+			real = findRealPoints(left, right);
+		stats.recordNotFound(points_not_found);
+		
+		//Give the points to the tracked markers so each one gets an ID
+		int[] ids = new int[real.length];
+		for(int i = 0; i < real.length; i++)
+		{
+			track_found[i] = real[i] != null;
+			if(track_found[i])
+			{
+				track_points[i * 3 + XYZ.X] = real[i].x;
+				track_points[i * 3 + XYZ.Y] = real[i].y;
+				track_points[i * 3 + XYZ.Z] = real[i].z;
+			}
+		}
+		tracker.update(track_points, track_found, real.length, ids);
+		
+		latest_frame = new DualCameraFrame(++sequence, time, left, right, real, ids);
+		return latest_frame;
+	}
+	
+	/**
+	 * Copies a whole report from one of the Wii Remotes. 
+	 * @param mote LEFT or RIGHT
+	 * @return The points with the Z value set to 0.
+	 */
+	private XYZ[] readReport(int mote)
+	{
+		XYZ[] points = new XYZ[IrReportBuffer.POINTS];
+		reports[mote].read(report_x[mote], report_y[mote], report_size[mote]);
+		for(int i = 0; i < points.length; i++)
+			points[i] = new XYZ(report_x[mote][i], report_y[mote][i], 0, report_size[mote][i]);
+		return points;
+	}
+	
+	/**
+	 * Returns the tracker that keeps the identity of each marker so it can be
+	 * tuned. Only change it from a DualCameraListener or before the motes are
+	 * set up since it is used while making each frame.
+	 * @return The PointTracker used by this DualMoteCamera.
+	 */
+	public PointTracker getTracker()
+	{
+		return tracker;
+	}
+	
+	/**
+	 * Returns the latency stats for each stage of making a frame. They are 
+	 * registered over JMX when the motes are set up, call registerStats to
+	 * see them when using IrReportReplay or SimulatedRig.
+	 * @return The DualMoteCameraStats for this DualMoteCamera.
+	 */
+	public DualMoteCameraStats getStats()
+	{
+		return stats;
+	}
+	
+	/**
+	 * Registers the stats over JMX without setting up the motes.
+	 */
+	public void registerStats()
+	{
+		stats.register();
+	}
+	
+	/**
+	 * Returns the rays for one of the Wii Remote cameras.
+	 * @param mote LEFT or RIGHT
+	 * @return The RayTable for the camera.
+	 */
+	public RayTable getRays(int mote)
+	{
+		return (mote == LEFT) ? left_rays : right_rays;
+	}
+	
+	/**
+	 * Returns the gesture engine so recognizers and listeners can be added.
+	 * It already has the swipe and pinch recognizers.
+	 * @return The GestureEngine run on each frame.
+	 */
+	public GestureEngine getGestureEngine()
+	{
+		return gestures;
+	}
+	
+	/**
+	 * Returns the built in swipe recognizer so it can be tuned.
+	 * @return The SwipeRecognizer.
+	 */
+	public SwipeRecognizer getSwipeRecognizer()
+	{
+		return swipe_recognizer;
+	}
+	
+	/**
+	 * Returns the built in pinch recognizer so it can be tuned.
+	 * @return The PinchRecognizer.
+	 */
+	public PinchRecognizer getPinchRecognizer()
+	{
+		return pinch_recognizer;
+	}
+	
+	/**
+	 * Returns the calibration the rays were built from.
+	 * @return The calibration.
+	 */
+	public StereoCalibration getCalibration()
+	{
+		return calibration;
+	}
+	
+	/**
+	 * Returns the latest frame fired or null if no frame has been fired.
+	 * @return The latest frame.
+	 */
+	public DualCameraFrame getLatestFrame()
+	{
+		return latest_frame;
 	}
 	
 	/**
@@ -390,7 +918,7 @@ public class DualMoteCamera
 	public XYZ getLeftMotePoint(int pointIndex)
 	{	
 		if(pointIndex >= 0 && pointIndex < 4 && left_mote != null)
-			return new XYZ(left_points[pointIndex].x , left_points[pointIndex].y, 0, left_points[pointIndex].size);
+			return getMotePoint(LEFT, pointIndex);
 		return null;
 	}
 	
@@ -403,12 +931,37 @@ public class DualMoteCamera
 	public XYZ getRightMotePoint(int pointIndex)
 	{	
 		if(pointIndex >= 0 && pointIndex < 4 && right_mote != null)
-			return new XYZ(right_points[pointIndex].x , right_points[pointIndex].y,0, right_points[pointIndex].size);
+			return getMotePoint(RIGHT, pointIndex);
 		return null;
 	}
 	
+	/*
+	 * Reads one point from the latest report of a Wii Remote
+	 */
+	private XYZ getMotePoint(int mote, int pointIndex)
+	{
+		long point = reports[mote].getPoint(pointIndex);
+		return new XYZ(IrReportBuffer.unpackX(point), IrReportBuffer.unpackY(point), 0, IrReportBuffer.unpackSize(point));
+	}
+	
 	/**
-	 * Returns the actual points in space from the points the camera read. 
+	 * Returns the actual points in space from the points the camera read for
+	 * the latest frame. The points are found once per frame when the frame is 
+	 * fired, see findRealPoints for how. Points that were not found are null
+	 * and both are null until the first frame has been fired. 
+	 * 
+	 * @return an array with a point for each marker. The 1rst point read by the left camera is in index 0
+	 */
+	public XYZ[] getRealPoints()
+	{
+		DualCameraFrame frame = latest_frame;
+		if(frame == null)
+			return new XYZ[markers];
+		return frame.getRealPoints();
+	}
+	
+	/**
+	 * Finds the actual points in space from the points the camera read. 
 	 * It uses triangulation and figures out which points match up with each other. 
 	 * This method works in all situations except for when the points are near the z axis
 	 *  To clarify if you draw a line between the two points and that line points into a circle 
@@ -420,9 +973,11 @@ public class DualMoteCamera
 	 *  Use XYZPointWindow to get a feel for when it works
 	 *  and when it doesn't.   
 	 * 
+	 * @param left_raw The raw points from the left camera
+	 * @param right_raw The raw points from the right camera
 	 * @return returnthis is an array of size 2 with the 1rst point read by the left camera is in index 0
 	 */
-	public synchronized XYZ[] getRealPoints()
+	private XYZ[] findRealPoints(XYZ[] left_raw, XYZ[] right_raw)
 	{
 		/**
 		 * This is the array to be returned.
@@ -436,10 +991,10 @@ public class DualMoteCamera
 		 * assigns the points sequentially so they can be tested
 		 * They could be the default of x: 1023 y: 1023
 		 */
-		XYZ left   = getLeftMotePoint(0);
-		XYZ right  = getRightMotePoint(0);
-		XYZ left2  = getLeftMotePoint(1);
-		XYZ right2 = getRightMotePoint(1);
+		XYZ left   = left_raw[0];
+		XYZ right  = right_raw[0];
+		XYZ left2  = left_raw[1];
+		XYZ right2 = right_raw[1];
 		
 		//reset points not found counter
 		points_not_found = 0;
@@ -538,16 +1093,25 @@ public class DualMoteCamera
 			//  Camera1 Point1 Point2
 			//  Camera2 Point3 Point4
 			//  Point1 matches with either Point3 or Point4
-			XYZ possibility1 = getRealCoordinates(left, right);
-			XYZ possibility2 = getRealCoordinates(left, right2);		
+			//The matcher checks each pair against the epipolar line from the board's geometry first, so only pairs 
+			//that could be the same point get triangulated. See StereoMatcher.
+			matcher.match(report_x[LEFT], report_y[LEFT], report_x[RIGHT], report_y[RIGHT], 2);
 			
+			// When the points are in the same epipolar plane (about the same Y plane for a level board) both 
+			// possibilities fit the geometry and the error can not tell them apart
+			//If markers are being tracked pick the possibility closest to where the tracker predicted them
+			if(matcher.isAmbiguous() && tracker.isTracking())
+			{
+				double straight = predictionDistance(0, 0) + predictionDistance(1, 1);
+				double crossed  = predictionDistance(0, 1) + predictionDistance(1, 0);
+				lastright = (crossed < straight) ? 1 : 0;
+				returnthis[0] = pairPoint(0, lastright);
+				returnthis[1] = pairPoint(1, 1 - lastright);
+				countUnpaired(returnthis);
+			}
 			
-			// When the points are in the same Y plane (Horizontal)
-			// Note: adding this if statement effects the error. Hypothesis is it makes the cameras become more out of synch
-			double y1 = left.getY();
-			double y2 = left2.getY();
-			//System.out.println("Y1: "+y1 + "  Y2: " +y2);
-			if( Math.abs(y1 - y2) < 30    )
+			//Without tracking fall back to the order of the points and the last points
+			else if(matcher.isAmbiguous())
 			{
 				int choseright = 0;
 				double lx1 = left.getX();
@@ -561,13 +1125,13 @@ public class DualMoteCamera
 				{
 					if(rx1 < rx2)
 					{
-						returnthis[0] = getRealCoordinates(left, right);
-						returnthis[1] = getRealCoordinates(left2, right2);
+						returnthis[0] = pairPoint(0, 0);
+						returnthis[1] = pairPoint(1, 1);
 					}
 					else
 					{
-						returnthis[0] = getRealCoordinates(left, right2);
-						returnthis[1] = getRealCoordinates(left2, right);
+						returnthis[0] = pairPoint(0, 1);
+						returnthis[1] = pairPoint(1, 0);
 						choseright = 1;
 					}
 				}
@@ -575,14 +1139,14 @@ public class DualMoteCamera
 				{
 					if(rx1 < rx2)
 					{
-						returnthis[1] = getRealCoordinates(left2, right);
-						returnthis[0] = getRealCoordinates(left, right2);
+						returnthis[1] = pairPoint(1, 0);
+						returnthis[0] = pairPoint(0, 1);
 						choseright = 1;
 					}
 					else
 					{
-						returnthis[1] = getRealCoordinates(left2, right2);
-						returnthis[0] = getRealCoordinates(left, right);
+						returnthis[1] = pairPoint(1, 1);
+						returnthis[0] = pairPoint(0, 0);
 						choseright = 0;
 					}
 				}
@@ -595,9 +1159,8 @@ public class DualMoteCamera
 				// continually making it wrong
 				//Warning: Basing current points off previous points has inherent problems.
 				lastright = choseright;
-				lastxdis = Math.abs(returnthis[0].getX() - returnthis[1].getX());
 				boolean flipped = false;
-				if(!couldbewrong && latestleftpoint != null && latestleftpoint.getZ() != 0)
+				if(!couldbewrong && latestleftpoint != null && latestleftpoint.getZ() != 0 && returnthis[0] != null)
 				{
 					flipped = true;
 					if(Math.abs(latestleftpoint.getX() - returnthis[0].getX()) > 25 ||
@@ -608,18 +1171,18 @@ public class DualMoteCamera
 						if(choseright == 0)
 						{
 							lastright = 1;
-							returnthis[0] = getRealCoordinates(left, right2);
-							returnthis[1] = getRealCoordinates(left2, right);
+							returnthis[0] = pairPoint(0, 1);
+							returnthis[1] = pairPoint(1, 0);
 						}
 						else
 						{
 							lastright = 0;
-							returnthis[0] = getRealCoordinates(left, right);
-							returnthis[1] = getRealCoordinates(left2, right2);
+							returnthis[0] = pairPoint(0, 0);
+							returnthis[1] = pairPoint(1, 1);
 						}
 					}	
 				}
-				if(!couldbewrong && latestrightpoint != null && latestrightpoint.getZ() != 0 && !flipped)
+				if(!couldbewrong && latestrightpoint != null && latestrightpoint.getZ() != 0 && !flipped && returnthis[1] != null)
 				{
 					flipped = true;
 					if(Math.abs(latestrightpoint.getX() - returnthis[1].getX()) > 25 ||
@@ -629,51 +1192,138 @@ public class DualMoteCamera
 						if(choseright == 0)
 						{
 							lastright = 1;
-							returnthis[0] = getRealCoordinates(left, right2);
-							returnthis[1] = getRealCoordinates(left2, right);
+							returnthis[0] = pairPoint(0, 1);
+							returnthis[1] = pairPoint(1, 0);
 						}
 						else
 						{
 							lastright = 0;
-							returnthis[0] = getRealCoordinates(left, right);
-							returnthis[1] = getRealCoordinates(left2, right2);
+							returnthis[0] = pairPoint(0, 0);
+							returnthis[1] = pairPoint(1, 1);
 						}
 					}
 					
 				}
+				countUnpaired(returnthis);
 				//return returnthis;
 			}
 			
-			//This is for when it will always be correct and you can compare the errors.
-			//If the points are not in almost the same Y axis then the errors will be large for the wrong point
-			//We tested this using a real setup involving threads. 
-			else if(possibility1.getError() < possibility2.getError())
-			{
-				couldbewrong = false;
-				returnthis[0] = possibility1;
-				returnthis[1] = getRealCoordinates(left2, right2);
-				lastleft  = 0;
-				lastright = 0;
-				lastxdis = Math.abs(returnthis[0].getX() - returnthis[1].getX());
-				//return returnthis;
-			}
+			//This is for when it will always be correct. Only one of the possibilities fits the geometry.
 			else
 			{
 				couldbewrong = false;
-				returnthis[0] = possibility2;
-				returnthis[1] = getRealCoordinates(left2, right);
+				returnthis[0] = matchedPoint(0);
+				returnthis[1] = matchedPoint(1);
 				lastleft  = 0;
-				lastright = 1;
-				lastxdis = Math.abs(returnthis[0].getX() - returnthis[1].getX());
+				lastright = (matcher.getMatch(0) == 1 || matcher.getMatch(1) == 0) ? 1 : 0;
+				
+				//A point that fits with neither point from the other camera is counted as missing
+				if(returnthis[0] == null)
+					points_not_found += 2;
+				if(returnthis[1] == null)
+					points_not_found += 2;
+				if(points_not_found == 0)
+					lastxdis = Math.abs(returnthis[0].getX() - returnthis[1].getX());
 				//return returnthis;
 			}	
 		}
 		
+		updateTracking(returnthis);
+		return returnthis;
+	}
+	
+	/**
+	 * Finds the actual points in space when more than 2 markers are tracked.
+	 * Each left point is matched to the right point that gives the smallest
+	 * total error over all the points. See StereoMatcher.
+	 * 
+	 * @return an array with a point for each marker. The point in index i is 
+	 * the one read by the left camera in slot i. 
+	 */
+	private XYZ[] matchRealPoints()
+	{
+		XYZ[] returnthis = new XYZ[markers];
+		
+		matcher.match(report_x[LEFT], report_y[LEFT], report_x[RIGHT], report_y[RIGHT], markers);
+		for(int i = 0; i < markers; i++)
+			returnthis[i] = matchedPoint(i);
+		
+		//Count the first 2 markers as missing when they were not matched, the 
+		//same way findRealPoints counts a point that fits nothing. Their raw 
+		//slots can all be found while the matcher paired them elsewhere.
+		points_not_found = 0;
+		for(int i = 0; i < 2; i++)
+			if(returnthis[i] == null)
+				points_not_found += 2;
+		couldbewrong = points_not_found != 0;
+		
+		updateTracking(returnthis);
+		return returnthis;
+	}
+	
+	/*
+	 * Makes the point for a left and right pair triangulated by the last 
+	 * call to the matcher, or null if the pair did not fit.
+	 */
+	private XYZ pairPoint(int left, int right)
+	{
+		if(!matcher.getPoint(left, right, real_point))
+			return null;
+		XYZ point = new XYZ(real_point[XYZ.X], real_point[XYZ.Y], real_point[XYZ.Z], real_point[Find3DPoint.GAP]);
+		point.setError(real_point[Find3DPoint.GAP]);
+		return point;
+	}
+	
+	/*
+	 * Counts the first two points as missing when the pairing picked for an
+	 * ambiguous match did not fit, the same way the unambiguous match counts
+	 * a point that fits nothing, and keeps the distance between them.
+	 */
+	private void countUnpaired(XYZ[] returnthis)
+	{
+		if(returnthis[0] == null)
+			points_not_found += 2;
+		if(returnthis[1] == null)
+			points_not_found += 2;
+		if(returnthis[0] != null && returnthis[1] != null)
+			lastxdis = Math.abs(returnthis[0].getX() - returnthis[1].getX());
+	}
+	
+	/*
+	 * How far the point for a left and right pair is from the closest 
+	 * marker the tracker predicted.
+	 */
+	private double predictionDistance(int left, int right)
+	{
+		if(!matcher.getPoint(left, right, real_point))
+			return Double.POSITIVE_INFINITY;
+		return tracker.distanceToPrediction(real_point[XYZ.X], real_point[XYZ.Y], real_point[XYZ.Z]);
+	}
+	
+	/*
+	 * Makes the point the matcher picked for a left point, or null if the 
+	 * left point was not matched.
+	 */
+	private XYZ matchedPoint(int left)
+	{
+		int right = matcher.getMatch(left);
+		if(right == StereoMatcher.NO_MATCH)
+			return null;
+		return pairPoint(left, right);
+	}
+	
+	/**
+	 * Moves the latest points to the last points and updates the distance 
+	 * between the first two points.
+	 * @param returnthis The points found for this frame.
+	 */
+	private void updateTracking(XYZ[] returnthis)
+	{
 		last_left_point  = latestleftpoint;
 		last_right_point = latestrightpoint;
 		latestleftpoint  = returnthis[0];//latest_left_point;
 		latestrightpoint = returnthis[1];//latest_right_point;
-		if(points_not_found == 0)
+		if(points_not_found == 0 && latestleftpoint != null && latestrightpoint != null)
 		{
 			last_distance_between_points = latest_distance_between_points;
 			latest_distance_between_points = 	Math.sqrt(	Math.pow( latestleftpoint.getX()-latestrightpoint.getX()  , 2)    +
@@ -682,259 +1332,211 @@ public class DualMoteCamera
 		}
 		//	latest_left_point  = returnthis[0];
 		//	latest_right_point = returnthis[1];
-		
-		if(gesturesEnabled)
-			gestureLook();
-			// Using separate class to detect gestures
-			//gListener.look(latest_distance_between_points, (4 - points_not_found));
-		
-		return returnthis;
 	}
 	
 	/**
 	 * Uses the input from both wiimotes to find a point in 3D space.
 	 * This method triangulates the point and therefore does not account
-	 * for lens distortion from the wiimote cameras. 
+	 * for lens distortion from the wiimote cameras. The rays for each pixel 
+	 * come from the RayTables built in the constructor.
 	 * 
 	 * @author Jason Creighton
 	 * @param left The coordinates from the left wiimote. 
 	 * @param right The coordinates from the right wiimote.
 	 * @return The 3D coordinates of the point seen by both cameras.
 	 */
-	private XYZ getRealCoordinates(XYZ left, XYZ right)
-	{
-		// Step1 Translate the points passed in to be at 0,0 in relation to the middle of the camera viewplane
-		double xleftshift  = left.getX()  - centerofprojectionx;
-		double yleftshift  = left.getY()  - centerofprojectiony;
-		double xrightshift = right.getX() - centerofprojectionx;
-		double yrightshift = right.getY() - centerofprojectiony;
-		
-		// Step2 Figure out the angle from that middle point in the view plane to the point passed in
-		double xleftangle = (xleftshift/512)*(hfov/2);
-		double yleftangle = (yleftshift/384)*(vfov/2);
-		double xrightangle = (xrightshift/512)*(hfov/2);
-		double yrightangle = (yrightshift/384)*(vfov/2); 
-		
-		// Step3 Normalize those points.
-		double realxleftnorm  = Math.tan( xleftangle );
-		double realyleftnorm  = Math.tan( yleftangle );
-		double realxrightnorm = Math.tan( xrightangle ) + wiimote_spacing; 
-		double realyrightnorm = Math.tan( yrightangle );
-		double realzleftnorm  = 1;
-		double realzrightnorm = 1;
-
-		
-		// Rotate the first point
-		double rFirstX = (realxleftnorm * Math.cos(wiimote_angle) ) + ( 1 * Math.sin( wiimote_angle) );
-		double rFirstY = realyleftnorm;
-		double rFirstZ = ( (realxleftnorm) * Math.sin( wiimote_angle ) * -1.0) + ( 1 * Math.cos( wiimote_angle) );
-		
-		
-		// Rotate the second point
-		double rSecondX = ( (realxrightnorm - wiimote_spacing) * Math.cos(wiimote2_angle) ) + ( 1 * Math.sin(wiimote2_angle) );
-		double rSecondY = realyrightnorm;
-		double rSecondZ = ( ((realxrightnorm - wiimote_spacing) * Math.sin(wiimote2_angle) * -1.0) ) + ( 1 * Math.cos(wiimote2_angle) );
-
-		// Move the second point back the distance of the wiimote_spacing
-		rSecondX = rSecondX + wiimote_spacing;
-		
-		// Step4 Using the 4 points call the ray collision method
-		XYZ lefto  = new XYZ(0,0,0);
-		XYZ leftd  = new XYZ(rFirstX, rFirstY, rFirstZ);
-		XYZ righto = new XYZ(wiimote_spacing, 0, 0);
-		XYZ rightd = new XYZ(rSecondX, rSecondY, rSecondZ);
-		
-		XYZ realPoint = Find3DPoint.raysIntersectionPoint(lefto, leftd, righto, rightd );
-		// Step5 Return default points for if the XYZ gets passed back as null. 
+	XYZ getRealCoordinates(XYZ left, XYZ right)
+	{
+		// Step5 Return default points for if there is no point. 
 		// This happens when the Wii Remotes are not passing in points or the rays are parallel
-		if(realPoint == null)
+		if(!triangulate(left.getX(), left.getY(), right.getX(), right.getY(), real_point))
 		{
 			System.out.println("raysIntersectionPoint returned null");
 			return new XYZ();
 		}
 		
+		XYZ realPoint = new XYZ(real_point[XYZ.X], real_point[XYZ.Y], real_point[XYZ.Z], real_point[Find3DPoint.GAP]);
+		realPoint.setError(real_point[Find3DPoint.GAP]);
 		return realPoint;
 	}
 	
+	/**
+	 * Does the work of getRealCoordinates without making any objects. The 
+	 * point and the error are put in out the same way Find3DPoint does.
+	 * 
+	 * @param lx The X from the left wiimote. 
+	 * @param ly The Y from the left wiimote.
+	 * @param rx The X from the right wiimote.
+	 * @param ry The Y from the right wiimote.
+	 * @param out An array of at least 4 to put the point in.
+	 * @return false if there is no point, such as when the rays are parallel.
+	 */
+	boolean triangulate(double lx, double ly, double rx, double ry, double[] out)
+	{
+		return matcher.triangulate(lx, ly, rx, ry, out);
+	}
+	
 
-	//Gesture variables 
-	private XYZ prevLeftPoint = null;
-	private XYZ prevRightPoint = null;
-	private int swipe[] = new int[]{0,0,0};
-	private XYZ swipeOrigin = new XYZ();
-	private XYZ current = null;
+	/* Set Methods */
 	
-	private int swipeDetectThreshold_x = 8;
-	private int swipeDetectThreshold_y = 8;
-	private int swipeDetectThreshold_z = 8;
-	private int swipeSensitivity = 2;
-	private int pinchThreshold = 70;
+	/**
+	 * Sets where the time of each report comes from. The default is 
+	 * FrameClock.SYSTEM. IrReportReplay sets a ManualClock so replays get
+	 * the recorded times.
+	 * @param clock The clock to use, null for the default.
+	 */
+	public void setClock(FrameClock clock)
+	{
+		this.clock = (clock == null) ? FrameClock.SYSTEM : clock;
+	}
+	
+	public FrameClock getClock()
+	{
+		return clock;
+	}
 	
 	/**
-	 * gesture look will look for different pre-defined gestures 
-	 * such as the "pinch" and "swipe" gesture.
+	 * Starts saving every report to a recorder, or stops if null. The 
+	 * recorder is not closed when recording stops. See IrReportRecorder.
+	 * @param recorder The recorder to save reports to.
 	 */
-	private synchronized void gestureLook()
+	public void setRecorder(IrReportRecorder recorder)
 	{
-		/*
-		 * Look for un pinch
-		 * pinched gets set as true above if pinch was just found but more than two points should have been found 
-		 */
-		if(pinched == true)
-		{
-			if(points_not_found == 0)
-			{
-				pinched = false;
-				gesturehandler.unPinch(latestleftpoint); //This is the location of the pinch
-			}
-		}
-		/*
-		 * Look for pinch
-		 */
-		if(pinched != true)
-		{	
-			if(points_not_found == 2)
-			{
-				if(last_distance_between_points < pinchThreshold)
-				{			
-					pinched = true;
-					if(latestleftpoint == null)
-					{
-						gesturehandler.pinch(latestrightpoint);
-					}
-					else
-					{
-						gesturehandler.pinch(latestleftpoint);
-					}
-				}
-
-			}
-		}
-		
-		//Holds the difference between the current point and the prev point
-		XYZ difference = null;
-		
-		//Find the point to used for the swipe 
-		//either the average point or whichever is in view
-		if(prevLeftPoint != null && latestleftpoint != null)
-		{
-			XYZ prev = prevLeftPoint.average(prevRightPoint);
-			current = latestleftpoint.average(latestrightpoint);
-			difference = prev.subtract(current);
-		}
-		else if(prevRightPoint != null && latestrightpoint != null)
-		{
-			current = latestrightpoint;
-			difference = prevRightPoint.subtract(latestrightpoint);
-		}
+		this.recorder = recorder;
+	}
+	
+	/**
+	 * Sets how many markers to track, from 2 to 4. With more than 2 the points
+	 * are matched by StereoMatcher and getRealPoints returns a point for each
+	 * marker. Gestures only use the first 2.
+	 * @param markers The number of markers.
+	 */
+	public synchronized void setMarkers(int markers)
+	{
+		if(markers >= 2 && markers <= StereoMatcher.POINTS && markers <= ir_config.getBlobs())
+			this.markers = markers;
+	}
+	
+	public synchronized int getMarkers()
+	{
+		return markers;
+	}
+	
+	/**
+	 * Sets how the Wii Remote cameras are set up and how many blobs of each 
+	 * report are used. Motes that are already connected are set up again 
+	 * straight away. Ignored if it uses fewer blobs than there are markers.
+	 * @param config The config, such as IrCameraConfig.TWO_MARKERS.
+	 */
+	public synchronized void setIrCameraConfig(IrCameraConfig config)
+	{
+		if(config == null || config.getBlobs() < markers)
+			return;
 		
-		//Check that a point can be seen
-		if(difference != null)
-		{	
-			//Look for a swipe in each dimension
-			if(isSwiped(difference.x, XYZ.X, swipeDetectThreshold_x))	
-				if(difference.x > 0)
-					gesturehandler.swipeInX(swipeOrigin, 1);
-				else
-					gesturehandler.swipeInX(swipeOrigin, -1);
-			
-			if(isSwiped(difference.y, XYZ.Y, swipeDetectThreshold_y))	       
-				if(difference.y > 0)
-					gesturehandler.swipeInY(swipeOrigin, 1);
-				else
-					gesturehandler.swipeInY(swipeOrigin, -1);
-			
-			if(isSwiped(difference.z, XYZ.Z, swipeDetectThreshold_z))	
-				if(difference.z > 0)
-					gesturehandler.swipeInZ(swipeOrigin, 1);
-				else
-					gesturehandler.swipeInZ(swipeOrigin, -1);
-		}
-
-		prevLeftPoint = latestleftpoint;
-		prevRightPoint = latestrightpoint;
+		ir_config = config;
+		if(left_mote != null)
+			configureMote(left_mote, config);
+		if(right_mote != null)
+			configureMote(right_mote, config);
 	}
 	
-	/*Algorithm to check for a swipe in a given axis*/ 
-	private boolean isSwiped(double difference, int d, int threshold)
+	public IrCameraConfig getIrCameraConfig()
 	{
-		if(Math.abs(difference) > swipeSensitivity)
-		{
-			if(swipe[d] == 0)
-			{
-				swipeOrigin = current;
-			}
-			
-			if(Math.abs(swipe[d]) > threshold)
-			{
-				swipe = new int[]{0,0,0};
-				return true;
-			}
-			else if(difference > 0)
-			{
-				if(swipe[d] < 0)
-					swipe[d] = 0;
-				swipe[d]++;
-			}
-			else if(difference < 0)
-			{
-				if(swipe[d] > 0)
-					swipe[d] = 0;
-				swipe[d]--;
-			}
-		}
-		return false;
+		return ir_config;
 	}
 	
-	/* Set Methods */
+	/**
+	 * Sets how far in pixels a point seen by the right Wii Remote can be from
+	 * the epipolar line of a point seen by the left Wii Remote and still be 
+	 * matched with it. Default is 20 pixels. See StereoMatcher.
+	 * @param pixels The tolerance in pixels, must be positive.
+	 */
+	public synchronized void setEpipolarTolerance(double pixels)
+	{
+		matcher.setTolerance(pixels);
+	}
+	
+	/**
+	 * Sets how far apart in time the left and right reports can be and still
+	 * be paired into one frame. Reports older than this are thrown away. 
+	 * StereoFramePairer.LATEST_OF_EACH pairs the latest report of each 
+	 * Wii Remote, which is the default.
+	 * @param millis The pairing window in milliseconds.
+	 */
+	public void setPairingWindow(double millis)
+	{
+		if(millis >= 0)
+			pairer.setWindow((long)(millis * 1000000));
+	}
+	
+	/**
+	 * Sets how long one Wii Remote can stop reporting before frames are made
+	 * from the other one alone, using the last report of the silent one. 
+	 * The default is 100ms.
+	 * @param millis The silence limit in milliseconds.
+	 */
+	public void setSilenceLimit(double millis)
+	{
+		if(millis > 0)
+			pairer.setSilenceLimit((long)(millis * 1000000));
+	}
+	
+	/**
+	 * Returns the StereoFramePairer so the frame and stale report counts 
+	 * can be checked.
+	 * @return the StereoFramePairer used by this DualMoteCamera.
+	 */
+	public StereoFramePairer getPairer()
+	{
+		return pairer;
+	}
 	
 	/**
-	 * Sets the duration of movement in the X direction to trigger a swipe. If 
-	 * the swipeSensitivity is set correctly this should not be effected by the
-	 * units used. Default value is 8 and must be positive if changed. 
-	 * @param x_thresh The duration of movement in the X direction to trigger a swipe.
+	 * Sets how far the point must move in the X direction to trigger a 
+	 * swipe. Default value is 60 mm. If different units are used the 
+	 * threshold must be set for swipes to work correctly. Must be positive.
+	 * @param x_thresh The distance of movement in the X direction to trigger a swipe.
 	 */
 	public void setXthreshold(int x_thresh)
 	{
-		if(x_thresh > 0)
-			swipeDetectThreshold_x = x_thresh;
+		swipe_recognizer.setDistance(XYZ.X, x_thresh);
 	}
 
 	/**
-	 * Sets the duration of movement in the Y direction to trigger a swipe. If 
-	 * the swipeSensitivity is set correctly this should not be effected by the
-	 * units used. Default value is 8 and must be positive if changed.  
-	 * @param y_thresh The duration of movement in the Y direction to trigger a swipe.
+	 * Sets how far the point must move in the Y direction to trigger a 
+	 * swipe. Default value is 60 mm. If different units are used the 
+	 * threshold must be set for swipes to work correctly. Must be positive.
+	 * @param y_thresh The distance of movement in the Y direction to trigger a swipe.
 	 */
 	public void setYthreshold(int y_thresh)
 	{
-		if(y_thresh > 0)
-			swipeDetectThreshold_y = y_thresh;
+		swipe_recognizer.setDistance(XYZ.Y, y_thresh);
 	}
 	
 	/**
-	 * Sets the duration of movement in the Z direction to trigger a swipe. If 
-	 * the swipeSensitivity is set correctly this should not be effected by the
-	 * units used. Default value is 8 and must be positive if changed.
-	 * @param z_thresh The duration of movement in the Z direction to trigger a swipe.
+	 * Sets how far the point must move in the Z direction to trigger a 
+	 * swipe. Default value is 60 mm. If different units are used the 
+	 * threshold must be set for swipes to work correctly. Must be positive.
+	 * @param z_thresh The distance of movement in the Z direction to trigger a swipe.
 	 */
 	public void setZthreshold(int z_thresh)
 	{
-		if(z_thresh > 0)
-			swipeDetectThreshold_z = z_thresh;
+		swipe_recognizer.setDistance(XYZ.Z, z_thresh);
 	}
 	
 	/**
 	 * Sets the sensitivity of the swipe gestures i.e. the speed the point must
 	 * be moving to activate a swipe. A higher value means the point must move 
-	 * faster. Default value is 2 mm. If different units are used the sensitivity 
-	 * must be set for swipes to work correctly. Sensitivity must be positive.
+	 * faster. Default value is 300 mm per second, measured from the frame 
+	 * times so it does not change with the frame rate. If different units are
+	 * used the sensitivity must be set for swipes to work correctly. 
+	 * Sensitivity must be positive.
 	 * 
-	 * @param swipeSensitivity How fast the point/points must be moved to trigger a swipe. 
+	 * @param swipeSensitivity How fast the point/points must be moved to trigger a swipe, per second. 
 	 */
 	public void setSwipeSensitivity(int swipeSensitivity)
 	{
-		this.swipeSensitivity = swipeSensitivity;
+		swipe_recognizer.setSpeed(swipeSensitivity);
 	}
 
 	/**
@@ -946,8 +1548,7 @@ public class DualMoteCamera
 	 */
 	public void setPinchThreshold(int pinchThreshold)
 	{
-		if(pinchThreshold > 0)
-			this.pinchThreshold = pinchThreshold;
+		pinch_recognizer.setThreshold(pinchThreshold);
 	}
 
 	/**
@@ -0,0 +1,385 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    DualMoteCameraStats.java
+*/
+package dualCamera;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * DualMoteCameraStats keeps track of how long each stage of making a frame
+ * takes so it is easy to see where lag comes from. The stages are:
+ * <ul>
+ * <li>INTAKE - storing a report from a Wii Remote and pairing it, from when
+ * the report comes in until it is paired or left to wait.</li>
+ * <li>FRAME - reading the reports, finding the real points and tracking
+ * them. This is the work getRealPoints returns the answer of.</li>
+ * <li>GESTURES - the GestureEngine running its recognizers on the frame, 
+ * only while it has a listener.</li>
+ * <li>LISTENERS - every listener's pointChanged for one frame. Each 
+ * listener is also timed on its own. For an AsyncDualCameraListener that 
+ * is only the time to queue the event, and the listener it wraps is timed
+ * on its own thread under its own name.</li>
+ * <li>TOTAL - from the report that finished the frame coming in until the
+ * last listener returns.</li>
+ * </ul>
+ * It also keeps the report rate of each Wii Remote, how many frames had 
+ * each number of points not found and how many events each 
+ * AsyncDualCameraListener has dropped and has queued.
+ * <p>
+ * DualMoteCamera registers the stats as an MXBean named 
+ * dualCamera:type=DualMoteCamera,name=camera<i>N</i> when the motes are 
+ * set up so they can be watched with jconsole or any JMX client. Recording 
+ * does not lock or make any objects.
+ * 
+ * @author Amy Ciavolino
+ */
+public class DualMoteCameraStats implements DualMoteCameraStatsMXBean
+{
+	/**
+	 * The stages timed
+	 */
+	public static final int INTAKE    = 0;
+	public static final int FRAME     = 1;
+	public static final int GESTURES  = 2;
+	public static final int LISTENERS = 3;
+	public static final int TOTAL     = 4;
+	private static final int STAGES   = 5;
+	
+	/**
+	 * Weight of each new report in the report rate. Smaller is smoother.
+	 */
+	private static final double RATE_WEIGHT = 0.05;
+	
+	/**
+	 * The most points_not_found can be
+	 */
+	private static final int MAX_NOT_FOUND = 4;
+	
+	/**
+	 * Numbers the names of the registered stats
+	 */
+	private static final AtomicInteger cameras = new AtomicInteger();
+	
+	private final LatencyHistogram[] stages = new LatencyHistogram[STAGES];
+	private final ConcurrentHashMap<DualCameraListener, LatencyHistogram> listeners = new ConcurrentHashMap<DualCameraListener, LatencyHistogram>();
+	private final ConcurrentHashMap<DualCameraListener, AsyncDualCameraListener> async = new ConcurrentHashMap<DualCameraListener, AsyncDualCameraListener>();
+	private final AtomicLongArray not_found = new AtomicLongArray(MAX_NOT_FOUND + 1);
+	
+	/**
+	 * Per mote report counts, time of the last report and the smoothed time
+	 * between reports stored as the bits of a double. Each mote is only 
+	 * written by its own thread.
+	 */
+	private final AtomicLongArray report_count = new AtomicLongArray(2);
+	private final AtomicLongArray last_report = new AtomicLongArray(2);
+	private final AtomicLongArray report_interval = new AtomicLongArray(2);
+	
+	private volatile boolean enabled = true;
+	private ObjectName name = null;
+	
+	public DualMoteCameraStats()
+	{
+		for(int i = 0; i < STAGES; i++)
+			stages[i] = new LatencyHistogram();
+	}
+	
+	/**
+	 * Counts the time a stage took.
+	 * @param stage INTAKE, FRAME, GESTURES, LISTENERS or TOTAL
+	 * @param nanos How long it took.
+	 */
+	public void record(int stage, long nanos)
+	{
+		if(enabled)
+			stages[stage].record(nanos);
+	}
+	
+	/**
+	 * Counts the time one listener took. Listeners that are not being timed
+	 * are ignored.
+	 * @param listener The listener.
+	 * @param nanos How long its pointChanged took.
+	 */
+	public void recordListener(DualCameraListener listener, long nanos)
+	{
+		if(!enabled)
+			return;
+		LatencyHistogram h = listeners.get(listener);
+		if(h != null)
+			h.record(nanos);
+	}
+	
+	/**
+	 * Counts a report from one of the Wii Remotes.
+	 * @param mote DualMoteCamera.LEFT or DualMoteCamera.RIGHT
+	 * @param now When the report came in from System.nanoTime().
+	 */
+	public void recordReport(int mote, long now)
+	{
+		if(!enabled)
+			return;
+		long last = last_report.getAndSet(mote, now);
+		if(report_count.incrementAndGet(mote) > 1)
+		{
+			double interval = Double.longBitsToDouble(report_interval.get(mote));
+			interval = (interval == 0) ? now - last : interval + RATE_WEIGHT * ((now - last) - interval);
+			report_interval.set(mote, Double.doubleToRawLongBits(interval));
+		}
+	}
+	
+	/**
+	 * Counts how many points were not found in a frame.
+	 * @param points_not_found From 0 to 4.
+	 */
+	public void recordNotFound(int points_not_found)
+	{
+		if(enabled)
+			not_found.incrementAndGet(Math.max(0, Math.min(MAX_NOT_FOUND, points_not_found)));
+	}
+	
+	/**
+	 * Starts timing a listener.
+	 * @param listener The listener to time.
+	 */
+	void addListener(DualCameraListener listener)
+	{
+		listeners.putIfAbsent(listener, new LatencyHistogram());
+		
+		//The wrapped listener times itself on its own thread
+		if(listener instanceof AsyncDualCameraListener)
+		{
+			AsyncDualCameraListener a = (AsyncDualCameraListener) listener;
+			async.putIfAbsent(a.getListener(), a);
+			listeners.putIfAbsent(a.getListener(), a.getHandlingHistogram());
+		}
+	}
+	
+	/**
+	 * Stops timing a listener.
+	 * @param listener The listener to stop timing.
+	 */
+	void removeListener(DualCameraListener listener)
+	{
+		listeners.remove(listener);
+		if(listener instanceof AsyncDualCameraListener)
+		{
+			AsyncDualCameraListener a = (AsyncDualCameraListener) listener;
+			if(async.remove(a.getListener(), a))
+				listeners.remove(a.getListener(), a.getHandlingHistogram());
+		}
+	}
+	
+	/**
+	 * Registers the stats with the platform MBeanServer. Does nothing if 
+	 * they are already registered.
+	 */
+	public synchronized void register()
+	{
+		if(name != null)
+			return;
+		try
+		{
+			ObjectName n = new ObjectName("dualCamera:type=DualMoteCamera,name=camera" + cameras.incrementAndGet());
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, n);
+			name = n;
+		}
+		catch (JMException e)
+		{
+			System.out.println("Could not register the DualMoteCamera stats: " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Unregisters the stats if they are registered.
+	 */
+	public synchronized void unregister()
+	{
+		if(name == null)
+			return;
+		try
+		{
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			if(server.isRegistered(name))
+				server.unregisterMBean(name);
+		}
+		catch (JMException e)
+		{
+			System.out.println("Could not unregister the DualMoteCamera stats: " + e.getMessage());
+		}
+		name = null;
+	}
+	
+	/**
+	 * Returns the name the stats are registered under.
+	 * @return the name or null if not registered
+	 */
+	public synchronized ObjectName getName()
+	{
+		return name;
+	}
+	
+	/* MXBean Methods */
+	
+	/**
+	 * Returns the histogram for a stage.
+	 * @param stage INTAKE, FRAME, GESTURES, LISTENERS or TOTAL
+	 * @return the histogram
+	 */
+	public LatencyHistogram getHistogram(int stage)
+	{
+		return stages[stage];
+	}
+	
+	public LatencySnapshot getIntakeLatency()
+	{
+		return stages[INTAKE].getSnapshot();
+	}
+	
+	public LatencySnapshot getFrameLatency()
+	{
+		return stages[FRAME].getSnapshot();
+	}
+	
+	public LatencySnapshot getGestureLatency()
+	{
+		return stages[GESTURES].getSnapshot();
+	}
+	
+	public LatencySnapshot getListenerLatency()
+	{
+		return stages[LISTENERS].getSnapshot();
+	}
+	
+	public LatencySnapshot getTotalLatency()
+	{
+		return stages[TOTAL].getSnapshot();
+	}
+	
+	public Map<String, LatencySnapshot> getEachListenerLatency()
+	{
+		Map<String, LatencySnapshot> each = new LinkedHashMap<String, LatencySnapshot>();
+		for(Map.Entry<DualCameraListener, LatencyHistogram> e : listeners.entrySet())
+			each.put(name(e.getKey()), e.getValue().getSnapshot());
+		return each;
+	}
+	
+	public Map<String, Long> getEachListenerDropped()
+	{
+		Map<String, Long> each = new LinkedHashMap<String, Long>();
+		for(AsyncDualCameraListener a : async.values())
+			each.put(name(a.getListener()), a.getDroppedCount());
+		return each;
+	}
+	
+	public Map<String, Integer> getEachListenerQueued()
+	{
+		Map<String, Integer> each = new LinkedHashMap<String, Integer>();
+		for(AsyncDualCameraListener a : async.values())
+			each.put(name(a.getListener()), a.getQueuedCount());
+		return each;
+	}
+	
+	/*
+	 * The name a listener is shown under
+	 */
+	private String name(DualCameraListener l)
+	{
+		String name = l.getClass().getName() + "@" + Integer.toHexString(System.identityHashCode(l));
+		if(l instanceof AsyncDualCameraListener)
+			name += " (" + ((AsyncDualCameraListener) l).getListener().getClass().getName() + ")";
+		else if(async.containsKey(l))
+			name += " (on its own thread)";
+		return name;
+	}
+	
+	public double getLeftReportRate()
+	{
+		return reportRate(DualMoteCamera.LEFT);
+	}
+	
+	public double getRightReportRate()
+	{
+		return reportRate(DualMoteCamera.RIGHT);
+	}
+	
+	/*
+	 * Reports a second from the smoothed time between reports
+	 */
+	private double reportRate(int mote)
+	{
+		double interval = Double.longBitsToDouble(report_interval.get(mote));
+		return (interval <= 0) ? 0 : 1e9 / interval;
+	}
+	
+	public long getLeftReportCount()
+	{
+		return report_count.get(DualMoteCamera.LEFT);
+	}
+	
+	public long getRightReportCount()
+	{
+		return report_count.get(DualMoteCamera.RIGHT);
+	}
+	
+	public long[] getPointsNotFound()
+	{
+		long[] counts = new long[MAX_NOT_FOUND + 1];
+		for(int i = 0; i < counts.length; i++)
+			counts[i] = not_found.get(i);
+		return counts;
+	}
+	
+	public boolean isEnabled()
+	{
+		return enabled;
+	}
+	
+	public void setEnabled(boolean enabled)
+	{
+		this.enabled = enabled;
+	}
+	
+	public void reset()
+	{
+		for(int i = 0; i < STAGES; i++)
+			stages[i].reset();
+		for(LatencyHistogram h : listeners.values())
+			h.reset();
+		for(int i = 0; i <= MAX_NOT_FOUND; i++)
+			not_found.set(i, 0);
+		for(int i = 0; i < 2; i++)
+		{
+			report_count.set(i, 0);
+			report_interval.set(i, 0);
+		}
+	}
+}
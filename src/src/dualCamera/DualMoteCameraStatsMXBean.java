@@ -0,0 +1,90 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    DualMoteCameraStatsMXBean.java
+*/
+package dualCamera;
+
+import java.util.Map;
+
+/**
+ * What DualMoteCameraStats shows over JMX. See DualMoteCameraStats for what
+ * each stage covers. Latencies are in microseconds.
+ * 
+ * @author Amy Ciavolino
+ */
+public interface DualMoteCameraStatsMXBean
+{
+	public LatencySnapshot getIntakeLatency();
+	
+	public LatencySnapshot getFrameLatency();
+	
+	public LatencySnapshot getGestureLatency();
+	
+	public LatencySnapshot getListenerLatency();
+	
+	public LatencySnapshot getTotalLatency();
+	
+	/**
+	 * @return the latency of each listener by name
+	 */
+	public Map<String, LatencySnapshot> getEachListenerLatency();
+	
+	/**
+	 * @return how many events each asynchronous listener has thrown away, 
+	 * by the name of the listener it wraps
+	 */
+	public Map<String, Long> getEachListenerDropped();
+	
+	/**
+	 * @return how many events are waiting for each asynchronous listener, 
+	 * by the name of the listener it wraps
+	 */
+	public Map<String, Integer> getEachListenerQueued();
+	
+	/**
+	 * @return reports a second from the left Wii Remote
+	 */
+	public double getLeftReportRate();
+	
+	/**
+	 * @return reports a second from the right Wii Remote
+	 */
+	public double getRightReportRate();
+	
+	public long getLeftReportCount();
+	
+	public long getRightReportCount();
+	
+	/**
+	 * @return how many frames had 0 to 4 points not found, index is points_not_found
+	 */
+	public long[] getPointsNotFound();
+	
+	public boolean isEnabled();
+	
+	public void setEnabled(boolean enabled);
+	
+	/**
+	 * Clears all the counts.
+	 */
+	public void reset();
+}
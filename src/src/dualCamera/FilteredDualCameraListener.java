@@ -0,0 +1,215 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    FilteredDualCameraListener.java
+*/
+package dualCamera;
+
+import util.XYZ;
+
+/**
+ * FilteredDualCameraListener passes events on to another DualCameraListener
+ * with the real points smoothed by a OneEuroFilter on each axis. Each 
+ * tracked marker has its own filters, picked by its ID from the 
+ * PointTracker, so markers that swap places in getRealPoints are not 
+ * smoothed into each other. The filters use the time of each frame, so 
+ * they work the same however fast the Wii Remotes report.
+ * <p>
+ * The listener passed to is given a new event whose frame has the smoothed
+ * points, and its average point is the average of them. The raw points 
+ * from each camera are left alone. Each listener can be wrapped with its 
+ * own settings, such as a cursor that needs to be steady and a gesture 
+ * window that needs to be quick:
+ * <blockquote><pre>
+ *     cameras.addDualCameraListener(new FilteredDualCameraListener(controller));
+ * </pre></blockquote>
+ * 
+ * @author Jason Creighton
+ */
+public class FilteredDualCameraListener implements DualCameraListener
+{
+	/**
+	 * The most markers that can be filtered at once
+	 */
+	private static final int SLOTS = PointTracker.MAX_TRACKS;
+	
+	/**
+	 * The listener events are passed on to
+	 */
+	private final DualCameraListener listener;
+	
+	/**
+	 * The filters for X, Y and Z of each slot, the ID of the marker in each
+	 * slot and the last frame each slot was used
+	 */
+	private final OneEuroFilter[] filters = new OneEuroFilter[SLOTS * 3];
+	private final int[] slot_id = new int[SLOTS];
+	private final long[] slot_used = new long[SLOTS];
+	
+	/**
+	 * Smooths events with the default settings of OneEuroFilter.
+	 * @param listener The listener to pass events to.
+	 */
+	public FilteredDualCameraListener(DualCameraListener listener)
+	{
+		this(listener, OneEuroFilter.DFLT_MIN_CUTOFF, OneEuroFilter.DFLT_BETA, OneEuroFilter.DFLT_DERIVATE_CUTOFF);
+	}
+	
+	/**
+	 * Smooths events before passing them on. See OneEuroFilter for the 
+	 * settings.
+	 * @param listener The listener to pass events to.
+	 * @param min_cutoff The cutoff when a point is still, in Hz.
+	 * @param beta How much the cutoff goes up with the speed of a point.
+	 * @param derivate_cutoff The cutoff for the speed, in Hz.
+	 */
+	public FilteredDualCameraListener(DualCameraListener listener, double min_cutoff, double beta, double derivate_cutoff)
+	{
+		if(listener == null)
+			throw new IllegalArgumentException("listener can not be null");
+		
+		this.listener = listener;
+		for(int i = 0; i < filters.length; i++)
+			filters[i] = new OneEuroFilter(min_cutoff, beta, derivate_cutoff);
+		for(int s = 0; s < SLOTS; s++)
+			slot_id[s] = PointTracker.NO_ID;
+	}
+	
+	public void pointChanged(DualCameraEvent evt)
+	{
+		listener.pointChanged(new DualCameraEvent(evt.getSource(), filter(evt.getFrame())));
+	}
+	
+	/**
+	 * Smooths the real points of a frame.
+	 * @param frame The frame from the DualMoteCamera.
+	 * @return a new frame with the smoothed points.
+	 */
+	public synchronized DualCameraFrame filter(DualCameraFrame frame)
+	{
+		long time = frame.getTime();
+		XYZ[] real = frame.getRealPoints();
+		for(int i = 0; i < real.length; i++)
+		{
+			int id = frame.getPointId(i);
+			if(real[i] == null || id == PointTracker.NO_ID)
+				continue;
+			
+			int f = slotFor(id, frame.getSequence()) * 3;
+			real[i].x = filters[f + XYZ.X].filter(real[i].x, time);
+			real[i].y = filters[f + XYZ.Y].filter(real[i].y, time);
+			real[i].z = filters[f + XYZ.Z].filter(real[i].z, time);
+		}
+		return frame.withRealPoints(real);
+	}
+	
+	/*
+	 * Finds the slot of a marker. A new marker takes the slot that has gone
+	 * unused longest and starts its filters again.
+	 */
+	private int slotFor(int id, long sequence)
+	{
+		int oldest = 0;
+		for(int s = 0; s < SLOTS; s++)
+		{
+			if(slot_id[s] == id)
+			{
+				slot_used[s] = sequence;
+				return s;
+			}
+			if(slot_used[s] < slot_used[oldest])
+				oldest = s;
+		}
+		
+		slot_id[oldest] = id;
+		slot_used[oldest] = sequence;
+		for(int d = 0; d < 3; d++)
+			filters[oldest * 3 + d].reset();
+		return oldest;
+	}
+	
+	/**
+	 * Forgets every marker so the filters start again with the next frame.
+	 */
+	public synchronized void reset()
+	{
+		for(int s = 0; s < SLOTS; s++)
+		{
+			slot_id[s] = PointTracker.NO_ID;
+			slot_used[s] = 0;
+		}
+	}
+	
+	/* Set Methods */
+	
+	/**
+	 * Sets the cutoff when a point is still. See OneEuroFilter.setMinCutoff.
+	 * @param hz The cutoff in Hz.
+	 */
+	public synchronized void setMinCutoff(double hz)
+	{
+		for(OneEuroFilter f : filters)
+			f.setMinCutoff(hz);
+	}
+	
+	/**
+	 * Sets how much the cutoff goes up with the speed of a point. See 
+	 * OneEuroFilter.setBeta.
+	 * @param beta The increase in Hz per unit per second.
+	 */
+	public synchronized void setBeta(double beta)
+	{
+		for(OneEuroFilter f : filters)
+			f.setBeta(beta);
+	}
+	
+	/**
+	 * Sets the cutoff for the speed. See OneEuroFilter.setDerivateCutoff.
+	 * @param hz The cutoff in Hz.
+	 */
+	public synchronized void setDerivateCutoff(double hz)
+	{
+		for(OneEuroFilter f : filters)
+			f.setDerivateCutoff(hz);
+	}
+	
+	/* Get Methods */
+	
+	public synchronized double getMinCutoff()
+	{
+		return filters[0].getMinCutoff();
+	}
+	
+	public synchronized double getBeta()
+	{
+		return filters[0].getBeta();
+	}
+	
+	public synchronized double getDerivateCutoff()
+	{
+		return filters[0].getDerivateCutoff();
+	}
+	
+	public String toString()
+	{
+		return "Filtered " + listener;
+	}
+}
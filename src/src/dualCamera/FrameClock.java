@@ -0,0 +1,54 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    FrameClock.java
+*/
+package dualCamera;
+
+/**
+ * FrameClock is where DualMoteCamera gets the time of each report. The time
+ * of a report decides how reports are paired into frames and the time of 
+ * each frame, which the tracking and gestures use. Normally it is 
+ * System.nanoTime(), but a replay or a simulation can use a ManualClock so
+ * the timing is the same every run.
+ * 
+ * @author Amy Ciavolino
+ */
+public interface FrameClock
+{
+	/**
+	 * The clock used by default, System.nanoTime()
+	 */
+	public static final FrameClock SYSTEM = new FrameClock() {
+		
+		public long nanoTime()
+		{
+			return System.nanoTime();
+		}
+	};
+	
+	/**
+	 * Returns the current time in nanoseconds. Only the difference between
+	 * two times means anything.
+	 * @return the time in nanoseconds
+	 */
+	public long nanoTime();
+}
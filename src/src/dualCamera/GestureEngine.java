@@ -0,0 +1,158 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    GestureEngine.java
+*/
+package dualCamera;
+
+import javax.swing.event.EventListenerList;
+
+/**
+ * GestureEngine runs every GestureRecognizer on each frame and passes the 
+ * gestures they find to the GestureListeners. DualMoteCamera has one with 
+ * the built in SwipeRecognizer and PinchRecognizer already added, and runs
+ * it on each frame after the frame is found and before the 
+ * DualCameraListeners are told, but only while it has a listener. 
+ * <p>
+ * Frames are given to the recognizers in order. If frames were skipped, 
+ * such as while there were no listeners, the recognizers are reset first so
+ * no gesture spans the gap. Running the recognizers does not make any 
+ * objects, so more recognizers only cost the work they do.
+ * 
+ * @author Amy Ciavolino
+ */
+public class GestureEngine
+{
+	/**
+	 * Copied whenever a recognizer is added or removed so process can go
+	 * through them without locking or making an iterator
+	 */
+	private volatile GestureRecognizer[] recognizers = new GestureRecognizer[0];
+	
+	private final EventListenerList listenerList = new EventListenerList();
+	
+	/**
+	 * The sequence of the last frame processed
+	 */
+	private long last_sequence = Long.MIN_VALUE;
+	
+	/**
+	 * Runs each recognizer on a frame. Frames older than the last one are 
+	 * ignored.
+	 * @param frame The frame, already found.
+	 */
+	public synchronized void process(DualCameraFrame frame)
+	{
+		long sequence = frame.getSequence();
+		if(last_sequence != Long.MIN_VALUE && sequence <= last_sequence)
+			return;
+		
+		GestureRecognizer[] current = recognizers;
+		if(sequence != last_sequence + 1)
+		{
+			for(GestureRecognizer r : current)
+				r.reset();
+		}
+		last_sequence = sequence;
+		
+		for(GestureRecognizer r : current)
+			r.update(frame, this);
+	}
+	
+	/**
+	 * Tells every listener about a gesture. Called by recognizers.
+	 * @param evt The gesture.
+	 */
+	public void fire(GestureEvent evt)
+	{
+		for(GestureListener l : listenerList.getListeners(GestureListener.class))
+			l.gesturePerformed(evt);
+	}
+	
+	/**
+	 * Resets every recognizer.
+	 */
+	public synchronized void reset()
+	{
+		for(GestureRecognizer r : recognizers)
+			r.reset();
+	}
+	
+	/**
+	 * Adds a recognizer, which starts with the next frame.
+	 * @param recognizer The recognizer to add.
+	 */
+	public synchronized void addRecognizer(GestureRecognizer recognizer)
+	{
+		GestureRecognizer[] added = new GestureRecognizer[recognizers.length + 1];
+		System.arraycopy(recognizers, 0, added, 0, recognizers.length);
+		added[recognizers.length] = recognizer;
+		recognizer.reset();
+		recognizers = added;
+	}
+	
+	/**
+	 * Removes a recognizer.
+	 * @param recognizer The recognizer to remove.
+	 */
+	public synchronized void removeRecognizer(GestureRecognizer recognizer)
+	{
+		for(int i = 0; i < recognizers.length; i++)
+		{
+			if(recognizers[i] == recognizer)
+			{
+				GestureRecognizer[] removed = new GestureRecognizer[recognizers.length - 1];
+				System.arraycopy(recognizers, 0, removed, 0, i);
+				System.arraycopy(recognizers, i + 1, removed, i, removed.length - i);
+				recognizers = removed;
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the recognizers in the order they run.
+	 * @return a copy of the recognizers.
+	 */
+	public GestureRecognizer[] getRecognizers()
+	{
+		return recognizers.clone();
+	}
+	
+	public void addGestureListener(GestureListener listener)
+	{
+		listenerList.add(GestureListener.class, listener);
+	}
+	
+	public void removeGestureListener(GestureListener listener)
+	{
+		listenerList.remove(GestureListener.class, listener);
+	}
+	
+	/**
+	 * Returns whether anything is listening for gestures. 
+	 * @return true if there is a listener.
+	 */
+	public boolean hasListeners()
+	{
+		return listenerList.getListenerCount() > 0;
+	}
+}
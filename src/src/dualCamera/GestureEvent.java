@@ -0,0 +1,175 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    GestureEvent.java
+*/
+package dualCamera;
+
+import util.XYZ;
+
+/**
+ * GestureEvent is one gesture found by a GestureRecognizer. It says what the
+ * gesture was, when the frame it finished on was paired, where it happened
+ * and how fast the point was moving.
+ * <p>
+ * The built in gestures use the names SWIPE, PINCH and UNPINCH. A swipe also
+ * has the axis it was along and a direction of 1 or -1 for which way along
+ * the axis it went. Recognizers added by users can use any name.
+ * 
+ * @author Amy Ciavolino
+ */
+public class GestureEvent
+{
+	/**
+	 * The names of the built in gestures
+	 */
+	public static final String SWIPE   = "swipe";
+	public static final String PINCH   = "pinch";
+	public static final String UNPINCH = "unpinch";
+	
+	/**
+	 * The axis of a gesture that is not along one
+	 */
+	public static final int NO_AXIS = -1;
+	
+	private final GestureRecognizer source;
+	private final String name;
+	private final long time;
+	private final double x, y, z;
+	private final double vx, vy, vz;
+	private final int axis, direction;
+	private final XYZ origin;
+	
+	/**
+	 * Makes a gesture event.
+	 * 
+	 * @param source The recognizer that found the gesture.
+	 * @param name What the gesture was.
+	 * @param time When the frame the gesture finished on was paired, from the
+	 * DualMoteCamera's FrameClock.
+	 * @param x, y, z Where the gesture happened.
+	 * @param vx, vy, vz How fast the point was moving, in units per second.
+	 * @param axis XYZ.X, XYZ.Y, XYZ.Z or NO_AXIS.
+	 * @param direction 1 or -1 along the axis, 0 if there is no axis.
+	 * @param origin Where the gesture started, or null to use where it happened.
+	 */
+	public GestureEvent(GestureRecognizer source, String name, long time, double x, double y, double z,
+			double vx, double vy, double vz, int axis, int direction, XYZ origin)
+	{
+		this.source = source;
+		this.name = name;
+		this.time = time;
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		this.vx = vx;
+		this.vy = vy;
+		this.vz = vz;
+		this.axis = axis;
+		this.direction = direction;
+		this.origin = (origin != null) ? new XYZ(origin) : new XYZ(x, y, z);
+	}
+	
+	/**
+	 * Returns whether this is the gesture with the name given.
+	 * @param name The name of a gesture, such as SWIPE.
+	 * @return true if the names are the same.
+	 */
+	public boolean is(String name)
+	{
+		return this.name.equals(name);
+	}
+	
+	/* Get Methods */
+	
+	public GestureRecognizer getSource()
+	{
+		return source;
+	}
+	
+	public String getName()
+	{
+		return name;
+	}
+	
+	/**
+	 * Returns when the frame the gesture finished on was paired.
+	 * @return the time in nanoseconds.
+	 */
+	public long getTime()
+	{
+		return time;
+	}
+	
+	/**
+	 * Returns where the gesture happened.
+	 * @return a copy of the point.
+	 */
+	public XYZ getLocation()
+	{
+		return new XYZ(x, y, z);
+	}
+	
+	/**
+	 * Returns where the gesture started. For a swipe this is where the point
+	 * started moving.
+	 * @return a copy of the point.
+	 */
+	public XYZ getOrigin()
+	{
+		return new XYZ(origin);
+	}
+	
+	/**
+	 * Returns how fast the point was moving when the gesture finished.
+	 * @return the velocity in units per second.
+	 */
+	public XYZ getVelocity()
+	{
+		return new XYZ(vx, vy, vz);
+	}
+	
+	/**
+	 * Returns how fast the point was moving, whichever way.
+	 * @return the speed in units per second.
+	 */
+	public double getSpeed()
+	{
+		return Math.sqrt(vx * vx + vy * vy + vz * vz);
+	}
+	
+	public int getAxis()
+	{
+		return axis;
+	}
+	
+	public int getDirection()
+	{
+		return direction;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return String.format("%s at (%.1f, %.1f, %.1f) moving %.1f/s", name, x, y, z, getSpeed())
+			+ ((axis == NO_AXIS) ? "" : " axis " + axis + " direction " + direction);
+	}
+}
@@ -0,0 +1,52 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    GestureRecognizer.java
+*/
+package dualCamera;
+
+/**
+ * A GestureRecognizer looks for one kind of gesture in the stream of frames.
+ * The GestureEngine gives it each frame once, in order, after the frame has 
+ * been found, so a recognizer never triangulates anything itself. 
+ * <p>
+ * update runs for every frame, so it should keep a fixed amount of state,
+ * such as the last position and when it was seen, and not make any objects
+ * unless it found a gesture. Read the points with DualCameraFrame.getX, 
+ * getY and getZ, which do not copy them.
+ * 
+ * @author Amy Ciavolino
+ */
+public interface GestureRecognizer
+{
+	/**
+	 * Looks at the next frame and tells the engine about any gesture it 
+	 * finishes.
+	 * @param frame The frame, shared with every recognizer and listener.
+	 * @param engine Call fire on it to report a gesture.
+	 */
+	public void update(DualCameraFrame frame, GestureEngine engine);
+	
+	/**
+	 * Forgets everything seen so far, such as after the frames skip.
+	 */
+	public void reset();
+}
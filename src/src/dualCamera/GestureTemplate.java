@@ -0,0 +1,224 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    GestureTemplate.java
+*/
+package dualCamera;
+
+import util.XYZ;
+
+/**
+ * GestureTemplate is a recorded shape, such as a circle, a check mark or a 
+ * letter drawn in the air, for TemplateRecognizer to match against. The 
+ * recorded points are resampled to POINTS points evenly spaced along the 
+ * path, moved so their center is at 0,0,0 and scaled so their root mean 
+ * square distance from the center is 1. A shape drawn bigger, smaller, 
+ * faster, slower or somewhere else in space matches the same template.
+ * <p>
+ * The envelope used for LB_Keogh, the most and least of each coordinate 
+ * within the warping window of each point, is worked out once here.
+ * 
+ * @author Jason Creighton
+ */
+public class GestureTemplate
+{
+	/**
+	 * How many points every template and stroke is resampled to
+	 */
+	public static final int POINTS = 32;
+	
+	/**
+	 * How far the warping can shift a point, in points
+	 */
+	public static final int WINDOW = 3;
+	
+	private final String name;
+	
+	/**
+	 * The normalized points, x, y, z for each point
+	 */
+	final double[] points = new double[POINTS * 3];
+	
+	/**
+	 * The envelope, the same layout as points
+	 */
+	final double[] upper = new double[POINTS * 3];
+	final double[] lower = new double[POINTS * 3];
+	
+	/**
+	 * Makes a template from recorded points.
+	 * @param name The name of the gesture, used as the name of the 
+	 * GestureEvent when it is matched.
+	 * @param x, y, z The recorded points, in order.
+	 * @param count How many points there are, at least 2.
+	 */
+	public GestureTemplate(String name, double[] x, double[] y, double[] z, int count)
+	{
+		if(count < 2)
+			throw new IllegalArgumentException("A template needs at least 2 points");
+		
+		this.name = name;
+		double[] xyz = new double[count * 3];
+		for(int i = 0; i < count; i++)
+		{
+			xyz[i * 3 + XYZ.X] = x[i];
+			xyz[i * 3 + XYZ.Y] = y[i];
+			xyz[i * 3 + XYZ.Z] = z[i];
+		}
+		if(!normalize(xyz, 0, count, count, points))
+			throw new IllegalArgumentException("The template's points are all in the same place");
+		
+		for(int i = 0; i < POINTS; i++)
+		{
+			for(int d = XYZ.X; d <= XYZ.Z; d++)
+			{
+				double most = Double.NEGATIVE_INFINITY, least = Double.POSITIVE_INFINITY;
+				for(int j = Math.max(0, i - WINDOW); j <= Math.min(POINTS - 1, i + WINDOW); j++)
+				{
+					most  = Math.max(most,  points[j * 3 + d]);
+					least = Math.min(least, points[j * 3 + d]);
+				}
+				upper[i * 3 + d] = most;
+				lower[i * 3 + d] = least;
+			}
+		}
+	}
+	
+	/**
+	 * Makes a template from recorded points.
+	 * @param name The name of the gesture.
+	 * @param path The recorded points, in order.
+	 */
+	public GestureTemplate(String name, XYZ[] path)
+	{
+		this(name, coordinates(path, XYZ.X), coordinates(path, XYZ.Y), coordinates(path, XYZ.Z), path.length);
+	}
+	
+	private static double[] coordinates(XYZ[] path, int d)
+	{
+		double[] c = new double[path.length];
+		for(int i = 0; i < path.length; i++)
+			c[i] = (d == XYZ.X) ? path[i].x : (d == XYZ.Y) ? path[i].y : path[i].z;
+		return c;
+	}
+	
+	/**
+	 * Resamples and normalizes points kept in a ring, x, y, z for each point.
+	 * Does not make any objects so TemplateRecognizer can use it on strokes.
+	 * 
+	 * @param ring The points.
+	 * @param start The index of the first point in the ring.
+	 * @param count How many points from start, wrapping around the ring.
+	 * @param capacity How many points the ring holds.
+	 * @param out An array of POINTS * 3 for the normalized points.
+	 * @return false if the points are all in the same place.
+	 */
+	static boolean normalize(double[] ring, int start, int count, int capacity, double[] out)
+	{
+		double length = 0;
+		for(int i = 1; i < count; i++)
+			length += distance(ring, (start + i - 1) % capacity, (start + i) % capacity);
+		if(length == 0)
+			return false;
+		
+		// Walk along the path putting a point every step
+		double step = length / (POINTS - 1);
+		double walked = 0;
+		int segment = 1;
+		double segment_start = 0;
+		double segment_length = distance(ring, start % capacity, (start + 1) % capacity);
+		for(int p = 0; p < POINTS; p++, walked += step)
+		{
+			while(segment < count - 1 && walked > segment_start + segment_length)
+			{
+				segment_start += segment_length;
+				segment++;
+				segment_length = distance(ring, (start + segment - 1) % capacity, (start + segment) % capacity);
+			}
+			
+			int a = ((start + segment - 1) % capacity) * 3, b = ((start + segment) % capacity) * 3;
+			double t = (segment_length == 0) ? 0 : Math.min(1, (walked - segment_start) / segment_length);
+			for(int d = XYZ.X; d <= XYZ.Z; d++)
+				out[p * 3 + d] = ring[a + d] + t * (ring[b + d] - ring[a + d]);
+		}
+		
+		// Center and scale
+		double cx = 0, cy = 0, cz = 0;
+		for(int p = 0; p < POINTS; p++)
+		{
+			cx += out[p * 3 + XYZ.X];
+			cy += out[p * 3 + XYZ.Y];
+			cz += out[p * 3 + XYZ.Z];
+		}
+		cx /= POINTS;
+		cy /= POINTS;
+		cz /= POINTS;
+		
+		double spread = 0;
+		for(int p = 0; p < POINTS; p++)
+		{
+			out[p * 3 + XYZ.X] -= cx;
+			out[p * 3 + XYZ.Y] -= cy;
+			out[p * 3 + XYZ.Z] -= cz;
+			spread += out[p * 3] * out[p * 3] + out[p * 3 + 1] * out[p * 3 + 1] + out[p * 3 + 2] * out[p * 3 + 2];
+		}
+		double scale = Math.sqrt(spread / POINTS);
+		if(scale == 0)
+			return false;
+		
+		for(int i = 0; i < POINTS * 3; i++)
+			out[i] /= scale;
+		return true;
+	}
+	
+	private static double distance(double[] ring, int a, int b)
+	{
+		double dx = ring[b * 3] - ring[a * 3];
+		double dy = ring[b * 3 + 1] - ring[a * 3 + 1];
+		double dz = ring[b * 3 + 2] - ring[a * 3 + 2];
+		return Math.sqrt(dx * dx + dy * dy + dz * dz);
+	}
+	
+	/* Get Methods */
+	
+	public String getName()
+	{
+		return name;
+	}
+	
+	/**
+	 * Returns the normalized points.
+	 * @return a copy of the points.
+	 */
+	public XYZ[] getPoints()
+	{
+		XYZ[] path = new XYZ[POINTS];
+		for(int i = 0; i < POINTS; i++)
+			path[i] = new XYZ(points[i * 3 + XYZ.X], points[i * 3 + XYZ.Y], points[i * 3 + XYZ.Z]);
+		return path;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return name;
+	}
+}
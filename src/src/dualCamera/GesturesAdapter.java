@@ -0,0 +1,71 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    GesturesAdapter.java
+*/
+package dualCamera;
+
+import util.XYZ;
+
+/**
+ * GesturesAdapter passes the built in gestures from a GestureEngine to the 
+ * older Gestures interface, with the same directions gestureLook used. A
+ * swipe moving down an axis has a direction of 1. DualMoteCamera adds one
+ * for the Gestures passed to its constructor.
+ * 
+ * @author Amy Ciavolino
+ */
+public class GesturesAdapter implements GestureListener
+{
+	private final Gestures handler;
+	
+	/**
+	 * @param handler Told about each swipe, pinch and unpinch.
+	 */
+	public GesturesAdapter(Gestures handler)
+	{
+		this.handler = handler;
+	}
+	
+	public void gesturePerformed(GestureEvent evt)
+	{
+		if(evt.is(GestureEvent.SWIPE))
+		{
+			XYZ origin = evt.getOrigin();
+			int direction = -evt.getDirection();
+			switch(evt.getAxis())
+			{
+				case XYZ.X: handler.swipeInX(origin, direction); break;
+				case XYZ.Y: handler.swipeInY(origin, direction); break;
+				case XYZ.Z: handler.swipeInZ(origin, direction); break;
+			}
+		}
+		else if(evt.is(GestureEvent.PINCH))
+			handler.pinch(evt.getLocation());
+		else if(evt.is(GestureEvent.UNPINCH))
+			handler.unPinch(evt.getLocation());
+	}
+	
+	public Gestures getHandler()
+	{
+		return handler;
+	}
+}
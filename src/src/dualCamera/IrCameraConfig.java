@@ -0,0 +1,154 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    IrCameraConfig.java
+*/
+package dualCamera;
+
+import motej.IrCameraMode;
+import motej.IrCameraSensitivity;
+import motej.request.ReportModeRequest;
+
+/**
+ * IrCameraConfig is how the Wii Remote cameras of one rig are set up: the 
+ * IR mode, the sensitivity, the report mode and how many of the blobs in 
+ * each report are used. The IR mode decides which report modes can carry 
+ * the IR data:
+ * <ul>
+ * <li>BASIC, 10 bytes of IR with no sizes, in report 0x36 or 0x37</li>
+ * <li>EXTENDED, 12 bytes of IR with sizes, in report 0x33</li>
+ * <li>FULL, 36 bytes of IR, in report 0x3e</li>
+ * </ul>
+ * All 4 blob slots of each report are still looked at, and only the first 
+ * getBlobs() blobs found are kept, moved to the front. Using fewer blobs 
+ * does not save any work, it only stops stray reflections from being used 
+ * as markers. BASIC does not give sizes, they are always 0.
+ * 
+ * @author Amy Ciavolino
+ */
+public class IrCameraConfig
+{
+	/**
+	 * What DualMoteCamera has always used, all 4 blobs of EXTENDED mode
+	 */
+	public static final IrCameraConfig DEFAULT = new IrCameraConfig(IrCameraMode.EXTENDED, 
+			IrCameraSensitivity.INIO, ReportModeRequest.DATA_REPORT_0x33, IrReportBuffer.POINTS);
+	
+	/**
+	 * BASIC mode in report 0x36, keeping 2 blobs. This is not faster than 
+	 * DEFAULT: report 0x36 is bigger than 0x33, it has no blob sizes and no
+	 * accelerometer, and without the accelerometer a Wii Remote with nothing
+	 * in view may go silent. See isStreaming.
+	 */
+	public static final IrCameraConfig TWO_MARKERS = new IrCameraConfig(IrCameraMode.BASIC, 
+			IrCameraSensitivity.INIO, ReportModeRequest.DATA_REPORT_0x36, 2);
+	
+	private final IrCameraMode mode;
+	private final IrCameraSensitivity sensitivity;
+	private final byte report_mode;
+	private final int blobs;
+	
+	/**
+	 * Makes a config. 
+	 * @param mode BASIC, EXTENDED or FULL
+	 * @param sensitivity The sensitivity of the camera.
+	 * @param report_mode A report mode that carries the mode's IR data.
+	 * @param blobs How many blobs to use, from 2 to 4.
+	 * @throws IllegalArgumentException if the report mode does not go with 
+	 * the IR mode or blobs is out of range.
+	 */
+	public IrCameraConfig(IrCameraMode mode, IrCameraSensitivity sensitivity, byte report_mode, int blobs)
+	{
+		if(mode == null || sensitivity == null)
+			throw new IllegalArgumentException("The IR mode and sensitivity must be set");
+		if(!carries(mode, report_mode))
+			throw new IllegalArgumentException("Report 0x" + Integer.toHexString(report_mode & 0xFF) 
+					+ " does not carry " + mode + " IR data");
+		if(blobs < 2 || blobs > IrReportBuffer.POINTS)
+			throw new IllegalArgumentException("Blobs must be from 2 to " + IrReportBuffer.POINTS + ", not " + blobs);
+		
+		this.mode = mode;
+		this.sensitivity = sensitivity;
+		this.report_mode = report_mode;
+		this.blobs = blobs;
+	}
+	
+	/*
+	 * Whether a report mode has room for the IR data of a mode
+	 */
+	private static boolean carries(IrCameraMode mode, byte report_mode)
+	{
+		switch(mode)
+		{
+			case BASIC:
+				return report_mode == ReportModeRequest.DATA_REPORT_0x36 || report_mode == ReportModeRequest.DATA_REPORT_0x37;
+			case EXTENDED:
+				return report_mode == ReportModeRequest.DATA_REPORT_0x33;
+			case FULL:
+				return report_mode == ReportModeRequest.DATA_REPORT_0x3e;
+			default:
+				return false;
+		}
+	}
+	
+	/* Get Methods */
+	
+	public IrCameraMode getMode()
+	{
+		return mode;
+	}
+	
+	public IrCameraSensitivity getSensitivity()
+	{
+		return sensitivity;
+	}
+	
+	public byte getReportMode()
+	{
+		return report_mode;
+	}
+	
+	/**
+	 * Returns how many blobs of each report are used.
+	 * @return the number of blobs, from 2 to 4.
+	 */
+	public int getBlobs()
+	{
+		return blobs;
+	}
+	
+	/**
+	 * Returns whether the report mode keeps reporting while nothing changes.
+	 * Report modes with the accelerometer do, since its noise changes every
+	 * report. Without it, 0x36, an idle Wii Remote with nothing in view can 
+	 * stop reporting, so a gap in the reports does not mean it stalled.
+	 * @return true if the Wii Remote reports all the time.
+	 */
+	public boolean isStreaming()
+	{
+		return report_mode != ReportModeRequest.DATA_REPORT_0x36;
+	}
+	
+	public String toString()
+	{
+		return mode + " IR in report 0x" + Integer.toHexString(report_mode & 0xFF) + ", " + blobs + " blobs";
+	}
+}
@@ -0,0 +1,196 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    IrReportBuffer.java
+*/
+package dualCamera;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * IrReportBuffer holds the latest report from one Wii Remote camera. The 
+ * Bluetooth thread of the Wii Remote writes the report and any other thread 
+ * can read it without locking. A reader always gets a whole report, never
+ * some points from one report and some from the next.
+ * <p>
+ * It works like a sequence lock. The version is made odd before the writer 
+ * starts and even again when it is done. A reader copies the report and 
+ * checks the version did not change while it was copying, and if it did
+ * the reader copies it again. Each point is packed into one long so it is
+ * always read whole. Everything is kept in an AtomicLongArray so the reads
+ * and writes can not be reordered around the version.
+ * <p>
+ * Only one thread may write to a buffer. Any number of threads can read.
+ * 
+ * @author Amy Ciavolino
+ */
+public class IrReportBuffer
+{
+	/**
+	 * The most points a Wii Remote camera reports
+	 */
+	public static final int POINTS = 4;
+	
+	/**
+	 * The value the Wii Remote gives X and Y when a point is not found
+	 */
+	public static final int NOT_FOUND = 1023;
+	
+	/**
+	 * Positions in the array. The points are at POINT through POINT + POINTS - 1.
+	 */
+	private static final int VERSION = 0;
+	private static final int TIME = 1;
+	private static final int POINT = 2;
+	
+	private final AtomicLongArray report = new AtomicLongArray(POINT + POINTS);
+	
+	/**
+	 * The version the writer started with. Only used by the writer.
+	 */
+	private long writing;
+	
+	/**
+	 * Makes a buffer where no points have been found.
+	 */
+	public IrReportBuffer()
+	{
+		for(int i = 0; i < POINTS; i++)
+			report.set(POINT + i, pack(NOT_FOUND, NOT_FOUND, 0));
+	}
+	
+	/* Writer Methods */
+	
+	/**
+	 * Starts writing a new report. Must be followed by end().
+	 */
+	public void begin()
+	{
+		writing = report.get(VERSION);
+		report.set(VERSION, writing + 1);
+	}
+	
+	/**
+	 * Sets one point of the report being written. 
+	 * @param index The point, from 0 to 3.
+	 * @param x The X pixel.
+	 * @param y The Y pixel.
+	 * @param size The size of the point.
+	 */
+	public void set(int index, int x, int y, int size)
+	{
+		report.set(POINT + index, pack(x, y, size));
+	}
+	
+	/**
+	 * Finishes the report being written so readers can see it.
+	 * @param time When the report came in, from System.nanoTime().
+	 */
+	public void end(long time)
+	{
+		report.set(TIME, time);
+		report.set(VERSION, writing + 2);
+	}
+	
+	/* Reader Methods */
+	
+	/**
+	 * Copies the whole latest report into the arrays passed in. 
+	 * @param x An array of at least POINTS for the X pixels.
+	 * @param y An array of at least POINTS for the Y pixels.
+	 * @param size An array of at least POINTS for the sizes.
+	 * @return When the report came in.
+	 */
+	public long read(int[] x, int[] y, int[] size)
+	{
+		for(;;)
+		{
+			long version = report.get(VERSION);
+			
+			//The writer is in the middle of a report
+			if((version & 1) != 0)
+				continue;
+			
+			for(int i = 0; i < POINTS; i++)
+			{
+				long point = report.get(POINT + i);
+				x[i] = unpackX(point);
+				y[i] = unpackY(point);
+				size[i] = unpackSize(point);
+			}
+			long time = report.get(TIME);
+			
+			if(report.get(VERSION) == version)
+				return time;
+		}
+	}
+	
+	/**
+	 * Returns one point from the latest report, packed into a long. Use 
+	 * unpackX, unpackY and unpackSize to get the values out.
+	 * @param index The point, from 0 to 3.
+	 * @return the packed point.
+	 */
+	public long getPoint(int index)
+	{
+		return report.get(POINT + index);
+	}
+	
+	/**
+	 * Returns when the latest report came in, 0 if there has not been one.
+	 * @return the time of the latest report.
+	 */
+	public long getTime()
+	{
+		return report.get(TIME);
+	}
+	
+	/**
+	 * Returns how many reports have been written.
+	 * @return the number of reports.
+	 */
+	public long getReportCount()
+	{
+		return report.get(VERSION) / 2;
+	}
+	
+	/* Packing Methods */
+	
+	private static long pack(int x, int y, int size)
+	{
+		return (x & 0xFFFFL) | ((y & 0xFFFFL) << 16) | ((size & 0xFFFFL) << 32);
+	}
+	
+	public static int unpackX(long point)
+	{
+		return (int)(point & 0xFFFF);
+	}
+	
+	public static int unpackY(long point)
+	{
+		return (int)((point >>> 16) & 0xFFFF);
+	}
+	
+	public static int unpackSize(long point)
+	{
+		return (int)((point >>> 32) & 0xFFFF);
+	}
+}
@@ -0,0 +1,210 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    IrReportRecorder.java
+*/
+package dualCamera;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * IrReportRecorder saves every raw report from both Wii Remotes to a file so
+ * it can be played back later with IrReportReplay, without the Wii Remotes.
+ * Use it like this:
+ * <blockquote><pre>
+ *     IrReportRecorder recorder = new IrReportRecorder(new File("session.nuwii"));
+ *     cameras.setRecorder(recorder);
+ *     ...
+ *     cameras.setRecorder(null);
+ *     recorder.close();
+ * </pre></blockquote>
+ * The file is written through a memory mapped channel a chunk at a time so
+ * recording a report is only a few puts into memory. 
+ * <p>
+ * The file starts with a header:
+ * <blockquote><pre>
+ *     int   MAGIC
+ *     short VERSION
+ *     short RECORD, the size of each record
+ *     long  the number of records
+ * </pre></blockquote>
+ * Followed by a record for each report:
+ * <blockquote><pre>
+ *     long  the time of the report in nanoseconds
+ *     byte  DualMoteCamera.LEFT or DualMoteCamera.RIGHT
+ *     byte  the number of points, IrReportBuffer.POINTS
+ *     short x, short y, short size for each point
+ * </pre></blockquote>
+ * The number of records is updated when a new chunk is mapped and when the 
+ * file is closed, so a file that was not closed can lose its last chunk.
+ * 
+ * @author Amy Ciavolino
+ */
+public class IrReportRecorder
+{
+	/**
+	 * Marks a file as a NuWii recording, "NUWI"
+	 */
+	public static final int MAGIC = 0x4E555749;
+	public static final short VERSION = 1;
+	
+	/**
+	 * The size in bytes of the header and of each record
+	 */
+	public static final int HEADER = 16;
+	public static final int RECORD = 8 + 1 + 1 + IrReportBuffer.POINTS * 6;
+	
+	/**
+	 * The number of records mapped at a time
+	 */
+	static final int CHUNK_RECORDS = 65536;
+	
+	/**
+	 * Position of the record count in the header
+	 */
+	static final int COUNT = 8;
+	
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final MappedByteBuffer header;
+	private MappedByteBuffer chunk;
+	
+	/**
+	 * The number of records written and where the current chunk starts
+	 */
+	private long records = 0;
+	private long chunkStart = 0;
+	
+	private boolean closed = false;
+	
+	/**
+	 * Space to read a report into
+	 */
+	private final int[] x    = new int[IrReportBuffer.POINTS];
+	private final int[] y    = new int[IrReportBuffer.POINTS];
+	private final int[] size = new int[IrReportBuffer.POINTS];
+	
+	/**
+	 * Makes a new recording. A file that is already there is replaced.
+	 * @param f The file to record to.
+	 * @throws IOException if the file can not be written.
+	 */
+	public IrReportRecorder(File f) throws IOException
+	{
+		file = new RandomAccessFile(f, "rw");
+		file.setLength(0);
+		channel = file.getChannel();
+		
+		header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER);
+		header.putInt(MAGIC);
+		header.putShort(VERSION);
+		header.putShort((short) RECORD);
+		header.putLong(0);
+		
+		mapChunk();
+	}
+	
+	/*
+	 * Maps the next chunk of the file and saves the record count so far
+	 */
+	private void mapChunk() throws IOException
+	{
+		chunkStart = records;
+		chunk = channel.map(FileChannel.MapMode.READ_WRITE, HEADER + chunkStart * RECORD, (long) CHUNK_RECORDS * RECORD);
+		header.putLong(COUNT, records);
+	}
+	
+	/**
+	 * Records the latest report in a buffer. DualMoteCamera calls this for 
+	 * every report while the recorder is set, from the Wii Remote's thread.
+	 * 
+	 * @param mote DualMoteCamera.LEFT or DualMoteCamera.RIGHT
+	 * @param report The report to record.
+	 * @throws IOException if the next chunk of the file could not be mapped.
+	 */
+	public synchronized void record(int mote, IrReportBuffer report) throws IOException
+	{
+		long time = report.read(x, y, size);
+		record(mote, time, x, y, size);
+	}
+	
+	/**
+	 * Records a report.
+	 * 
+	 * @param mote DualMoteCamera.LEFT or DualMoteCamera.RIGHT
+	 * @param time The time of the report in nanoseconds.
+	 * @param x The X of each point.
+	 * @param y The Y of each point.
+	 * @param size The size of each point.
+	 * @throws IOException if the next chunk of the file could not be mapped.
+	 */
+	public synchronized void record(int mote, long time, int[] x, int[] y, int[] size) throws IOException
+	{
+		if(closed)
+			throw new IOException("recorder is closed");
+		
+		if(records - chunkStart == CHUNK_RECORDS)
+			mapChunk();
+		
+		chunk.putLong(time);
+		chunk.put((byte) mote);
+		chunk.put((byte) IrReportBuffer.POINTS);
+		for(int i = 0; i < IrReportBuffer.POINTS; i++)
+		{
+			chunk.putShort((short) x[i]);
+			chunk.putShort((short) y[i]);
+			chunk.putShort((short) size[i]);
+		}
+		records++;
+	}
+	
+	/**
+	 * Returns how many reports have been recorded.
+	 * @return the number of reports
+	 */
+	public synchronized long getRecordCount()
+	{
+		return records;
+	}
+	
+	/**
+	 * Saves the record count and closes the file. The file keeps the space
+	 * mapped for the last chunk, IrReportReplay only reads the records
+	 * counted in the header.
+	 * @throws IOException if the file could not be closed.
+	 */
+	public synchronized void close() throws IOException
+	{
+		if(closed)
+			return;
+		closed = true;
+		
+		header.putLong(COUNT, records);
+		header.force();
+		chunk.force();
+		channel.close();
+		file.close();
+	}
+}
@@ -0,0 +1,224 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    IrReportReplay.java
+*/
+package dualCamera;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * IrReportReplay plays a file made by IrReportRecorder back into a 
+ * DualMoteCamera. The reports go through the same path as reports from the
+ * Wii Remotes, so the pairing, matching, tracking, gestures and listeners
+ * all work the same without the Wii Remotes connected.
+ * <p>
+ * The DualMoteCamera's clock is set to a ManualClock that is set to the 
+ * recorded time of each report before it is passed in. The frames get the 
+ * same times as when they were recorded, so gestures happen at the same 
+ * frames every time a file is played. Reports can be played as fast as 
+ * possible or at the speed they were recorded.
+ * <blockquote><pre>
+ *     DualMoteCamera cameras = new DualMoteCamera(609.6, Math.toRadians(22.5), handler);
+ *     cameras.addDualCameraListener(listener);
+ *     IrReportReplay replay = new IrReportReplay(new File("session.nuwii"), cameras);
+ *     replay.replay();
+ *     replay.close();
+ * </pre></blockquote>
+ * 
+ * @author Amy Ciavolino
+ */
+public class IrReportReplay
+{
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final DualMoteCamera camera;
+	
+	/**
+	 * Set to the time of each report as it is played
+	 */
+	private final ManualClock clock = new ManualClock();
+	
+	/**
+	 * The number of records in the file and how many have been played
+	 */
+	private final long records;
+	private long played = 0;
+	
+	/**
+	 * If the reports are played at the speed they were recorded
+	 */
+	private boolean realTime = false;
+	
+	/**
+	 * Space to read a report into
+	 */
+	private final int[] x    = new int[IrReportBuffer.POINTS];
+	private final int[] y    = new int[IrReportBuffer.POINTS];
+	private final int[] size = new int[IrReportBuffer.POINTS];
+	
+	/**
+	 * Opens a recording to play into a DualMoteCamera. The DualMoteCamera
+	 * should not have Wii Remotes set up.
+	 * 
+	 * @param f The file made by IrReportRecorder.
+	 * @param camera The DualMoteCamera to play it into.
+	 * @throws IOException if the file can not be read or is not a recording.
+	 */
+	public IrReportReplay(File f, DualMoteCamera camera) throws IOException
+	{
+		this.camera = camera;
+		file = new RandomAccessFile(f, "r");
+		channel = file.getChannel();
+		
+		MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, IrReportRecorder.HEADER);
+		if(header.getInt() != IrReportRecorder.MAGIC)
+		{
+			close();
+			throw new IOException(f + " is not a NuWii recording");
+		}
+		if(header.getShort() != IrReportRecorder.VERSION || header.getShort() != IrReportRecorder.RECORD)
+		{
+			close();
+			throw new IOException(f + " was recorded by a different version");
+		}
+		
+		//A file that was not closed may count fewer records than it has room for
+		long count = header.getLong();
+		long fit = (channel.size() - IrReportRecorder.HEADER) / IrReportRecorder.RECORD;
+		records = Math.min(count, fit);
+	}
+	
+	/**
+	 * Plays every report that has not been played yet. Runs on the thread 
+	 * that calls it.
+	 * 
+	 * @return The number of reports played.
+	 * @throws IOException if the file can not be read.
+	 * @throws InterruptedException if interrupted while waiting to play a
+	 * report in real time.
+	 */
+	public long replay() throws IOException, InterruptedException
+	{
+		return replay(records - played);
+	}
+	
+	/**
+	 * Plays the next reports in the file.
+	 * 
+	 * @param count The most reports to play.
+	 * @return The number of reports played.
+	 * @throws IOException if the file can not be read.
+	 * @throws InterruptedException if interrupted while waiting to play a
+	 * report in real time.
+	 */
+	public long replay(long count) throws IOException, InterruptedException
+	{
+		camera.setClock(clock);
+		
+		long start = played;
+		long end = Math.min(records, played + count);
+		long firstTime = 0, startedAt = System.nanoTime();
+		
+		while(played < end)
+		{
+			//Map a chunk of records at a time
+			long chunkRecords = Math.min(IrReportRecorder.CHUNK_RECORDS, end - played);
+			MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY,
+					IrReportRecorder.HEADER + played * IrReportRecorder.RECORD, 
+					chunkRecords * IrReportRecorder.RECORD);
+			
+			for(long r = 0; r < chunkRecords; r++)
+			{
+				long time = chunk.getLong();
+				int mote = chunk.get();
+				int points = chunk.get();
+				for(int i = 0; i < points; i++)
+				{
+					x[i] = chunk.getShort() & 0xFFFF;
+					y[i] = chunk.getShort() & 0xFFFF;
+					size[i] = chunk.getShort() & 0xFFFF;
+				}
+				
+				if(played == start)
+					firstTime = time;
+				
+				//Wait until it is time for the report
+				if(realTime)
+				{
+					long wait = (time - firstTime) - (System.nanoTime() - startedAt);
+					if(wait > 0)
+						Thread.sleep(wait / 1000000, (int)(wait % 1000000));
+				}
+				
+				clock.setTime(time);
+				camera.irReport(mote, x, y, size);
+				played++;
+			}
+		}
+		return played - start;
+	}
+	
+	/* Set and Get Methods */
+	
+	/**
+	 * Sets whether the reports are played at the speed they were recorded
+	 * or as fast as possible, which is the default. The frame times are the
+	 * recorded times either way.
+	 * @param realTime true to play at recorded speed.
+	 */
+	public void setRealTime(boolean realTime)
+	{
+		this.realTime = realTime;
+	}
+	
+	/**
+	 * Returns the number of reports in the file.
+	 * @return the number of reports
+	 */
+	public long getRecordCount()
+	{
+		return records;
+	}
+	
+	/**
+	 * Returns the number of reports played so far.
+	 * @return the number of reports played
+	 */
+	public long getPlayedCount()
+	{
+		return played;
+	}
+	
+	/**
+	 * Closes the file.
+	 * @throws IOException if the file could not be closed.
+	 */
+	public void close() throws IOException
+	{
+		channel.close();
+		file.close();
+	}
+}
@@ -0,0 +1,183 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    LatencyHistogram.java
+*/
+package dualCamera;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram counts how long something took in buckets that get wider
+ * as the times get longer, the same way an HDR histogram does. Each power of 
+ * 2 is split into SUB_BUCKETS equal buckets, so any time is counted to 
+ * within about 3% of what it really was no matter if it is 50 nanoseconds 
+ * or 5 seconds.
+ * <p>
+ * Recording a time does not lock or make any objects so it can be left on 
+ * for every report. Any number of threads can record and read at once. A
+ * read while times are being recorded may be off by the times recorded 
+ * during the read.
+ * 
+ * @author Amy Ciavolino
+ */
+public class LatencyHistogram
+{
+	/**
+	 * Each power of 2 is split into 2^SUB_BITS buckets
+	 */
+	private static final int SUB_BITS = 5;
+	public static final int SUB_BUCKETS = 1 << SUB_BITS;
+	
+	/**
+	 * Enough buckets for any positive long
+	 */
+	private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+	
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong total = new AtomicLong();
+	private final AtomicLong max = new AtomicLong();
+	
+	/**
+	 * Counts one time.
+	 * @param nanos How long it took in nanoseconds. Negative times count as 0.
+	 */
+	public void record(long nanos)
+	{
+		if(nanos < 0)
+			nanos = 0;
+		
+		counts.incrementAndGet(bucket(nanos));
+		count.incrementAndGet();
+		total.addAndGet(nanos);
+		
+		long m = max.get();
+		while(nanos > m && !max.compareAndSet(m, nanos))
+			m = max.get();
+	}
+	
+	/*
+	 * The bucket a time goes in. Times under SUB_BUCKETS get a bucket each,
+	 * after that the top SUB_BITS bits after the highest bit pick the bucket
+	 * in its power of 2.
+	 */
+	static int bucket(long nanos)
+	{
+		if(nanos < SUB_BUCKETS)
+			return (int) nanos;
+		int power = 63 - Long.numberOfLeadingZeros(nanos);
+		int sub = (int)(nanos >>> (power - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (power - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+	
+	/*
+	 * The smallest time that goes in a bucket
+	 */
+	static long lowest(int bucket)
+	{
+		if(bucket < SUB_BUCKETS)
+			return bucket;
+		int power = bucket / SUB_BUCKETS - 1 + SUB_BITS;
+		long sub = bucket % SUB_BUCKETS;
+		return (SUB_BUCKETS + sub) << (power - SUB_BITS);
+	}
+	
+	/*
+	 * How wide a bucket is
+	 */
+	static long width(int bucket)
+	{
+		if(bucket < SUB_BUCKETS)
+			return 1;
+		return 1L << (bucket / SUB_BUCKETS - 1);
+	}
+	
+	/**
+	 * Finds the time that a percent of the times were at or under. 
+	 * @param percent From 0 to 100.
+	 * @return The time in nanoseconds, the middle of its bucket, or 0 if 
+	 * nothing has been recorded.
+	 */
+	public long getPercentile(double percent)
+	{
+		long n = count.get();
+		if(n == 0)
+			return 0;
+		
+		long want = Math.max(1, (long) Math.ceil(n * Math.min(100, Math.max(0, percent)) / 100));
+		long seen = 0;
+		for(int i = 0; i < BUCKETS; i++)
+		{
+			seen += counts.get(i);
+			if(seen >= want)
+				return Math.min(lowest(i) + width(i) / 2, max.get());
+		}
+		return max.get();
+	}
+	
+	/**
+	 * Makes a copy of the numbers that can be read later or sent over JMX.
+	 * @return the snapshot
+	 */
+	public LatencySnapshot getSnapshot()
+	{
+		return new LatencySnapshot(getCount(), getMean(), getPercentile(50), getPercentile(90),
+				getPercentile(99), getPercentile(99.9), getMax());
+	}
+	
+	/**
+	 * Clears all the counts.
+	 */
+	public void reset()
+	{
+		for(int i = 0; i < BUCKETS; i++)
+			counts.set(i, 0);
+		count.set(0);
+		total.set(0);
+		max.set(0);
+	}
+	
+	/* Get Methods */
+	
+	public long getCount()
+	{
+		return count.get();
+	}
+	
+	/**
+	 * @return the longest time in nanoseconds
+	 */
+	public long getMax()
+	{
+		return max.get();
+	}
+	
+	/**
+	 * @return the average time in nanoseconds
+	 */
+	public double getMean()
+	{
+		long n = count.get();
+		return (n == 0) ? 0 : (double) total.get() / n;
+	}
+}
@@ -0,0 +1,105 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    LatencySnapshot.java
+*/
+package dualCamera;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * The numbers from a LatencyHistogram at one time. Times are in 
+ * microseconds since that is easier to read in a JMX console.
+ * 
+ * @author Amy Ciavolino
+ */
+public class LatencySnapshot
+{
+	private final long count;
+	private final double mean, p50, p90, p99, p999, max;
+	
+	/**
+	 * Makes a snapshot from times in nanoseconds.
+	 */
+	LatencySnapshot(long count, double mean, long p50, long p90, long p99, long p999, long max)
+	{
+		this(count, mean / 1000, p50 / 1000.0, p90 / 1000.0, p99 / 1000.0, p999 / 1000.0, max / 1000.0);
+	}
+	
+	/**
+	 * Makes a snapshot from times in microseconds. Used by JMX to rebuild a
+	 * snapshot on the client.
+	 */
+	@ConstructorProperties({"count", "mean", "p50", "p90", "p99", "p999", "max"})
+	public LatencySnapshot(long count, double mean, double p50, double p90, double p99, double p999, double max)
+	{
+		this.count = count;
+		this.mean = mean;
+		this.p50 = p50;
+		this.p90 = p90;
+		this.p99 = p99;
+		this.p999 = p999;
+		this.max = max;
+	}
+	
+	/* Get Methods */
+	
+	public long getCount()
+	{
+		return count;
+	}
+	
+	public double getMean()
+	{
+		return mean;
+	}
+	
+	public double getP50()
+	{
+		return p50;
+	}
+	
+	public double getP90()
+	{
+		return p90;
+	}
+	
+	public double getP99()
+	{
+		return p99;
+	}
+	
+	public double getP999()
+	{
+		return p999;
+	}
+	
+	public double getMax()
+	{
+		return max;
+	}
+	
+	public String toString()
+	{
+		return String.format("n=%d mean=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+				count, mean, p50, p90, p99, p999, max);
+	}
+}
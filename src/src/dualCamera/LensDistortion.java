@@ -0,0 +1,158 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    LensDistortion.java
+*/
+package dualCamera;
+
+/**
+ * LensDistortion is how far the lens of a Wii Remote camera bends points
+ * away from where a perfect camera would see them, which is worst near the
+ * edges of the image. It uses the radial and tangential model of Brown on
+ * the tangents of the angles, the same X and Y a RayTable ray has before it
+ * is rotated:
+ * <blockquote><pre>
+ *    r2 = x*x + y*y
+ *    xd = x * (1 + k1*r2 + k2*r2*r2) + 2*p1*x*y + p2*(r2 + 2*x*x)
+ *    yd = y * (1 + k1*r2 + k2*r2*r2) + p1*(r2 + 2*y*y) + 2*p2*x*y
+ * </pre></blockquote>
+ * There is no closed form for going back from (xd, yd) to (x, y), so 
+ * undistort works it out by iterating. RayTable does that once for every
+ * pixel when it is built so finding a ray stays a table read.
+ * <p>
+ * The coefficients can be solved for with CalibrationSolver.
+ * 
+ * @author Jason Creighton
+ */
+public class LensDistortion
+{
+	/**
+	 * A perfect lens
+	 */
+	public static final LensDistortion NONE = new LensDistortion(0, 0, 0, 0);
+	
+	/**
+	 * How many times undistort iterates at most and how close it needs to 
+	 * get to stop early
+	 */
+	private static final int ITERATIONS = 20;
+	private static final double TOLERANCE = 1e-14;
+	
+	private final double k1, k2, p1, p2;
+	
+	/**
+	 * Makes a distortion from its coefficients.
+	 * @param k1 The first radial coefficient.
+	 * @param k2 The second radial coefficient.
+	 * @param p1 The first tangential coefficient.
+	 * @param p2 The second tangential coefficient.
+	 */
+	public LensDistortion(double k1, double k2, double p1, double p2)
+	{
+		this.k1 = k1;
+		this.k2 = k2;
+		this.p1 = p1;
+		this.p2 = p2;
+	}
+	
+	/**
+	 * Returns whether this is a perfect lens, so there is nothing to correct.
+	 * @return true if every coefficient is 0.
+	 */
+	public boolean isNone()
+	{
+		return k1 == 0 && k2 == 0 && p1 == 0 && p2 == 0;
+	}
+	
+	/**
+	 * Finds where the lens moves a point to.
+	 * @param x The X tangent a perfect camera would see.
+	 * @param y The Y tangent a perfect camera would see.
+	 * @param out An array of at least 2 the X and Y the camera sees are put in.
+	 */
+	public void distort(double x, double y, double[] out)
+	{
+		double r2 = x * x + y * y;
+		double radial = 1 + k1 * r2 + k2 * r2 * r2;
+		out[0] = x * radial + 2 * p1 * x * y + p2 * (r2 + 2 * x * x);
+		out[1] = y * radial + p1 * (r2 + 2 * y * y) + 2 * p2 * x * y;
+	}
+	
+	/**
+	 * Finds where a point the camera saw would have been without the lens.
+	 * Iterates from the point seen, taking the lens off at the current guess
+	 * each time.
+	 * @param xd The X tangent the camera sees.
+	 * @param yd The Y tangent the camera sees.
+	 * @param out An array of at least 2 the X and Y a perfect camera would
+	 * see are put in.
+	 */
+	public void undistort(double xd, double yd, double[] out)
+	{
+		double x = xd, y = yd;
+		if(!isNone())
+		{
+			for(int i = 0; i < ITERATIONS; i++)
+			{
+				double r2 = x * x + y * y;
+				double radial = 1 + k1 * r2 + k2 * r2 * r2;
+				double nx = (xd - 2 * p1 * x * y - p2 * (r2 + 2 * x * x)) / radial;
+				double ny = (yd - p1 * (r2 + 2 * y * y) - 2 * p2 * x * y) / radial;
+				
+				double change = Math.abs(nx - x) + Math.abs(ny - y);
+				x = nx;
+				y = ny;
+				if(change < TOLERANCE)
+					break;
+			}
+		}
+		out[0] = x;
+		out[1] = y;
+	}
+	
+	/* Get Methods */
+	
+	public double getK1()
+	{
+		return k1;
+	}
+	
+	public double getK2()
+	{
+		return k2;
+	}
+	
+	public double getP1()
+	{
+		return p1;
+	}
+	
+	public double getP2()
+	{
+		return p2;
+	}
+	
+	@Override
+	public String toString()
+	{
+		return String.format("k1 %.4g, k2 %.4g, p1 %.4g, p2 %.4g", k1, k2, p1, p2);
+	}
+}
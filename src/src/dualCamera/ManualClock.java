@@ -0,0 +1,76 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    ManualClock.java
+*/
+package dualCamera;
+
+/**
+ * ManualClock is a FrameClock that only changes when it is set. Replays and
+ * simulations set it to the time of each report before passing the report 
+ * in, so the frames get exactly the same times every run.
+ * 
+ * @author Amy Ciavolino
+ */
+public class ManualClock implements FrameClock
+{
+	private volatile long time;
+	
+	/**
+	 * Makes a clock starting at 0
+	 */
+	public ManualClock()
+	{
+		this(0);
+	}
+	
+	/**
+	 * Makes a clock starting at the time given
+	 * @param time The starting time in nanoseconds.
+	 */
+	public ManualClock(long time)
+	{
+		this.time = time;
+	}
+	
+	public long nanoTime()
+	{
+		return time;
+	}
+	
+	/**
+	 * Sets the time
+	 * @param time The time in nanoseconds.
+	 */
+	public void setTime(long time)
+	{
+		this.time = time;
+	}
+	
+	/**
+	 * Moves the time forward
+	 * @param nanos How far to move it in nanoseconds.
+	 */
+	public void advance(long nanos)
+	{
+		time += nanos;
+	}
+}
@@ -0,0 +1,590 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    MoteSupervisor.java
+*/
+package dualCamera;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import motej.Mote;
+import util.MoteDiscovery;
+import util.MultiMoteFinder;
+
+/**
+ * MoteSupervisor watches the Wii Remotes of a DualMoteCamera and gets them 
+ * back when they drop, so the program does not need to be restarted. A mote
+ * needs recovering when it disconnects, or when it has not reported for the
+ * stall time and its report mode reports all the time. A report mode 
+ * without the accelerometer, such as the one IrCameraConfig.TWO_MARKERS 
+ * uses, can go quiet while nothing is in view, so then only a disconnect
+ * counts. See IrCameraConfig.isStreaming.
+ * <p>
+ * Recovery tries, in order:
+ * <ol>
+ * <li>Setting the same mote up again, if it did not disconnect. This fixes
+ * a report stream that stopped.</li>
+ * <li>Disconnecting the mote and connecting to it again by its Bluetooth
+ * address.</li>
+ * <li>Discovering one new mote. Press 1 and 2 on the lost mote, or on any 
+ * other mote to use it instead.</li>
+ * </ol>
+ * Each side is recovered on a thread of its own, so one mote being 
+ * recovered does not stop the other from being checked. Only discovery is
+ * done one side at a time since both would be searching for the same motes.
+ * Each new mote is set up with initializeMote and put in place of the lost 
+ * one, so the camera's listeners, gestures and tracked markers carry on. A
+ * step only counts once the mote reports, or once it is set up when its 
+ * report mode can go quiet. Recovery of one mote gives up after
+ * the timeout and is tried again on the next check, until the supervisor is
+ * stopped. Steps are skipped once the timeout has run out, and connecting 
+ * by address, which can block for as long as Bluetooth takes to give up, 
+ * is only waited on until the timeout. A connection that comes in after 
+ * that is closed. The time from noticing the mote was lost to its first report is 
+ * kept in getRecoveryTimes().
+ * <p>
+ * Motes disconnected with disconnectMotes() are not recovered.
+ * 
+ * @author Amy Ciavolino
+ */
+public class MoteSupervisor
+{
+	/**
+	 * Told when a mote is lost and how recovering it went. Called on the 
+	 * thread recovering that side.
+	 */
+	public interface Listener
+	{
+		/**
+		 * The mote disconnected or stopped reporting.
+		 * @param side LEFT or RIGHT
+		 */
+		public void moteLost(int side);
+		
+		/**
+		 * The mote, or one in its place, is reporting again.
+		 * @param side LEFT or RIGHT
+		 * @param nanos How long it took from noticing it was lost.
+		 */
+		public void moteRecovered(int side, long nanos);
+		
+		/**
+		 * Every step ran out of time. It will be tried again.
+		 * @param side LEFT or RIGHT
+		 */
+		public void recoveryFailed(int side);
+	}
+	
+	/**
+	 * Defaults, in milliseconds. A Wii Remote reports about 100 times a 
+	 * second, so a half second with no report means it has stopped.
+	 */
+	public static final long DFLT_STALL_MILLIS   = 500;
+	public static final long DFLT_TIMEOUT_MILLIS = 30000;
+	
+	/**
+	 * How often the motes are checked and how often a new mote is checked 
+	 * for its first report, in milliseconds
+	 */
+	private static final long CHECK_MILLIS  = 100;
+	private static final long REPORT_MILLIS = 5;
+	
+	private final DualMoteCamera camera;
+	private final Listener listener;
+	
+	private volatile long stall_millis = DFLT_STALL_MILLIS;
+	private volatile long timeout_millis = DFLT_TIMEOUT_MILLIS;
+	
+	private final LatencyHistogram recovery_times = new LatencyHistogram();
+	
+	private ScheduledExecutorService checker;
+	
+	/**
+	 * Runs the recovery of each side, and whether each is recovering
+	 */
+	private volatile ExecutorService[] recoverers;
+	private final AtomicBoolean[] recovering = { new AtomicBoolean(), new AtomicBoolean() };
+	
+	/**
+	 * Held while discovering so the two sides do not search at once
+	 */
+	private final Object discovery_lock = new Object();
+	
+	/**
+	 * Connects by address so the wait for it can be cut off. Its threads 
+	 * end on their own once they are idle.
+	 */
+	private final ExecutorService connector = Executors.newCachedThreadPool(daemon("MoteSupervisor connect"));
+	
+	/**
+	 * Makes a supervisor that prints what happens.
+	 * @param camera The camera to watch.
+	 */
+	public MoteSupervisor(DualMoteCamera camera)
+	{
+		this(camera, null);
+	}
+	
+	/**
+	 * Makes a supervisor.
+	 * @param camera The camera to watch.
+	 * @param listener Told what happens, or null to print it.
+	 */
+	public MoteSupervisor(DualMoteCamera camera, Listener listener)
+	{
+		this.camera = camera;
+		this.listener = (listener != null) ? listener : PRINTER;
+	}
+	
+	/**
+	 * Starts watching the motes on a thread of its own. Does nothing if it
+	 * is already watching.
+	 */
+	public synchronized void start()
+	{
+		if(checker != null)
+			return;
+		
+		checker = Executors.newSingleThreadScheduledExecutor(daemon("MoteSupervisor"));
+		recoverers = new ExecutorService[] {
+				Executors.newSingleThreadExecutor(daemon("MoteSupervisor left")),
+				Executors.newSingleThreadExecutor(daemon("MoteSupervisor right")) };
+		checker.scheduleWithFixedDelay(new Runnable() {
+			
+			public void run()
+			{
+				check();
+			}
+		}, CHECK_MILLIS, CHECK_MILLIS, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * Stops watching. A recovery that is going on is interrupted.
+	 */
+	public synchronized void stop()
+	{
+		if(checker != null)
+		{
+			checker.shutdownNow();
+			for(ExecutorService e : recoverers)
+				e.shutdownNow();
+		}
+		checker = null;
+		recoverers = null;
+	}
+	
+	private static ThreadFactory daemon(final String name)
+	{
+		return new ThreadFactory() {
+			
+			public Thread newThread(Runnable r)
+			{
+				Thread t = new Thread(r, name);
+				t.setDaemon(true);
+				return t;
+			}
+		};
+	}
+	
+	/**
+	 * Checks both motes once and starts recovering any that need it and are
+	 * not already being recovered. Normally run by start(). When not started
+	 * the recovery runs on the calling thread.
+	 */
+	void check()
+	{
+		boolean streaming = camera.getIrCameraConfig().isStreaming();
+		for(int side = DualMoteCamera.LEFT; side <= DualMoteCamera.RIGHT; side++)
+		{
+			Mote mote = camera.getMote(side);
+			
+			//Not set up, or disconnected on purpose
+			if(mote == null)
+				continue;
+			
+			boolean lost = camera.isMoteLost(side);
+			long quiet = System.nanoTime() - Math.max(camera.getLastReport(side), camera.getSetUpTime(side));
+			boolean stalled = streaming && quiet > TimeUnit.MILLISECONDS.toNanos(stall_millis);
+			if(lost || stalled)
+			{
+				if(Thread.currentThread().isInterrupted())
+					return;
+				startRecovery(side, mote, lost);
+			}
+		}
+	}
+	
+	/*
+	 * Recovers a side on its own thread unless it is already recovering
+	 */
+	private void startRecovery(final int side, final Mote mote, final boolean lost)
+	{
+		if(!recovering[side].compareAndSet(false, true))
+			return;
+		
+		Runnable recovery = new Runnable() {
+			
+			public void run()
+			{
+				try
+				{
+					recover(side, mote, lost);
+				}
+				finally
+				{
+					recovering[side].set(false);
+				}
+			}
+		};
+		
+		ExecutorService[] r = recoverers;
+		if(r == null)
+		{
+			recovery.run();
+			return;
+		}
+		try
+		{
+			r[side].execute(recovery);
+		}
+		catch (RejectedExecutionException e)
+		{
+			//Stopped
+			recovering[side].set(false);
+		}
+	}
+	
+	/*
+	 * Runs the steps until one gets a report or the timeout runs out.
+	 */
+	private void recover(int side, Mote mote, boolean lost)
+	{
+		long start = System.nanoTime();
+		long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeout_millis);
+		listener.moteLost(side);
+		
+		boolean back = false;
+		try
+		{
+			if(!lost)
+				back = splice(side, mote, deadline);
+			
+			//A stalled mote still holds its connection, which has to be 
+			//closed before the address can be connected to again
+			String address = mote.getBluetoothAddress();
+			if(!back)
+				disconnect(mote);
+			if(!back && address != null)
+				back = splice(side, connect(address, deadline), deadline);
+			
+			if(!back)
+				back = splice(side, discover(side, deadline), deadline);
+		}
+		catch (InterruptedException e)
+		{
+			//Stopped
+			Thread.currentThread().interrupt();
+			return;
+		}
+		
+		if(back)
+		{
+			long nanos = System.nanoTime() - start;
+			recovery_times.record(nanos);
+			listener.moteRecovered(side, nanos);
+		}
+		else
+			listener.recoveryFailed(side);
+	}
+	
+	/*
+	 * Puts the mote in place and waits for its first report, if its report
+	 * mode reports all the time. Returns false if there is no mote, the 
+	 * camera was disconnected, or it did not report in time.
+	 */
+	private boolean splice(int side, Mote mote, long deadline) throws InterruptedException
+	{
+		if(mote == null)
+			return false;
+		
+		synchronized(camera)
+		{
+			if(camera.getMote(side) == null)
+			{
+				//disconnectMotes was called while looking
+				mote.disconnect();
+				return false;
+			}
+			try
+			{
+				camera.replaceMote(side, mote);
+			}
+			catch (RuntimeException e)
+			{
+				System.out.println("Could not set up Wii Remote: " + e);
+				return false;
+			}
+		}
+		
+		//A mote that can go quiet is back once it is set up without dropping
+		if(!camera.getIrCameraConfig().isStreaming())
+			return !camera.isMoteLost(side);
+		
+		long spliced = camera.getSetUpTime(side);
+		long wait = Math.min(deadline - System.nanoTime(), TimeUnit.MILLISECONDS.toNanos(stall_millis));
+		long until = System.nanoTime() + wait;
+		while(camera.getLastReport(side) <= spliced)
+		{
+			if(System.nanoTime() - until >= 0 || camera.isMoteLost(side))
+				return false;
+			Thread.sleep(REPORT_MILLIS);
+		}
+		return true;
+	}
+	
+	private static void disconnect(Mote mote)
+	{
+		try
+		{
+			mote.disconnect();
+		}
+		catch (RuntimeException e)
+		{
+			//It is already gone
+		}
+	}
+	
+	/*
+	 * Connects to a mote by address, null if it can not be reached before 
+	 * the deadline
+	 */
+	private Mote connect(final String address, long deadline) throws InterruptedException
+	{
+		long wait = deadline - System.nanoTime();
+		if(wait <= 0)
+			return null;
+		
+		//Whoever sets this first decides if the mote is used or closed
+		final AtomicBoolean taken = new AtomicBoolean(false);
+		Future<Mote> connecting;
+		try
+		{
+			connecting = connector.submit(new Callable<Mote>() {
+				
+				public Mote call()
+				{
+					Mote mote = new Mote(address);
+					if(!taken.compareAndSet(false, true))
+					{
+						//Given up on, so it is not wanted
+						disconnect(mote);
+						return null;
+					}
+					return mote;
+				}
+			});
+		}
+		catch (RejectedExecutionException e)
+		{
+			return null;
+		}
+		
+		try
+		{
+			return connecting.get(wait, TimeUnit.NANOSECONDS);
+		}
+		catch (TimeoutException e)
+		{
+			if(taken.compareAndSet(false, true))
+				return null;
+			
+			//It connected just as the wait ran out
+			return get(connecting);
+		}
+		catch (InterruptedException e)
+		{
+			if(!taken.compareAndSet(false, true))
+			{
+				Mote late = get(connecting);
+				if(late != null)
+					disconnect(late);
+			}
+			throw e;
+		}
+		catch (ExecutionException e)
+		{
+			return null;
+		}
+	}
+	
+	/*
+	 * The mote from a connect that has finished or is about to
+	 */
+	private static Mote get(Future<Mote> connecting)
+	{
+		boolean interrupted = false;
+		try
+		{
+			for(;;)
+			{
+				try
+				{
+					return connecting.get();
+				}
+				catch (InterruptedException e)
+				{
+					interrupted = true;
+				}
+				catch (ExecutionException e)
+				{
+					return null;
+				}
+			}
+		}
+		finally
+		{
+			if(interrupted)
+				Thread.currentThread().interrupt();
+		}
+	}
+	
+	/*
+	 * Discovers one new mote that is not the other side's, null if none 
+	 * is found before the deadline
+	 */
+	private Mote discover(int side, long deadline) throws InterruptedException
+	{
+		List<Mote> found;
+		synchronized(discovery_lock)
+		{
+			long wait = deadline - System.nanoTime();
+			if(wait <= 0)
+				return null;
+			
+			MoteDiscovery<Mote> discovery = MultiMoteFinder.findMotes(1, wait, TimeUnit.NANOSECONDS, null);
+			try
+			{
+				found = discovery.get();
+			}
+			catch (InterruptedException e)
+			{
+				discovery.cancel(true);
+				throw e;
+			}
+			catch (ExecutionException e)
+			{
+				//Timed out or Bluetooth failed
+				for(Mote m : discovery.getFound())
+					m.disconnect();
+				return null;
+			}
+		}
+		
+		Mote mote = found.get(0);
+		Mote other = camera.getMote(1 - side);
+		if(other != null && other.getBluetoothAddress() != null 
+				&& other.getBluetoothAddress().equals(mote.getBluetoothAddress()))
+			return null;
+		return mote;
+	}
+	
+	/* Set Methods */
+	
+	/**
+	 * Sets how long a mote can go without reporting before it is recovered.
+	 * @param millis The stall time in milliseconds.
+	 */
+	public void setStallTime(long millis)
+	{
+		if(millis > 0)
+			stall_millis = millis;
+	}
+	
+	/**
+	 * Sets how long recovering one mote can take before it gives up and 
+	 * tries again.
+	 * @param millis The timeout in milliseconds.
+	 */
+	public void setTimeout(long millis)
+	{
+		if(millis > 0)
+			timeout_millis = millis;
+	}
+	
+	/* Get Methods */
+	
+	public long getStallTime()
+	{
+		return stall_millis;
+	}
+	
+	public long getTimeout()
+	{
+		return timeout_millis;
+	}
+	
+	/**
+	 * Returns how long each recovery took, from noticing the mote was lost
+	 * until it reported again.
+	 * @return the recovery times.
+	 */
+	public LatencyHistogram getRecoveryTimes()
+	{
+		return recovery_times;
+	}
+	
+	/**
+	 * Prints what happens
+	 */
+	private static final Listener PRINTER = new Listener() {
+		
+		public void moteLost(int side)
+		{
+			System.out.println("Lost the " + name(side) + " Wii Remote, reconnecting");
+		}
+		
+		public void moteRecovered(int side, long nanos)
+		{
+			System.out.println("The " + name(side) + " Wii Remote is back after " + nanos / 1000000 + " ms");
+		}
+		
+		public void recoveryFailed(int side)
+		{
+			System.out.println("Could not get the " + name(side) + " Wii Remote back, still trying");
+		}
+		
+		private String name(int side)
+		{
+			return (side == DualMoteCamera.LEFT) ? "left" : "right";
+		}
+	};
+}
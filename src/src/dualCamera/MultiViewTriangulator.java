@@ -0,0 +1,128 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    MultiViewTriangulator.java
+*/
+package dualCamera;
+
+import util.Find3DPoint;
+import util.MultiRayIntersection;
+import util.XYZ;
+
+/**
+ * MultiViewTriangulator finds a point from what any number of Wii Remote 
+ * cameras saw, each with its own RayTable. A point seen by more cameras is 
+ * less likely to be lost behind a hand, and a third camera that is not on 
+ * the same line as the others tells apart points that are on the same Y 
+ * plane for the first two.
+ * <p>
+ * Every camera that saw the point adds its ray to a MultiRayIntersection,
+ * so the work grows with the number of cameras and nothing is made. The 
+ * error is comparable to the error from getRealCoordinates. 
+ * 
+ * @author Jason Creighton
+ */
+public class MultiViewTriangulator
+{
+	private final RayTable[] cameras;
+	private final MultiRayIntersection rays = new MultiRayIntersection();
+	private final double[] dir = new double[3];
+	
+	/**
+	 * Makes a triangulator for a set of cameras.
+	 * @param cameras The RayTable of each camera.
+	 */
+	public MultiViewTriangulator(RayTable... cameras)
+	{
+		this.cameras = cameras.clone();
+	}
+	
+	/**
+	 * Finds the point seen at a pixel in each camera. Cameras that did not 
+	 * see the point should have an X of 1023, the same as the Wii Remote 
+	 * gives.
+	 * 
+	 * @param px The X pixel from each camera.
+	 * @param py The Y pixel from each camera.
+	 * @param out An array of at least 4 to put the point and the error in,
+	 * the same as Find3DPoint.
+	 * @return false if less than 2 cameras saw the point or their rays are 
+	 * parallel.
+	 */
+	public boolean triangulate(double[] px, double[] py, double[] out)
+	{
+		rays.reset();
+		for(int i = 0; i < cameras.length; i++)
+		{
+			if(px[i] == IrReportBuffer.NOT_FOUND)
+				continue;
+			RayTable camera = cameras[i];
+			camera.rayDirection(px[i], py[i], dir);
+			rays.addRay(camera.getOriginX(), camera.getOriginY(), camera.getOriginZ(),
+					dir[XYZ.X], dir[XYZ.Y], dir[XYZ.Z]);
+		}
+		return rays.solve(out);
+	}
+	
+	/**
+	 * The same as triangulate but makes an XYZ like getRealCoordinates.
+	 * @param px The X pixel from each camera.
+	 * @param py The Y pixel from each camera.
+	 * @return the point with its error set, or null if there is no point.
+	 */
+	public XYZ triangulate(double[] px, double[] py)
+	{
+		double[] out = new double[4];
+		if(!triangulate(px, py, out))
+			return null;
+		XYZ point = new XYZ(out[XYZ.X], out[XYZ.Y], out[XYZ.Z], out[Find3DPoint.GAP]);
+		point.setError(out[Find3DPoint.GAP]);
+		return point;
+	}
+	
+	/**
+	 * Returns how many rays went into the last point.
+	 * @return the number of cameras that saw the last point
+	 */
+	public int getRayCount()
+	{
+		return rays.getRayCount();
+	}
+	
+	/**
+	 * Returns how many cameras there are.
+	 * @return the number of cameras
+	 */
+	public int getCameraCount()
+	{
+		return cameras.length;
+	}
+	
+	/**
+	 * Returns the rays for one camera.
+	 * @param camera The index of the camera.
+	 * @return the RayTable
+	 */
+	public RayTable getCamera(int camera)
+	{
+		return cameras[camera];
+	}
+}
@@ -0,0 +1,183 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    OneEuroFilter.java
+*/
+package dualCamera;
+
+/**
+ * OneEuroFilter smooths one value, such as one axis of a point, that comes
+ * in at uneven times. It is a low pass filter whose cutoff goes up with the
+ * speed of the value: when the value is still, a low cutoff takes out the 
+ * jitter, and when it moves fast, a high cutoff keeps the lag down. See 
+ * Casiez, Roussel and Vogel, "1 Euro Filter: A Simple Speed-based Low-pass
+ * Filter for Noisy Input in Interactive Systems", CHI 2012.
+ * <p>
+ * To tune it, start with beta at 0 and lower the minimum cutoff until the 
+ * jitter at rest is gone, then raise beta until fast moves stop lagging.
+ * Each call to filter only does a few multiplies, nothing is allocated.
+ * 
+ * @author Jason Creighton
+ */
+public class OneEuroFilter
+{
+	/**
+	 * Defaults for the cutoffs, in Hz, and beta, in Hz per unit per second. 
+	 * Beta is for points in mm.
+	 */
+	public static final double DFLT_MIN_CUTOFF = 1.0;
+	public static final double DFLT_BETA = 0.01;
+	public static final double DFLT_DERIVATE_CUTOFF = 1.0;
+	
+	private double min_cutoff = DFLT_MIN_CUTOFF;
+	private double beta = DFLT_BETA;
+	private double derivate_cutoff = DFLT_DERIVATE_CUTOFF;
+	
+	/**
+	 * The last value, filtered and not, the filtered speed and the time of 
+	 * the last value
+	 */
+	private double value;
+	private double raw;
+	private double speed;
+	private long time;
+	private boolean started = false;
+	
+	/**
+	 * Makes a filter with the default cutoffs and beta.
+	 */
+	public OneEuroFilter()
+	{
+	}
+	
+	/**
+	 * Makes a filter.
+	 * @param min_cutoff The cutoff when the value is still, in Hz.
+	 * @param beta How much the cutoff goes up with the speed.
+	 * @param derivate_cutoff The cutoff for the speed, in Hz.
+	 */
+	public OneEuroFilter(double min_cutoff, double beta, double derivate_cutoff)
+	{
+		setMinCutoff(min_cutoff);
+		setBeta(beta);
+		setDerivateCutoff(derivate_cutoff);
+	}
+	
+	/**
+	 * Filters the next value. The first value after a reset is returned as 
+	 * is. A value at or before the time of the last one does not change the
+	 * filter and the last filtered value is returned.
+	 * @param x The value.
+	 * @param nanos When the value was measured, from System.nanoTime().
+	 * @return the filtered value.
+	 */
+	public double filter(double x, long nanos)
+	{
+		if(!started)
+		{
+			value = raw = x;
+			speed = 0;
+			time = nanos;
+			started = true;
+			return x;
+		}
+		if(nanos <= time)
+			return value;
+		
+		double seconds = (nanos - time) / 1e9;
+		time = nanos;
+		
+		speed += alpha(derivate_cutoff, seconds) * ((x - raw) / seconds - speed);
+		raw = x;
+		double cutoff = min_cutoff + beta * Math.abs(speed);
+		value += alpha(cutoff, seconds) * (x - value);
+		return value;
+	}
+	
+	/*
+	 * How much of the new value an exponential smoother with the cutoff 
+	 * takes after the time given
+	 */
+	private static double alpha(double cutoff, double seconds)
+	{
+		double tau = 1 / (2 * Math.PI * cutoff);
+		return 1 / (1 + tau / seconds);
+	}
+	
+	/**
+	 * Forgets the past values so the next one starts the filter again.
+	 */
+	public void reset()
+	{
+		started = false;
+	}
+	
+	/* Set Methods */
+	
+	/**
+	 * Sets the cutoff when the value is still. Lower takes out more jitter 
+	 * but lags more. Must be positive.
+	 * @param hz The cutoff in Hz.
+	 */
+	public void setMinCutoff(double hz)
+	{
+		if(hz > 0)
+			min_cutoff = hz;
+	}
+	
+	/**
+	 * Sets how much the cutoff goes up for each unit per second the value 
+	 * moves. Higher lags less when moving fast. Must not be negative.
+	 * @param beta The increase in Hz per unit per second.
+	 */
+	public void setBeta(double beta)
+	{
+		if(beta >= 0)
+			this.beta = beta;
+	}
+	
+	/**
+	 * Sets the cutoff for the speed used to pick the cutoff. Must be positive.
+	 * @param hz The cutoff in Hz.
+	 */
+	public void setDerivateCutoff(double hz)
+	{
+		if(hz > 0)
+			derivate_cutoff = hz;
+	}
+	
+	/* Get Methods */
+	
+	public double getMinCutoff()
+	{
+		return min_cutoff;
+	}
+	
+	public double getBeta()
+	{
+		return beta;
+	}
+	
+	public double getDerivateCutoff()
+	{
+		return derivate_cutoff;
+	}
+}
@@ -0,0 +1,161 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    PinchRecognizer.java
+*/
+package dualCamera;
+
+import util.XYZ;
+
+/**
+ * PinchRecognizer finds the first two markers being brought together until
+ * the cameras see them as one, and coming apart again. A PINCH is fired when
+ * the two points were closer than the threshold and then only one is found,
+ * at the one that is left. An UNPINCH is fired when both are found again 
+ * after a pinch, at the first point. The velocity is how fast the point was
+ * moving since the last frame.
+ * <p>
+ * This is the pinch gestureLook used to look for, moved out of 
+ * DualMoteCamera.
+ * 
+ * @author Amy Ciavolino
+ */
+public class PinchRecognizer implements GestureRecognizer
+{
+	/**
+	 * The default threshold in mm
+	 */
+	public static final double DFLT_THRESHOLD = 70;
+	
+	private double threshold = DFLT_THRESHOLD;
+	
+	/**
+	 * The distance between the points the last time both were found
+	 */
+	private double last_distance = Double.POSITIVE_INFINITY;
+	private boolean pinched = false;
+	
+	/**
+	 * Where the point was last frame and when, for the velocity
+	 */
+	private final double[] previous = new double[3];
+	private long previous_time;
+	private boolean has_previous = false;
+	
+	private final double[] point = new double[3];
+	
+	public void update(DualCameraFrame frame, GestureEngine engine)
+	{
+		boolean first = frame.isFound(0), second = frame.isFound(1);
+		long time = frame.getTime();
+		
+		if(first && second)
+		{
+			double dx = frame.getX(0) - frame.getX(1);
+			double dy = frame.getY(0) - frame.getY(1);
+			double dz = frame.getZ(0) - frame.getZ(1);
+			
+			set(frame, 0);
+			if(pinched)
+			{
+				pinched = false;
+				fire(engine, GestureEvent.UNPINCH, time);
+			}
+			last_distance = Math.sqrt(dx * dx + dy * dy + dz * dz);
+		}
+		else if(first || second)
+		{
+			set(frame, first ? 0 : 1);
+			if(!pinched && last_distance < threshold)
+			{
+				pinched = true;
+				fire(engine, GestureEvent.PINCH, time);
+			}
+		}
+		else
+		{
+			has_previous = false;
+			return;
+		}
+		
+		System.arraycopy(point, 0, previous, 0, 3);
+		previous_time = time;
+		has_previous = true;
+	}
+	
+	private void set(DualCameraFrame frame, int i)
+	{
+		point[XYZ.X] = frame.getX(i);
+		point[XYZ.Y] = frame.getY(i);
+		point[XYZ.Z] = frame.getZ(i);
+	}
+	
+	private void fire(GestureEngine engine, String name, long time)
+	{
+		double seconds = (time - previous_time) / 1e9;
+		double vx = 0, vy = 0, vz = 0;
+		if(has_previous && seconds > 0)
+		{
+			vx = (point[XYZ.X] - previous[XYZ.X]) / seconds;
+			vy = (point[XYZ.Y] - previous[XYZ.Y]) / seconds;
+			vz = (point[XYZ.Z] - previous[XYZ.Z]) / seconds;
+		}
+		
+		engine.fire(new GestureEvent(this, name, time, point[XYZ.X], point[XYZ.Y], point[XYZ.Z],
+				vx, vy, vz, GestureEvent.NO_AXIS, 0, null));
+	}
+	
+	public void reset()
+	{
+		last_distance = Double.POSITIVE_INFINITY;
+		pinched = false;
+		has_previous = false;
+	}
+	
+	/**
+	 * Returns whether the points are pinched together now.
+	 * @return true between a PINCH and an UNPINCH.
+	 */
+	public boolean isPinched()
+	{
+		return pinched;
+	}
+	
+	/* Set Methods */
+	
+	/**
+	 * Sets how close the points must be before one is lost for it to be a
+	 * pinch. Must be positive.
+	 * @param threshold The distance in the units of the DualMoteCamera.
+	 */
+	public void setThreshold(double threshold)
+	{
+		if(threshold > 0)
+			this.threshold = threshold;
+	}
+	
+	/* Get Methods */
+	
+	public double getThreshold()
+	{
+		return threshold;
+	}
+}
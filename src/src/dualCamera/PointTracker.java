@@ -0,0 +1,391 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    PointTracker.java
+*/
+package dualCamera;
+
+import util.XYZ;
+
+/**
+ * PointTracker keeps track of which point is which from frame to frame and
+ * gives each marker an ID that stays the same while it is tracked. 
+ * <p>
+ * Each marker has a constant velocity Kalman filter for each of X, Y and Z.
+ * Before a frame the filter predicts where each marker will be. A new point 
+ * is only given to a marker if it is close to the prediction, measured in 
+ * standard deviations of the prediction so the allowed distance grows while
+ * a marker can not be seen. A marker that is not seen, like when a camera 
+ * reports 1023, keeps its ID for a number of frames and then is dropped. 
+ * Points that are not close to any marker start a new marker with a new ID.
+ * <p>
+ * Everything is kept in arrays made when the tracker is made so nothing is
+ * made while tracking. The default noise values assume the points are in mm.
+ * A PointTracker is not thread safe.
+ * 
+ * @author Amy Ciavolino
+ */
+public class PointTracker
+{
+	/**
+	 * The most markers that can be tracked
+	 */
+	public static final int MAX_TRACKS = IrReportBuffer.POINTS;
+	
+	/**
+	 * The ID given to a point that is not tracked
+	 */
+	public static final int NO_ID = -1;
+	
+	/**
+	 * Defaults for the filter. Noise values are variances.
+	 */
+	public static final double DFLT_PROCESS_NOISE = 4e8;     // (20000 mm/s^2)^2
+	public static final double DFLT_MEASUREMENT_NOISE = 25;  // (5 mm)^2
+	public static final double DFLT_VELOCITY_NOISE = 1e6;    // (1000 mm/s)^2 for a new marker
+	public static final double DFLT_GATE = 16;               // squared standard deviations
+	public static final int DFLT_MAX_MISSED = 30;
+	
+	private double processNoise = DFLT_PROCESS_NOISE;
+	private double measurementNoise = DFLT_MEASUREMENT_NOISE;
+	private double velocityNoise = DFLT_VELOCITY_NOISE;
+	private double gate = DFLT_GATE;
+	private int maxMissed = DFLT_MAX_MISSED;
+	
+	/**
+	 * The state of each marker. Position, velocity and covariance are kept
+	 * for each axis, 3 values per marker.
+	 */
+	private final boolean[] active = new boolean[MAX_TRACKS];
+	private final int[] id = new int[MAX_TRACKS];
+	private final int[] missed = new int[MAX_TRACKS];
+	private final double[] position = new double[MAX_TRACKS * 3];
+	private final double[] velocity = new double[MAX_TRACKS * 3];
+	private final double[] p00 = new double[MAX_TRACKS * 3];
+	private final double[] p01 = new double[MAX_TRACKS * 3];
+	private final double[] p11 = new double[MAX_TRACKS * 3];
+	
+	/**
+	 * Which marker each point and each marker was given to while updating
+	 */
+	private final int[] point_track = new int[MAX_TRACKS];
+	private final boolean[] track_used = new boolean[MAX_TRACKS];
+	
+	private int nextId = 0;
+	private long lastTime = 0;
+	private boolean started = false;
+	
+	/**
+	 * Moves every marker forward to the time given. Call once before each
+	 * frame is updated.
+	 * @param time The time of the frame in nanoseconds.
+	 */
+	public void predict(long time)
+	{
+		double dt = started ? (time - lastTime) / 1e9 : 0;
+		lastTime = time;
+		started = true;
+		if(dt <= 0)
+			return;
+		
+		double dt2 = dt * dt;
+		double q00 = processNoise * dt2 * dt2 / 4;
+		double q01 = processNoise * dt2 * dt / 2;
+		double q11 = processNoise * dt2;
+		
+		for(int t = 0; t < MAX_TRACKS; t++)
+		{
+			if(!active[t])
+				continue;
+			for(int a = t * 3; a < t * 3 + 3; a++)
+			{
+				position[a] += velocity[a] * dt;
+				
+				//P = F P F' + Q where F = [1 dt; 0 1]
+				double n00 = p00[a] + 2 * dt * p01[a] + dt2 * p11[a] + q00;
+				double n01 = p01[a] + dt * p11[a] + q01;
+				p00[a] = n00;
+				p01[a] = n01;
+				p11[a] += q11;
+			}
+		}
+	}
+	
+	/**
+	 * Returns how far a point is from the closest predicted marker, in the 
+	 * same units as the points. 
+	 * @return the distance or Double.POSITIVE_INFINITY if nothing is tracked.
+	 */
+	public double distanceToPrediction(double x, double y, double z)
+	{
+		double closest = Double.POSITIVE_INFINITY;
+		for(int t = 0; t < MAX_TRACKS; t++)
+		{
+			if(!active[t])
+				continue;
+			int a = t * 3;
+			double dx = x - position[a + XYZ.X];
+			double dy = y - position[a + XYZ.Y];
+			double dz = z - position[a + XYZ.Z];
+			closest = Math.min(closest, dx*dx + dy*dy + dz*dz);
+		}
+		return Math.sqrt(closest);
+	}
+	
+	/**
+	 * Returns whether any marker is being tracked
+	 * @return true if a marker is tracked.
+	 */
+	public boolean isTracking()
+	{
+		for(int t = 0; t < MAX_TRACKS; t++)
+			if(active[t])
+				return true;
+		return false;
+	}
+	
+	/**
+	 * Gives the points found in a frame to the markers. Call predict first.
+	 * 
+	 * @param points The X, Y and Z of each point, 3 values per point.
+	 * @param found Which points were found.
+	 * @param count The number of points, at most MAX_TRACKS.
+	 * @param ids Set to the ID of the marker each point was given to, or 
+	 * NO_ID if it was not found.
+	 */
+	public void update(double[] points, boolean[] found, int count, int[] ids)
+	{
+		for(int t = 0; t < MAX_TRACKS; t++)
+			track_used[t] = false;
+		for(int i = 0; i < count; i++)
+			point_track[i] = NO_ID;
+		
+		//Give each point to the closest predicted marker inside the gate, closest pairs first
+		for(;;)
+		{
+			int bestPoint = NO_ID, bestTrack = NO_ID;
+			double best = gate;
+			for(int i = 0; i < count; i++)
+			{
+				if(!found[i] || point_track[i] != NO_ID)
+					continue;
+				for(int t = 0; t < MAX_TRACKS; t++)
+				{
+					if(!active[t] || track_used[t])
+						continue;
+					double d = mahalanobis(t, points, i * 3);
+					if(d < best)
+					{
+						best = d;
+						bestPoint = i;
+						bestTrack = t;
+					}
+				}
+			}
+			if(bestPoint == NO_ID)
+				break;
+			point_track[bestPoint] = bestTrack;
+			track_used[bestTrack] = true;
+			correct(bestTrack, points, bestPoint * 3);
+		}
+		
+		//Markers that were not seen count a miss and are dropped after too many
+		for(int t = 0; t < MAX_TRACKS; t++)
+		{
+			if(active[t] && !track_used[t] && ++missed[t] > maxMissed)
+				active[t] = false;
+		}
+		
+		//Points that are not close to any marker start a new one
+		for(int i = 0; i < count; i++)
+		{
+			if(found[i] && point_track[i] == NO_ID)
+				point_track[i] = start(points, i * 3);
+		}
+		
+		for(int i = 0; i < count; i++)
+			ids[i] = (point_track[i] == NO_ID) ? NO_ID : id[point_track[i]];
+	}
+	
+	/*
+	 * Squared distance in standard deviations between a marker's prediction 
+	 * and a point
+	 */
+	private double mahalanobis(int t, double[] points, int p)
+	{
+		double d = 0;
+		for(int axis = 0; axis < 3; axis++)
+		{
+			int a = t * 3 + axis;
+			double innovation = points[p + axis] - position[a];
+			d += innovation * innovation / (p00[a] + measurementNoise);
+		}
+		return d;
+	}
+	
+	/*
+	 * Kalman update of a marker with a point
+	 */
+	private void correct(int t, double[] points, int p)
+	{
+		missed[t] = 0;
+		for(int axis = 0; axis < 3; axis++)
+		{
+			int a = t * 3 + axis;
+			double innovation = points[p + axis] - position[a];
+			double s = p00[a] + measurementNoise;
+			double k0 = p00[a] / s;
+			double k1 = p01[a] / s;
+			
+			position[a] += k0 * innovation;
+			velocity[a] += k1 * innovation;
+			
+			p11[a] -= k1 * p01[a];
+			p00[a] -= k0 * p00[a];
+			p01[a] -= k0 * p01[a];
+		}
+	}
+	
+	/*
+	 * Starts a new marker at a point. If every marker is in use the one that 
+	 * has been missing longest is replaced. Returns the marker or NO_ID.
+	 */
+	private int start(double[] points, int p)
+	{
+		int t = NO_ID;
+		for(int i = 0; i < MAX_TRACKS; i++)
+		{
+			if(!active[i])
+			{
+				t = i;
+				break;
+			}
+			if(!track_used[i] && (t == NO_ID || missed[i] > missed[t]))
+				t = i;
+		}
+		if(t == NO_ID)
+			return NO_ID;
+		
+		active[t] = true;
+		track_used[t] = true;
+		missed[t] = 0;
+		id[t] = nextId++;
+		for(int axis = 0; axis < 3; axis++)
+		{
+			int a = t * 3 + axis;
+			position[a] = points[p + axis];
+			velocity[a] = 0;
+			p00[a] = measurementNoise;
+			p01[a] = 0;
+			p11[a] = velocityNoise;
+		}
+		return t;
+	}
+	
+	/**
+	 * Drops every marker.
+	 */
+	public void reset()
+	{
+		for(int t = 0; t < MAX_TRACKS; t++)
+			active[t] = false;
+		started = false;
+	}
+	
+	/* Get Methods */
+	
+	/**
+	 * Copies the filtered position of the marker with the ID given.
+	 * @param trackId The ID of the marker.
+	 * @param out An array of at least 3 for the X, Y and Z.
+	 * @return false if no marker has that ID.
+	 */
+	public boolean getPosition(int trackId, double[] out)
+	{
+		return copy(trackId, position, out);
+	}
+	
+	/**
+	 * Copies the velocity of the marker with the ID given, in units per second.
+	 * @param trackId The ID of the marker.
+	 * @param out An array of at least 3 for the X, Y and Z.
+	 * @return false if no marker has that ID.
+	 */
+	public boolean getVelocity(int trackId, double[] out)
+	{
+		return copy(trackId, velocity, out);
+	}
+	
+	private boolean copy(int trackId, double[] from, double[] out)
+	{
+		for(int t = 0; t < MAX_TRACKS; t++)
+		{
+			if(active[t] && id[t] == trackId)
+			{
+				out[XYZ.X] = from[t * 3 + XYZ.X];
+				out[XYZ.Y] = from[t * 3 + XYZ.Y];
+				out[XYZ.Z] = from[t * 3 + XYZ.Z];
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/* Set Methods */
+	
+	/**
+	 * Sets how much the velocity of a marker is expected to change, as the 
+	 * variance of its acceleration. Must be positive.
+	 */
+	public void setProcessNoise(double processNoise)
+	{
+		if(processNoise > 0)
+			this.processNoise = processNoise;
+	}
+	
+	/**
+	 * Sets how much noise is in the points found, as a variance. Must be positive.
+	 */
+	public void setMeasurementNoise(double measurementNoise)
+	{
+		if(measurementNoise > 0)
+			this.measurementNoise = measurementNoise;
+	}
+	
+	/**
+	 * Sets how far a point can be from a prediction and still be given to 
+	 * the marker, in squared standard deviations. Must be positive.
+	 */
+	public void setGate(double gate)
+	{
+		if(gate > 0)
+			this.gate = gate;
+	}
+	
+	/**
+	 * Sets how many frames a marker can go unseen before it is dropped.
+	 */
+	public void setMaxMissed(int maxMissed)
+	{
+		if(maxMissed >= 0)
+			this.maxMissed = maxMissed;
+	}
+}
@@ -0,0 +1,394 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    RayTable.java
+*/
+package dualCamera;
+
+import util.XYZ;
+
+/**
+ * RayTable holds the rays for every pixel one Wii Remote camera can report.
+ * The IR camera only reports whole pixels from 0-1023 in X and 0-767 in Y and
+ * the calibration does not change once the DualMoteCamera is made, so the
+ * tangents and the rotation of each ray can be worked out once up front.
+ * <p>
+ * A ray direction is the rotated column part plus the rotated row part:
+ * <blockquote><pre>
+ *    direction = R * (tan(xangle), tan(yangle), 1)
+ *              = column[x] + row[y]
+ * </pre></blockquote>
+ * The directions are not unit length. Find3DPoint does not need them to be and
+ * normalizing would need a table entry for every pixel instead of every column
+ * and row.
+ * <p>
+ * A lens with distortion moves each pixel by an amount that depends on both
+ * its X and Y, so the column and row parts no longer add up. Then the 
+ * undistorted tangents of every pixel are worked out when the table is 
+ * built and kept as floats, 6 MB per camera, and a ray is a table read and
+ * the rotation:
+ * <blockquote><pre>
+ *    direction = R * (undistortedX[y][x], undistortedY[y][x], 1)
+ * </pre></blockquote>
+ *
+ * @author Jason Creighton
+ */
+public class RayTable
+{
+	/**
+	 * The range of pixels a Wii Remote camera reports.
+	 */
+	public static final int WIDTH  = 1024;
+	public static final int HEIGHT = 768;
+
+	/**
+	 * Where the camera is. The left Wii Remote is at the origin and the
+	 * right one is wiimote_spacing down the X axis.
+	 */
+	private final double originX, originY, originZ;
+
+	/**
+	 * The field of view and the center of projection of the camera
+	 */
+	private final double hfov, vfov, centerx, centery;
+
+	/**
+	 * The rotation of the camera stored as a matrix, row by row.
+	 */
+	private final double[] rotation = new double[9];
+
+	/**
+	 * The lens distortion of the camera
+	 */
+	private final LensDistortion distortion;
+
+	/**
+	 * The undistorted tangents of every pixel, row by row, or null if the 
+	 * lens has no distortion.
+	 */
+	private final float[] undistortedX, undistortedY;
+
+	/**
+	 * The rotated column and row parts of the rays.
+	 */
+	private final double[] columnX = new double[WIDTH];
+	private final double[] columnY = new double[WIDTH];
+	private final double[] columnZ = new double[WIDTH];
+	private final double[] rowX = new double[HEIGHT];
+	private final double[] rowY = new double[HEIGHT];
+	private final double[] rowZ = new double[HEIGHT];
+
+	/**
+	 * Builds the table for a camera at (originX, 0, 0) turned by angle around
+	 * the Y axis.
+	 *
+	 * @param originX Where the camera is along the board.
+	 * @param angle The angle of the camera in radians.
+	 * @param hfov The horizontal field of view in radians.
+	 * @param vfov The vertical field of view in radians.
+	 * @param centerx The X pixel of the center of projection.
+	 * @param centery The Y pixel of the center of projection.
+	 */
+	public RayTable(double originX, double angle, double hfov, double vfov, double centerx, double centery)
+	{
+		this(originX, 0, 0, angle, 0, 0, hfov, vfov, centerx, centery);
+	}
+
+	/**
+	 * Builds the table for a camera anywhere, turned any way. See rotation
+	 * for the order the angles are used in.
+	 *
+	 * @param originX The X of the camera.
+	 * @param originY The Y of the camera.
+	 * @param originZ The Z of the camera.
+	 * @param yaw The angle around the Y axis in radians.
+	 * @param pitch The angle around the camera's X axis in radians.
+	 * @param roll The angle around the camera's Z axis in radians.
+	 * @param hfov The horizontal field of view in radians.
+	 * @param vfov The vertical field of view in radians.
+	 * @param centerx The X pixel of the center of projection.
+	 * @param centery The Y pixel of the center of projection.
+	 */
+	public RayTable(double originX, double originY, double originZ, double yaw, double pitch, double roll,
+			double hfov, double vfov, double centerx, double centery)
+	{
+		this(originX, originY, originZ, yaw, pitch, roll, hfov, vfov, centerx, centery, LensDistortion.NONE);
+	}
+
+	/**
+	 * Builds the table for a camera anywhere, turned any way, with a lens 
+	 * that has distortion. Building the table undistorts every pixel so it
+	 * takes longer than a table for a perfect lens.
+	 *
+	 * @param originX The X of the camera.
+	 * @param originY The Y of the camera.
+	 * @param originZ The Z of the camera.
+	 * @param yaw The angle around the Y axis in radians.
+	 * @param pitch The angle around the camera's X axis in radians.
+	 * @param roll The angle around the camera's Z axis in radians.
+	 * @param hfov The horizontal field of view in radians.
+	 * @param vfov The vertical field of view in radians.
+	 * @param centerx The X pixel of the center of projection.
+	 * @param centery The Y pixel of the center of projection.
+	 * @param distortion The distortion of the lens.
+	 */
+	public RayTable(double originX, double originY, double originZ, double yaw, double pitch, double roll,
+			double hfov, double vfov, double centerx, double centery, LensDistortion distortion)
+	{
+		this.originX = originX;
+		this.originY = originY;
+		this.originZ = originZ;
+		this.hfov = hfov;
+		this.vfov = vfov;
+		this.centerx = centerx;
+		this.centery = centery;
+
+		rotation(yaw, pitch, roll, rotation);
+		this.distortion = distortion;
+
+		if(distortion.isNone())
+		{
+			undistortedX = undistortedY = null;
+		}
+		else
+		{
+			undistortedX = new float[WIDTH * HEIGHT];
+			undistortedY = new float[WIDTH * HEIGHT];
+			double[] tan = new double[2];
+			for(int y = 0, i = 0; y < HEIGHT; y++)
+			{
+				double tany = tanY(y);
+				for(int x = 0; x < WIDTH; x++, i++)
+				{
+					distortion.undistort(tanX(x), tany, tan);
+					undistortedX[i] = (float) tan[0];
+					undistortedY[i] = (float) tan[1];
+				}
+			}
+		}
+
+		for(int x = 0; x < WIDTH; x++)
+		{
+			double tanx = tanX(x);
+			columnX[x] = tanx * rotation[0] + rotation[2];
+			columnY[x] = tanx * rotation[3] + rotation[5];
+			columnZ[x] = tanx * rotation[6] + rotation[8];
+		}
+
+		for(int y = 0; y < HEIGHT; y++)
+		{
+			double tany = tanY(y);
+			rowX[y] = tany * rotation[1];
+			rowY[y] = tany * rotation[4];
+			rowZ[y] = tany * rotation[7];
+		}
+	}
+
+	/**
+	 * Finds the direction of the ray through a pixel. Whole pixels inside the
+	 * camera's range are looked up, anything else is worked out the long way.
+	 *
+	 * @param px The X pixel from the camera.
+	 * @param py The Y pixel from the camera.
+	 * @param dir An array of at least 3 that the X, Y and Z of the direction are put in.
+	 */
+	public void rayDirection(double px, double py, double[] dir)
+	{
+		int x = (int) px;
+		int y = (int) py;
+		boolean inside = x == px && y == py && x >= 0 && x < WIDTH && y >= 0 && y < HEIGHT;
+		double tanx, tany;
+
+		if(undistortedX == null)
+		{
+			if(inside)
+			{
+				dir[XYZ.X] = columnX[x] + rowX[y];
+				dir[XYZ.Y] = columnY[x] + rowY[y];
+				dir[XYZ.Z] = columnZ[x] + rowZ[y];
+				return;
+			}
+			tanx = tanX(px);
+			tany = tanY(py);
+		}
+		else if(inside)
+		{
+			int i = y * WIDTH + x;
+			tanx = undistortedX[i];
+			tany = undistortedY[i];
+		}
+		else
+		{
+			double[] tan = new double[2];
+			distortion.undistort(tanX(px), tanY(py), tan);
+			tanx = tan[0];
+			tany = tan[1];
+		}
+
+		dir[XYZ.X] = tanx * rotation[0] + tany * rotation[1] + rotation[2];
+		dir[XYZ.Y] = tanx * rotation[3] + tany * rotation[4] + rotation[5];
+		dir[XYZ.Z] = tanx * rotation[6] + tany * rotation[7] + rotation[8];
+	}
+
+	/**
+	 * Finds the pixel a point in space shows up at, the opposite of 
+	 * rayDirection. The pixel is not rounded and can be outside the 
+	 * camera's range.
+	 *
+	 * @param x The X of the point.
+	 * @param y The Y of the point.
+	 * @param z The Z of the point.
+	 * @param pixel An array of at least 2 that the X and Y pixel are put in.
+	 * @return false if the point is behind the camera.
+	 */
+	public boolean project(double x, double y, double z, double[] pixel)
+	{
+		double dx = x - originX;
+		double dy = y - originY;
+		double dz = z - originZ;
+
+		// Undo the rotation, the inverse of a rotation is its transpose
+		double lx = rotation[0] * dx + rotation[3] * dy + rotation[6] * dz;
+		double ly = rotation[1] * dx + rotation[4] * dy + rotation[7] * dz;
+		double lz = rotation[2] * dx + rotation[5] * dy + rotation[8] * dz;
+		if(lz <= 0)
+			return false;
+
+		double tanx = lx / lz, tany = ly / lz;
+		if(undistortedX != null)
+		{
+			double[] tan = new double[2];
+			distortion.distort(tanx, tany, tan);
+			tanx = tan[0];
+			tany = tan[1];
+		}
+
+		pixel[0] = Math.atan(tanx) / (hfov/2) * (WIDTH/2) + centerx;
+		pixel[1] = Math.atan(tany) / (vfov/2) * (HEIGHT/2) + centery;
+		return true;
+	}
+
+	/**
+	 * Makes the rotation matrix for a camera, row by row. The camera is 
+	 * rolled around its own Z axis first, then pitched around its X axis and
+	 * then turned around the Y axis:
+	 * <blockquote><pre>
+	 *    R = Ry(yaw) * Rx(pitch) * Rz(roll)
+	 * </pre></blockquote>
+	 * With pitch and roll 0 this is the same turn around the Y axis the
+	 * Wii Remotes on the board have always had.
+	 *
+	 * @param yaw The angle around the Y axis in radians.
+	 * @param pitch The angle around the X axis in radians.
+	 * @param roll The angle around the Z axis in radians.
+	 * @param m An array of at least 9 the matrix is put in.
+	 */
+	public static void rotation(double yaw, double pitch, double roll, double[] m)
+	{
+		double cy = Math.cos(yaw),   sy = Math.sin(yaw);
+		double cp = Math.cos(pitch), sp = Math.sin(pitch);
+		double cr = Math.cos(roll),  sr = Math.sin(roll);
+
+		// Ry * Rx
+		double a0 = cy, a1 = sy * sp,  a2 = sy * cp;
+		double a3 = 0,  a4 = cp,       a5 = -1.0 * sp;
+		double a6 = -1.0 * sy, a7 = cy * sp, a8 = cy * cp;
+
+		// (Ry * Rx) * Rz
+		m[0] = a0 * cr + a1 * sr; m[1] = a1 * cr - a0 * sr; m[2] = a2;
+		m[3] = a3 * cr + a4 * sr; m[4] = a4 * cr - a3 * sr; m[5] = a5;
+		m[6] = a6 * cr + a7 * sr; m[7] = a7 * cr - a6 * sr; m[8] = a8;
+	}
+
+	/**
+	 * Turns a pixel into the tangent of its angle from the center of the
+	 * camera, the direction of its ray before the camera is rotated. Used
+	 * by CalibrationSolver, which needs the rays for many rotations.
+	 *
+	 * @param px The X pixel from the camera.
+	 * @param py The Y pixel from the camera.
+	 * @param hfov The horizontal field of view in radians.
+	 * @param vfov The vertical field of view in radians.
+	 * @param centerx The X pixel of the center of projection.
+	 * @param centery The Y pixel of the center of projection.
+	 * @param tan An array of at least 2 the X and Y tangents are put in.
+	 */
+	public static void tangent(double px, double py, double hfov, double vfov, double centerx, double centery, double[] tan)
+	{
+		tan[0] = Math.tan( ((px - centerx)/(WIDTH/2)) * (hfov/2) );
+		tan[1] = Math.tan( ((py - centery)/(HEIGHT/2)) * (vfov/2) );
+	}
+
+	/*
+	 * Shift the pixel so the center of the view plane is 0, turn it into an
+	 * angle and normalize it so Z is 1.
+	 */
+	private double tanX(double px)
+	{
+		return Math.tan( ((px - centerx)/(WIDTH/2)) * (hfov/2) );
+	}
+
+	private double tanY(double py)
+	{
+		return Math.tan( ((py - centery)/(HEIGHT/2)) * (vfov/2) );
+	}
+
+	/* Get Methods */
+
+	public double getOriginX()
+	{
+		return originX;
+	}
+
+	public double getOriginY()
+	{
+		return originY;
+	}
+
+	public double getOriginZ()
+	{
+		return originZ;
+	}
+	
+	public double getHfov()
+	{
+		return hfov;
+	}
+	
+	public double getVfov()
+	{
+		return vfov;
+	}
+
+	public LensDistortion getDistortion()
+	{
+		return distortion;
+	}
+
+	/**
+	 * Returns a copy of the rotation of the camera.
+	 * @return the 9 values of the matrix, row by row.
+	 */
+	public double[] getRotation()
+	{
+		return rotation.clone();
+	}
+}
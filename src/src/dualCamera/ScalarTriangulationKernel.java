@@ -0,0 +1,61 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    ScalarTriangulationKernel.java
+*/
+package dualCamera;
+
+import util.Find3DPoint;
+import util.XYZ;
+
+/**
+ * The TriangulationKernel that works on one pair at a time with 
+ * Find3DPoint. It works everywhere and is what the other kernels are 
+ * checked against.
+ * 
+ * @author Jason Creighton
+ */
+public class ScalarTriangulationKernel implements TriangulationKernel
+{
+	public int intersect(double lox, double loy, double loz, double[] ldx, double[] ldy, double[] ldz,
+			double rox, double roy, double roz, double[] rdx, double[] rdy, double[] rdz, int count,
+			double[] x, double[] y, double[] z, double[] gap, int offset)
+	{
+		double[] out = new double[4];
+		int found = 0;
+		for(int i = 0; i < count; i++)
+		{
+			int o = offset + i;
+			if(Find3DPoint.raysIntersectionPoint(lox, loy, loz, ldx[i], ldy[i], ldz[i],
+					rox, roy, roz, rdx[i], rdy[i], rdz[i], out))
+			{
+				x[o] = out[XYZ.X];
+				y[o] = out[XYZ.Y];
+				z[o] = out[XYZ.Z];
+				gap[o] = out[Find3DPoint.GAP];
+				found++;
+			}
+			else
+				x[o] = y[o] = z[o] = gap[o] = Double.NaN;
+		}
+		return found;
+	}
+}
@@ -0,0 +1,330 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    SimulatedRig.java
+*/
+package dualCamera;
+
+import java.util.Random;
+
+import util.XYZ;
+
+/**
+ * SimulatedRig stands in for the two Wii Remotes. It moves markers along a
+ * Trajectory, works out where each camera would see them using the same
+ * RayTables the DualMoteCamera uses to find them, and passes the reports in
+ * the same way the Wii Remotes do. It can add pixel noise, drop points and 
+ * offset the right Wii Remote's clock from the left one's.
+ * <p>
+ * The DualMoteCamera's clock is set to a ManualClock so every frame gets 
+ * its simulated time and runs are the same every time with the same seed.
+ * Frames are made as fast as the DualMoteCamera can take them, which makes
+ * it easy to load test the tracking and gestures.
+ * <blockquote><pre>
+ *     DualMoteCamera cameras = new DualMoteCamera(609.6, Math.toRadians(22.5), handler);
+ *     SimulatedRig rig = new SimulatedRig(cameras);
+ *     rig.setTrajectory(Trajectories.pinch(new double[]{304.8, 0, 700}, 150, 0.5));
+ *     rig.setNoise(0.5);
+ *     rig.run(10.0);
+ * </pre></blockquote>
+ * 
+ * @author Amy Ciavolino
+ */
+public class SimulatedRig
+{
+	/**
+	 * Reports a second, the same as a Wii Remote
+	 */
+	public static final double DFLT_RATE = 100;
+	
+	/**
+	 * How close in pixels two points can be before the camera sees them as 
+	 * one point
+	 */
+	public static final double DFLT_MERGE = 6;
+	
+	/**
+	 * The size of a point at one unit away. Points get smaller farther from 
+	 * the camera.
+	 */
+	private static final double SIZE_SCALE = 2000;
+	private static final int MAX_SIZE = 15;
+	
+	private final DualMoteCamera camera;
+	private final ManualClock clock = new ManualClock();
+	private final Random random;
+	
+	private Trajectory trajectory = Trajectories.fixed();
+	
+	/**
+	 * Settings. See the set methods.
+	 */
+	private double rate = DFLT_RATE;
+	private double noise = 0;
+	private double dropout = 0;
+	private double merge = DFLT_MERGE;
+	private long skew = 0;
+	
+	/**
+	 * The number of frames made so far
+	 */
+	private long frame = 0;
+	
+	/**
+	 * Space to work in so a frame does not make any objects
+	 */
+	private final double[] position = new double[3];
+	private final double[] pixel = new double[2];
+	private final double[] px = new double[IrReportBuffer.POINTS];
+	private final double[] py = new double[IrReportBuffer.POINTS];
+	private final int[] x    = new int[IrReportBuffer.POINTS];
+	private final int[] y    = new int[IrReportBuffer.POINTS];
+	private final int[] size = new int[IrReportBuffer.POINTS];
+	
+	/**
+	 * Makes a rig for a DualMoteCamera with a random seed.
+	 * @param camera The DualMoteCamera to pass reports to. It should not
+	 * have Wii Remotes set up.
+	 */
+	public SimulatedRig(DualMoteCamera camera)
+	{
+		this(camera, System.nanoTime());
+	}
+	
+	/**
+	 * Makes a rig for a DualMoteCamera. The seed is used for the noise and 
+	 * dropped points.
+	 * @param camera The DualMoteCamera to pass reports to.
+	 * @param seed The seed for the noise and dropped points.
+	 */
+	public SimulatedRig(DualMoteCamera camera, long seed)
+	{
+		this.camera = camera;
+		this.random = new Random(seed);
+	}
+	
+	/**
+	 * Makes frames for a length of simulated time.
+	 * @param seconds How much time to simulate.
+	 * @return The number of frames made.
+	 */
+	public long run(double seconds)
+	{
+		long frames = Math.round(seconds * rate);
+		for(long i = 0; i < frames; i++)
+			step();
+		return frames;
+	}
+	
+	/**
+	 * Makes one frame. Both Wii Remotes report once.
+	 */
+	public void step()
+	{
+		camera.setClock(clock);
+		
+		double seconds = frame / rate;
+		long time = Math.round(frame * 1e9 / rate);
+		
+		//The right mote sees the markers where they are at its own time, so
+		//a skew pairs up views of different ages. The earlier one reports first.
+		double right_seconds = seconds + skew / 1e9;
+		if(skew >= 0)
+		{
+			report(DualMoteCamera.LEFT, seconds, time);
+			report(DualMoteCamera.RIGHT, right_seconds, time + skew);
+		}
+		else
+		{
+			report(DualMoteCamera.RIGHT, right_seconds, time + skew);
+			report(DualMoteCamera.LEFT, seconds, time);
+		}
+		frame++;
+	}
+	
+	/*
+	 * Works out and passes in the report of one camera. Marker i goes in 
+	 * point i, the same way the Wii Remote keeps a point in the same place
+	 * while it can see it.
+	 */
+	private void report(int mote, double seconds, long time)
+	{
+		RayTable rays = camera.getRays(mote);
+		int markers = Math.min(trajectory.getMarkers(), IrReportBuffer.POINTS);
+		
+		for(int i = 0; i < IrReportBuffer.POINTS; i++)
+		{
+			x[i] = IrReportBuffer.NOT_FOUND;
+			y[i] = IrReportBuffer.NOT_FOUND;
+			size[i] = 0;
+		}
+		
+		for(int i = 0; i < markers; i++)
+		{
+			if(!trajectory.getPosition(i, seconds, position))
+				continue;
+			if(!rays.project(position[XYZ.X], position[XYZ.Y], position[XYZ.Z], pixel))
+				continue;
+			
+			double pointx = pixel[0], pointy = pixel[1];
+			if(noise > 0)
+			{
+				pointx += random.nextGaussian() * noise;
+				pointy += random.nextGaussian() * noise;
+			}
+			//An X of 1023 means not found so the last column can not be used
+			if(pointx < 0 || pointx > RayTable.WIDTH - 2 || pointy < 0 || pointy > RayTable.HEIGHT - 1)
+				continue;
+			if(dropout > 0 && random.nextDouble() < dropout)
+				continue;
+			
+			double dx = position[XYZ.X] - rays.getOriginX();
+			double dy = position[XYZ.Y] - rays.getOriginY();
+			double dz = position[XYZ.Z] - rays.getOriginZ();
+			int pointsize = (int) Math.max(1, Math.min(MAX_SIZE, Math.round(SIZE_SCALE / Math.sqrt(dx*dx + dy*dy + dz*dz))));
+			
+			//Points too close together show up as one point where they meet
+			int merged = -1;
+			for(int j = 0; j < i && merged < 0; j++)
+				if(x[j] != IrReportBuffer.NOT_FOUND && Math.hypot(px[j] - pointx, py[j] - pointy) < merge)
+					merged = j;
+			
+			if(merged < 0)
+			{
+				px[i] = pointx;
+				py[i] = pointy;
+				size[i] = pointsize;
+				x[i] = (int) Math.round(pointx);
+				y[i] = (int) Math.round(pointy);
+			}
+			else
+			{
+				px[merged] = (px[merged] + pointx) / 2;
+				py[merged] = (py[merged] + pointy) / 2;
+				size[merged] = Math.min(MAX_SIZE, size[merged] + pointsize);
+				x[merged] = (int) Math.round(px[merged]);
+				y[merged] = (int) Math.round(py[merged]);
+			}
+		}
+		
+		clock.setTime(time);
+		camera.irReport(mote, x, y, size);
+	}
+	
+	/**
+	 * Starts the simulation over at time 0. The DualMoteCamera is not reset.
+	 */
+	public void reset()
+	{
+		frame = 0;
+	}
+	
+	/* Set Methods */
+	
+	/**
+	 * Sets where the markers are over time.
+	 * @param trajectory The Trajectory to follow.
+	 */
+	public void setTrajectory(Trajectory trajectory)
+	{
+		if(trajectory != null)
+			this.trajectory = trajectory;
+	}
+	
+	/**
+	 * Sets how many reports each Wii Remote makes a second of simulated 
+	 * time. This is not how fast the simulation runs.
+	 * @param rate Reports a second, the default is DFLT_RATE.
+	 */
+	public void setRate(double rate)
+	{
+		if(rate > 0)
+			this.rate = rate;
+	}
+	
+	/**
+	 * Sets how much noise is added to each point.
+	 * @param noise The standard deviation of the noise in pixels.
+	 */
+	public void setNoise(double noise)
+	{
+		if(noise >= 0)
+			this.noise = noise;
+	}
+	
+	/**
+	 * Sets the chance of each point being dropped from a report, as if 
+	 * the camera lost it for a frame.
+	 * @param dropout The chance from 0 to 1.
+	 */
+	public void setDropout(double dropout)
+	{
+		if(dropout >= 0 && dropout <= 1)
+			this.dropout = dropout;
+	}
+	
+	/**
+	 * Sets how close two points can be before they show up as one.
+	 * @param merge The distance in pixels.
+	 */
+	public void setMerge(double merge)
+	{
+		if(merge >= 0)
+			this.merge = merge;
+	}
+	
+	/**
+	 * Sets how far the right Wii Remote's reports are from the left one's.
+	 * The right Wii Remote also sees the markers that much later, so moving
+	 * markers are seen in different places by the two cameras.
+	 * @param millis The offset in milliseconds, negative if the right 
+	 * Wii Remote reports first.
+	 */
+	public void setSkew(double millis)
+	{
+		this.skew = (long)(millis * 1000000);
+	}
+	
+	/* Get Methods */
+	
+	public Trajectory getTrajectory()
+	{
+		return trajectory;
+	}
+	
+	/**
+	 * Returns the number of frames made so far.
+	 * @return the number of frames
+	 */
+	public long getFrameCount()
+	{
+		return frame;
+	}
+	
+	/**
+	 * Returns the simulated time of the next frame.
+	 * @return the time in seconds
+	 */
+	public double getTime()
+	{
+		return frame / rate;
+	}
+}
@@ -0,0 +1,329 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    StereoCalibration.java
+*/
+package dualCamera;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+/**
+ * StereoCalibration is where the two Wii Remotes are and which way they 
+ * point. The left Wii Remote is at the origin and the right one is spacing 
+ * down the X axis. Each is turned by a yaw, pitch and roll in radians, see 
+ * RayTable.rotation for the order. The units of the spacing are the units
+ * of the points the DualMoteCamera finds. Each Wii Remote can also have a
+ * LensDistortion, which RayTable corrects for.
+ * <p>
+ * A calibration can be measured by hand, for a board with both Wii Remotes
+ * turned in by the same angle, or solved for with CalibrationSolver. It is
+ * saved as a properties file so the solve only needs doing once:
+ * <blockquote><pre>
+ *    StereoCalibration cal = StereoCalibration.load(StereoCalibration.DFLT_FILE,
+ *            new StereoCalibration(609.6, Math.toRadians(22.5)));
+ *    DualMoteCamera cameras = new DualMoteCamera(cal, handler);
+ * </pre></blockquote>
+ * 
+ * @author Jason Creighton
+ */
+public class StereoCalibration
+{
+	/**
+	 * Where calibrations are saved if no other file is given, in the 
+	 * user's home folder
+	 */
+	public static final File DFLT_FILE = new File(System.getProperty("user.home"), "nuwii-calibration.properties");
+	
+	/**
+	 * 43.6 degrees is the horizontal field of view for a wiimote camera
+	 * 33.4 degrees is the vertical field of view for a wiimote camera
+	 * The units below are in radians
+	 */
+	public static final double DFLT_HFOV = .761;
+	public static final double DFLT_VFOV = .5829;
+	
+	/**
+	 * The center of projection, half of 1024 by 768
+	 */
+	private static final double CENTER_X = RayTable.WIDTH / 2;
+	private static final double CENTER_Y = RayTable.HEIGHT / 2;
+	
+	/**
+	 * The angles are kept in this order in the array of angles
+	 */
+	public static final int YAW   = 0;
+	public static final int PITCH = 1;
+	public static final int ROLL  = 2;
+	
+	private final double spacing;
+	private final double[][] angles = new double[2][3];
+	private final double hfov, vfov;
+	private final LensDistortion[] distortion = new LensDistortion[2];
+	
+	/**
+	 * The root mean square gap between the rays of the samples it was solved
+	 * from, or NaN if it was not solved for
+	 */
+	private final double error;
+	
+	/**
+	 * Makes a calibration for a board measured by hand. Both Wii Remotes are
+	 * turned in toward each other by angle.
+	 * @param spacing The distance between the Wii Remotes.
+	 * @param angle The angle between the board and each Wii Remote in radians.
+	 */
+	public StereoCalibration(double spacing, double angle)
+	{
+		this(spacing, new double[]{angle, 0, 0}, new double[]{2*Math.PI - angle, 0, 0}, DFLT_HFOV, DFLT_VFOV, Double.NaN);
+	}
+	
+	/**
+	 * Makes a calibration.
+	 * @param spacing The distance between the Wii Remotes.
+	 * @param left The yaw, pitch and roll of the left Wii Remote.
+	 * @param right The yaw, pitch and roll of the right Wii Remote.
+	 * @param hfov The horizontal field of view in radians.
+	 * @param vfov The vertical field of view in radians.
+	 * @param error The root mean square gap it was solved to, NaN if not solved.
+	 */
+	public StereoCalibration(double spacing, double[] left, double[] right, double hfov, double vfov, double error)
+	{
+		this(spacing, left, right, hfov, vfov, LensDistortion.NONE, LensDistortion.NONE, error);
+	}
+	
+	/**
+	 * Makes a calibration with lens distortion.
+	 * @param spacing The distance between the Wii Remotes.
+	 * @param left The yaw, pitch and roll of the left Wii Remote.
+	 * @param right The yaw, pitch and roll of the right Wii Remote.
+	 * @param hfov The horizontal field of view in radians.
+	 * @param vfov The vertical field of view in radians.
+	 * @param left_lens The distortion of the left Wii Remote's lens.
+	 * @param right_lens The distortion of the right Wii Remote's lens.
+	 * @param error The root mean square gap it was solved to, NaN if not solved.
+	 */
+	public StereoCalibration(double spacing, double[] left, double[] right, double hfov, double vfov, 
+			LensDistortion left_lens, LensDistortion right_lens, double error)
+	{
+		this.spacing = spacing;
+		distortion[DualMoteCamera.LEFT]  = left_lens;
+		distortion[DualMoteCamera.RIGHT] = right_lens;
+		System.arraycopy(left,  0, angles[DualMoteCamera.LEFT],  0, 3);
+		System.arraycopy(right, 0, angles[DualMoteCamera.RIGHT], 0, 3);
+		this.hfov = hfov;
+		this.vfov = vfov;
+		this.error = error;
+	}
+	
+	/**
+	 * Builds the RayTable for one of the Wii Remotes. With lens distortion
+	 * this undistorts every pixel, which is done once at startup.
+	 * @param mote LEFT or RIGHT
+	 * @return the rays of the camera.
+	 */
+	public RayTable makeRays(int mote)
+	{
+		double[] a = angles[mote];
+		double x = (mote == DualMoteCamera.LEFT) ? 0 : spacing;
+		return new RayTable(x, 0, 0, a[YAW], a[PITCH], a[ROLL], hfov, vfov, CENTER_X, CENTER_Y, distortion[mote]);
+	}
+	
+	/* Saving and Loading */
+	
+	/**
+	 * Saves the calibration as a properties file.
+	 * @param file Where to save it.
+	 * @throws IOException if it can not be written.
+	 */
+	public void save(File file) throws IOException
+	{
+		Properties p = new Properties();
+		p.setProperty("spacing", Double.toString(spacing));
+		put(p, "left",  angles[DualMoteCamera.LEFT],  distortion[DualMoteCamera.LEFT]);
+		put(p, "right", angles[DualMoteCamera.RIGHT], distortion[DualMoteCamera.RIGHT]);
+		p.setProperty("hfov", Double.toString(hfov));
+		p.setProperty("vfov", Double.toString(vfov));
+		p.setProperty("error", Double.toString(error));
+		
+		OutputStream out = new FileOutputStream(file);
+		try
+		{
+			p.store(out, "NuWii stereo calibration, angles in radians");
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+	
+	/**
+	 * Loads a calibration saved with save.
+	 * @param file The file it was saved to.
+	 * @return the calibration.
+	 * @throws IOException if it can not be read or is missing a value.
+	 */
+	public static StereoCalibration load(File file) throws IOException
+	{
+		Properties p = new Properties();
+		InputStream in = new FileInputStream(file);
+		try
+		{
+			p.load(in);
+		}
+		finally
+		{
+			in.close();
+		}
+		
+		return new StereoCalibration(number(p, "spacing"), angles(p, "left"), angles(p, "right"),
+				number(p, "hfov"), number(p, "vfov"), lens(p, "left"), lens(p, "right"), number(p, "error"));
+	}
+	
+	/**
+	 * Loads a saved calibration, or gives back the fallback if there is not
+	 * one or it can not be read.
+	 * @param file The file it was saved to.
+	 * @param fallback What to use without a saved calibration.
+	 * @return the saved calibration or the fallback.
+	 */
+	public static StereoCalibration load(File file, StereoCalibration fallback)
+	{
+		if(!file.exists())
+			return fallback;
+		
+		try
+		{
+			return load(file);
+		}
+		catch (IOException e)
+		{
+			System.out.println("Could not load the calibration, " + e.getMessage());
+			return fallback;
+		}
+	}
+	
+	private static void put(Properties p, String mote, double[] a, LensDistortion lens)
+	{
+		p.setProperty(mote + ".yaw",   Double.toString(a[YAW]));
+		p.setProperty(mote + ".pitch", Double.toString(a[PITCH]));
+		p.setProperty(mote + ".roll",  Double.toString(a[ROLL]));
+		p.setProperty(mote + ".k1", Double.toString(lens.getK1()));
+		p.setProperty(mote + ".k2", Double.toString(lens.getK2()));
+		p.setProperty(mote + ".p1", Double.toString(lens.getP1()));
+		p.setProperty(mote + ".p2", Double.toString(lens.getP2()));
+	}
+	
+	private static double[] angles(Properties p, String mote) throws IOException
+	{
+		return new double[]{number(p, mote + ".yaw"), number(p, mote + ".pitch"), number(p, mote + ".roll")};
+	}
+	
+	/*
+	 * Calibrations saved before lens distortion was added have none
+	 */
+	private static LensDistortion lens(Properties p, String mote) throws IOException
+	{
+		if(p.getProperty(mote + ".k1") == null)
+			return LensDistortion.NONE;
+		return new LensDistortion(number(p, mote + ".k1"), number(p, mote + ".k2"), 
+				number(p, mote + ".p1"), number(p, mote + ".p2"));
+	}
+	
+	private static double number(Properties p, String key) throws IOException
+	{
+		String value = p.getProperty(key);
+		if(value == null)
+			throw new IOException("the calibration is missing " + key);
+		
+		try
+		{
+			return Double.parseDouble(value.trim());
+		}
+		catch (NumberFormatException e)
+		{
+			throw new IOException("the calibration has a bad " + key + ": " + value);
+		}
+	}
+	
+	/* Get Methods */
+	
+	public double getSpacing()
+	{
+		return spacing;
+	}
+	
+	/**
+	 * Returns the yaw, pitch and roll of a Wii Remote.
+	 * @param mote LEFT or RIGHT
+	 * @return a copy of the angles in radians.
+	 */
+	public double[] getAngles(int mote)
+	{
+		return angles[mote].clone();
+	}
+	
+	/**
+	 * Returns the lens distortion of a Wii Remote.
+	 * @param mote LEFT or RIGHT
+	 * @return the distortion, LensDistortion.NONE for a perfect lens.
+	 */
+	public LensDistortion getDistortion(int mote)
+	{
+		return distortion[mote];
+	}
+	
+	public double getHfov()
+	{
+		return hfov;
+	}
+	
+	public double getVfov()
+	{
+		return vfov;
+	}
+	
+	/**
+	 * Returns the root mean square gap between the rays of the samples the
+	 * calibration was solved from, in the units of the spacing.
+	 * @return the error or NaN if it was measured by hand.
+	 */
+	public double getError()
+	{
+		return error;
+	}
+	
+	@Override
+	public String toString()
+	{
+		double[] l = angles[DualMoteCamera.LEFT], r = angles[DualMoteCamera.RIGHT];
+		return String.format("spacing %.1f, left %.2f/%.2f/%.2f deg, right %.2f/%.2f/%.2f deg, error %.2f", spacing,
+				Math.toDegrees(l[YAW]), Math.toDegrees(l[PITCH]), Math.toDegrees(l[ROLL]),
+				Math.toDegrees(r[YAW]), Math.toDegrees(r[PITCH]), Math.toDegrees(r[ROLL]), error)
+				+ (distortion[DualMoteCamera.LEFT].isNone() ? "" : ", left lens " + distortion[DualMoteCamera.LEFT])
+				+ (distortion[DualMoteCamera.RIGHT].isNone() ? "" : ", right lens " + distortion[DualMoteCamera.RIGHT]);
+	}
+}
@@ -0,0 +1,219 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    StereoFramePairer.java
+*/
+package dualCamera;
+
+/**
+ * StereoFramePairer collects the reports from the left and right Wii Remotes
+ * into stereo frames. Each Wii Remote reports on its own Bluetooth thread so 
+ * without pairing every physical frame would be triangulated twice, once
+ * with a fresh left point and a stale right point and once the other way.
+ * <p>
+ * A frame is complete once both Wii Remotes have reported since the last 
+ * frame. If one Wii Remote reports more than once before the other, only the 
+ * latest report is kept. With a pairing window, a report that is older than
+ * the window when the other Wii Remote reports is thrown away instead of 
+ * being paired with it.
+ * <p>
+ * If one Wii Remote goes silent for longer than the silence limit, or the 
+ * pairing window if that is longer, each report of the other one makes a 
+ * frame on its own, using the last report of the silent one. Otherwise one
+ * stalled Wii Remote would stop every frame.
+ * 
+ * @author Amy Ciavolino
+ */
+public class StereoFramePairer
+{
+	/**
+	 * Pairing window that pairs the latest report of each Wii Remote no 
+	 * matter how far apart they are.
+	 */
+	public static final long LATEST_OF_EACH = 0;
+	
+	/**
+	 * The default silence limit, 100ms, about 10 missed reports.
+	 */
+	public static final long DEFAULT_SILENCE_LIMIT = 100000000L;
+	
+	/**
+	 * The longest time in nanoseconds between the two reports of a frame.
+	 */
+	private long window = LATEST_OF_EACH;
+	
+	/**
+	 * How long in nanoseconds a Wii Remote can be silent before the other
+	 * makes frames on its own.
+	 */
+	private long silence_limit = DEFAULT_SILENCE_LIMIT;
+	
+	/**
+	 * If each Wii Remote has reported since the last frame and when. Until 
+	 * a Wii Remote first reports it counts as silent since the first report
+	 * of the other.
+	 */
+	private final boolean[] fresh = new boolean[2];
+	private final long[] reported = new long[2];
+	private boolean heard = false;
+	
+	/**
+	 * Counts of frames made, reports thrown away for being too old and 
+	 * frames made while the other Wii Remote was silent
+	 */
+	private long frames = 0;
+	private long stale = 0;
+	private long alone = 0;
+	
+	/**
+	 * Creates a pairer that pairs the latest report of each Wii Remote.
+	 */
+	public StereoFramePairer()
+	{
+		this(LATEST_OF_EACH);
+	}
+	
+	/**
+	 * Creates a pairer with a pairing window.
+	 * @param window The longest time in nanoseconds between the two reports
+	 * of a frame, or LATEST_OF_EACH.
+	 */
+	public StereoFramePairer(long window)
+	{
+		setWindow(window);
+	}
+	
+	/**
+	 * Tells the pairer a Wii Remote has reported. 
+	 * 
+	 * @param mote DualMoteCamera.LEFT or DualMoteCamera.RIGHT
+	 * @param time When the report came in, from System.nanoTime()
+	 * @return true if this report finished a frame.
+	 */
+	public synchronized boolean report(int mote, long time)
+	{
+		int other = 1 - mote;
+		
+		fresh[mote] = true;
+		reported[mote] = time;
+		if(!heard)
+		{
+			heard = true;
+			reported[other] = time;
+		}
+		
+		if(fresh[other])
+		{
+			if(window == LATEST_OF_EACH || time - reported[other] <= window)
+			{
+				fresh[mote] = fresh[other] = false;
+				frames++;
+				return true;
+			}
+			
+			//The other report is too old to be the same frame so wait for the next one
+			fresh[other] = false;
+			stale++;
+		}
+		
+		//The other Wii Remote has gone quiet so do not wait for it
+		if(time - reported[other] > Math.max(window, silence_limit))
+		{
+			fresh[mote] = false;
+			frames++;
+			alone++;
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Forgets any report that has not been paired yet.
+	 */
+	public synchronized void reset()
+	{
+		fresh[0] = fresh[1] = false;
+	}
+	
+	/* Set and Get Methods */
+	
+	/**
+	 * Sets the longest time between the two reports of a frame. Use 
+	 * LATEST_OF_EACH to always pair the latest report of each Wii Remote.
+	 * @param window The pairing window in nanoseconds, must not be negative.
+	 */
+	public synchronized void setWindow(long window)
+	{
+		if(window >= 0)
+			this.window = window;
+	}
+	
+	public synchronized long getWindow()
+	{
+		return window;
+	}
+	
+	/**
+	 * Sets how long one Wii Remote can be silent before each report of the
+	 * other makes a frame on its own. The pairing window is used instead if
+	 * it is longer.
+	 * @param limit The silence limit in nanoseconds, must be more than 0.
+	 */
+	public synchronized void setSilenceLimit(long limit)
+	{
+		if(limit > 0)
+			silence_limit = limit;
+	}
+	
+	public synchronized long getSilenceLimit()
+	{
+		return silence_limit;
+	}
+	
+	/**
+	 * Returns how many frames have been paired.
+	 * @return the number of frames paired.
+	 */
+	public synchronized long getFrameCount()
+	{
+		return frames;
+	}
+	
+	/**
+	 * Returns how many reports were thrown away because the other Wii Remote
+	 * did not report inside the pairing window.
+	 * @return the number of reports thrown away.
+	 */
+	public synchronized long getStaleCount()
+	{
+		return stale;
+	}
+	
+	/**
+	 * Returns how many frames were made from one Wii Remote's report while 
+	 * the other was silent. These are also counted by getFrameCount.
+	 * @return the number of frames made alone.
+	 */
+	public synchronized long getAloneCount()
+	{
+		return alone;
+	}
+}
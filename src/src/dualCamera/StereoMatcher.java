@@ -0,0 +1,463 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    StereoMatcher.java
+*/
+package dualCamera;
+
+import util.Find3DPoint;
+import util.XYZ;
+
+/**
+ * StereoMatcher works out which point seen by the left Wii Remote is the 
+ * same as which point seen by the right Wii Remote when each sees up to 4.
+ * <p>
+ * First each left and right pair is checked against the epipolar constraint.
+ * The two cameras and a point in space make a plane, so the ray of the right
+ * point has to lie in the plane made by the baseline between the cameras and
+ * the ray of the left point. That plane is the epipolar line of the left 
+ * pixel in the right image. Its normal is the baseline crossed with the left
+ * ray, so it comes straight from the RayTable. Pairs whose right ray is more 
+ * than the tolerance away from the plane are thrown out before they are 
+ * triangulated. Pairs that meet behind either camera are thrown out too.
+ * <p>
+ * The rays of two points that really match come close together so the gap 
+ * between them (the error of the XYZ) is small. Every way of pairing the 
+ * points is then tried and the one that pairs the most points with the 
+ * smallest total gap is picked. With 4 points that is at most 16 
+ * triangulations and 24 pairings, so it always takes about the same time. 
+ * No objects are made while matching. 
+ * <p>
+ * Points that are in the same epipolar plane, which for a level board means 
+ * about the same Y, all pass the check and all have a small gap, so the 
+ * geometry can not tell them apart. isAmbiguous says when that happened.
+ * <p>
+ * A StereoMatcher is not thread safe. DualMoteCamera only uses it while 
+ * making a frame.
+ * 
+ * @author Jason Creighton
+ */
+public class StereoMatcher
+{
+	/**
+	 * The most points each Wii Remote reports
+	 */
+	public static final int POINTS = IrReportBuffer.POINTS;
+	
+	/**
+	 * Value in match for a left point that was not matched
+	 */
+	public static final int NO_MATCH = -1;
+	
+	/**
+	 * The default distance in pixels a right point can be from the epipolar 
+	 * line of a left point
+	 */
+	public static final double DFLT_TOLERANCE = 20;
+	
+	/**
+	 * Every ordering of the right points. Left point i is paired with right
+	 * point PERMUTATIONS[p][i].
+	 */
+	private static final int[][] PERMUTATIONS = permutations(POINTS);
+	
+	/**
+	 * The rays through each pixel of the cameras
+	 */
+	private final RayTable left_rays, right_rays;
+	
+	/**
+	 * The baseline from the left camera to the right camera
+	 */
+	private final double baselineX, baselineY, baselineZ;
+	
+	/**
+	 * Turns the sine of the angle between a ray and an epipolar plane into 
+	 * pixels in the right image
+	 */
+	private final double pixelsPerRadian;
+	
+	/**
+	 * How far in pixels a right point can be from the epipolar line
+	 */
+	private double tolerance = DFLT_TOLERANCE;
+	
+	/**
+	 * Space for the ray directions and the triangulated points. The left and
+	 * right arrays hold the ray of each point, normal holds the epipolar
+	 * plane of each left point and found holds the point and gap for each 
+	 * left and right pair, 4 values each.
+	 */
+	private final double[] left_ray  = new double[3];
+	private final double[] right_ray = new double[3];
+	private final double[] point = new double[4];
+	private final double[] left  = new double[POINTS * 3];
+	private final double[] right = new double[POINTS * 3];
+	private final double[] normal = new double[POINTS * 3];
+	private final double[] normal_length = new double[POINTS];
+	private final double[] right_length = new double[POINTS];
+	private final boolean[] left_valid  = new boolean[POINTS];
+	private final boolean[] right_valid = new boolean[POINTS];
+	private final double[] found = new double[POINTS * POINTS * 4];
+	private final boolean[] solved = new boolean[POINTS * POINTS];
+	
+	/**
+	 * If another pairing matched as many points in the last call to match
+	 */
+	private boolean ambiguous = false;
+	
+	/**
+	 * Which right point each left point was matched to
+	 */
+	private final int[] match = new int[POINTS];
+	
+	/**
+	 * Makes a matcher for two calibrated cameras.
+	 * @param left_rays The rays of the left camera.
+	 * @param right_rays The rays of the right camera.
+	 */
+	public StereoMatcher(RayTable left_rays, RayTable right_rays)
+	{
+		this.left_rays = left_rays;
+		this.right_rays = right_rays;
+		
+		baselineX = right_rays.getOriginX() - left_rays.getOriginX();
+		baselineY = right_rays.getOriginY() - left_rays.getOriginY();
+		baselineZ = right_rays.getOriginZ() - left_rays.getOriginZ();
+		pixelsPerRadian = RayTable.HEIGHT / right_rays.getVfov();
+		
+		for(int i = 0; i < POINTS; i++)
+			match[i] = NO_MATCH;
+	}
+	
+	/**
+	 * Matches the points from the two cameras. Points with an X of 
+	 * IrReportBuffer.NOT_FOUND are skipped. Use getMatch and getPoint for 
+	 * the results.
+	 * 
+	 * @param lx The X of each left point.
+	 * @param ly The Y of each left point.
+	 * @param rx The X of each right point.
+	 * @param ry The Y of each right point.
+	 * @return The number of points matched.
+	 */
+	public int match(int[] lx, int[] ly, int[] rx, int[] ry)
+	{
+		return match(lx, ly, rx, ry, POINTS);
+	}
+	
+	/**
+	 * Matches the first count points from the two cameras. Points with an X
+	 * of IrReportBuffer.NOT_FOUND are skipped. Use getMatch and getPoint for 
+	 * the results.
+	 * 
+	 * @param lx The X of each left point.
+	 * @param ly The Y of each left point.
+	 * @param rx The X of each right point.
+	 * @param ry The Y of each right point.
+	 * @param count How many points from each camera to match, from 1 to 4.
+	 * @return The number of points matched.
+	 */
+	public int match(int[] lx, int[] ly, int[] rx, int[] ry, int count)
+	{
+		// Look up the ray of each point and the epipolar plane of each left point
+		for(int i = 0; i < POINTS; i++)
+		{
+			left_valid[i] = i < count && lx[i] != IrReportBuffer.NOT_FOUND;
+			if(left_valid[i])
+			{
+				int d = i * 3;
+				left_rays.rayDirection(lx[i], ly[i], left_ray);
+				left[d + XYZ.X] = left_ray[XYZ.X];
+				left[d + XYZ.Y] = left_ray[XYZ.Y];
+				left[d + XYZ.Z] = left_ray[XYZ.Z];
+				
+				normal[d + XYZ.X] = baselineY * left_ray[XYZ.Z] - baselineZ * left_ray[XYZ.Y];
+				normal[d + XYZ.Y] = baselineZ * left_ray[XYZ.X] - baselineX * left_ray[XYZ.Z];
+				normal[d + XYZ.Z] = baselineX * left_ray[XYZ.Y] - baselineY * left_ray[XYZ.X];
+				normal_length[i] = Math.sqrt(normal[d] * normal[d] + normal[d + 1] * normal[d + 1] + normal[d + 2] * normal[d + 2]);
+			}
+			
+			right_valid[i] = i < count && rx[i] != IrReportBuffer.NOT_FOUND;
+			if(right_valid[i])
+			{
+				int d = i * 3;
+				right_rays.rayDirection(rx[i], ry[i], right_ray);
+				right[d + XYZ.X] = right_ray[XYZ.X];
+				right[d + XYZ.Y] = right_ray[XYZ.Y];
+				right[d + XYZ.Z] = right_ray[XYZ.Z];
+				right_length[i] = Math.sqrt(right_ray[XYZ.X] * right_ray[XYZ.X] + right_ray[XYZ.Y] * right_ray[XYZ.Y] + right_ray[XYZ.Z] * right_ray[XYZ.Z]);
+			}
+		}
+		
+		// Triangulate the pairs that pass the epipolar check
+		for(int l = 0; l < POINTS; l++)
+		{
+			for(int r = 0; r < POINTS; r++)
+			{
+				int pair = l * POINTS + r;
+				solved[pair] = left_valid[l] && right_valid[r] 
+						&& epipolarDistance(l, r) <= tolerance
+						&& triangulatePair(l, r, pair * 4);
+			}
+		}
+		
+		// Try every pairing. Most pairs wins, then the smallest total gap.
+		int best = 0;
+		int bestPairs = -1;
+		int bestPairing = 0;
+		double bestGap = Double.MAX_VALUE;
+		ambiguous = false;
+		for(int p = 0; p < PERMUTATIONS.length; p++)
+		{
+			int[] permutation = PERMUTATIONS[p];
+			int pairs = 0;
+			int pairing = 0;
+			double gap = 0;
+			for(int l = 0; l < POINTS; l++)
+			{
+				int pair = l * POINTS + permutation[l];
+				if(solved[pair])
+				{
+					pairs++;
+					pairing |= (permutation[l] + 1) << (l * 4);
+					gap += found[pair * 4 + Find3DPoint.GAP];
+				}
+			}
+			
+			if(pairs > bestPairs)
+				ambiguous = false;
+			else if(pairs == bestPairs && competes(pairing, bestPairing))
+				ambiguous = true;
+			
+			if(pairs > bestPairs || (pairs == bestPairs && gap < bestGap))
+			{
+				best = p;
+				bestPairs = pairs;
+				bestPairing = pairing;
+				bestGap = gap;
+			}
+		}
+		
+		for(int l = 0; l < POINTS; l++)
+		{
+			int r = PERMUTATIONS[best][l];
+			match[l] = solved[l * POINTS + r] ? r : NO_MATCH;
+		}
+		return bestPairs;
+	}
+	
+	/**
+	 * Returns true if two pairings really compete, that is they disagree on 
+	 * the partner of at least two left points. A left point that fits both
+	 * right points while the other left points fit none only has its partner
+	 * picked by the gap, which is not a choice between ways of matching the
+	 * points up.
+	 */
+	private static boolean competes(int pairing, int other)
+	{
+		int differences = 0;
+		for(int l = 0; l < POINTS; l++)
+		{
+			int shift = l * 4;
+			if(((pairing >>> shift) & 0xF) != ((other >>> shift) & 0xF))
+				differences++;
+		}
+		return differences >= 2;
+	}
+	
+	/**
+	 * Returns how far in pixels the right point is from the epipolar line of
+	 * the left point.
+	 */
+	private double epipolarDistance(int l, int r)
+	{
+		//A ray along the baseline is in every epipolar plane
+		if(normal_length[l] == 0)
+			return 0;
+		
+		int n = l * 3, d = r * 3;
+		double dot = normal[n] * right[d] + normal[n + 1] * right[d + 1] + normal[n + 2] * right[d + 2];
+		return Math.abs(dot) / (normal_length[l] * right_length[r]) * pixelsPerRadian;
+	}
+	
+	/**
+	 * Triangulates a left and right point using the rays looked up by match.
+	 * Points behind either camera are thrown out.
+	 */
+	private boolean triangulatePair(int l, int r, int offset)
+	{
+		int a = l * 3, b = r * 3;
+		
+		if(!Find3DPoint.raysIntersectionPoint(
+				left_rays.getOriginX(), left_rays.getOriginY(), left_rays.getOriginZ(),
+				left[a], left[a + 1], left[a + 2],
+				right_rays.getOriginX(), right_rays.getOriginY(), right_rays.getOriginZ(),
+				right[b], right[b + 1], right[b + 2],
+				point))
+			return false;
+		
+		double inFrontLeft = (point[XYZ.X] - left_rays.getOriginX()) * left[a]
+				+ (point[XYZ.Y] - left_rays.getOriginY()) * left[a + 1]
+				+ (point[XYZ.Z] - left_rays.getOriginZ()) * left[a + 2];
+		double inFrontRight = (point[XYZ.X] - right_rays.getOriginX()) * right[b]
+				+ (point[XYZ.Y] - right_rays.getOriginY()) * right[b + 1]
+				+ (point[XYZ.Z] - right_rays.getOriginZ()) * right[b + 2];
+		if(inFrontLeft <= 0 || inFrontRight <= 0)
+			return false;
+		
+		System.arraycopy(point, 0, found, offset, 4);
+		return true;
+	}
+	
+	/**
+	 * Returns true if the last call to match had another pairing that 
+	 * matched as many points. When that happens the points could not be
+	 * told apart by the epipolar check, and the pick was made only on the 
+	 * gap, which is not reliable for points in the same epipolar plane.
+	 * @return if the last match was ambiguous.
+	 */
+	public boolean isAmbiguous()
+	{
+		return ambiguous;
+	}
+	
+	/**
+	 * Returns which right point the left point was matched to by the last 
+	 * call to match.
+	 * @param left The left point, from 0 to 3.
+	 * @return The right point or NO_MATCH.
+	 */
+	public int getMatch(int left)
+	{
+		return match[left];
+	}
+	
+	/**
+	 * Copies the point found for a left point by the last call to match.
+	 * @param left The left point, from 0 to 3.
+	 * @param out An array of at least 4 for the point and gap, the same as 
+	 * Find3DPoint.raysIntersectionPoint.
+	 * @return false if the left point was not matched.
+	 */
+	public boolean getPoint(int left, double[] out)
+	{
+		if(match[left] == NO_MATCH)
+			return false;
+		
+		return getPoint(left, match[left], out);
+	}
+	
+	/**
+	 * Copies the point found for any left and right pair by the last call to
+	 * match, even if that pair was not picked.
+	 * @param left The left point, from 0 to 3.
+	 * @param right The right point, from 0 to 3.
+	 * @param out An array of at least 4 for the point and gap, the same as 
+	 * Find3DPoint.raysIntersectionPoint.
+	 * @return false if the pair did not pass the checks.
+	 */
+	public boolean getPoint(int left, int right, double[] out)
+	{
+		int pair = left * POINTS + right;
+		if(!solved[pair])
+			return false;
+		System.arraycopy(found, pair * 4, out, 0, 4);
+		return true;
+	}
+	
+	/**
+	 * Sets how far in pixels a right point can be from the epipolar line of
+	 * a left point and still be matched with it. Default is 20 pixels. 
+	 * @param tolerance The tolerance in pixels, must be positive.
+	 */
+	public void setTolerance(double tolerance)
+	{
+		if(tolerance > 0)
+			this.tolerance = tolerance;
+	}
+	
+	public double getTolerance()
+	{
+		return tolerance;
+	}
+	
+	/**
+	 * Finds a point in 3D space from a pixel in each camera without making 
+	 * any objects. 
+	 * 
+	 * @param lx The X from the left wiimote. 
+	 * @param ly The Y from the left wiimote.
+	 * @param rx The X from the right wiimote.
+	 * @param ry The Y from the right wiimote.
+	 * @param out An array to put the point and gap in, the same as 
+	 * Find3DPoint.raysIntersectionPoint.
+	 * @return false if there is no point, such as when the rays are parallel.
+	 */
+	public boolean triangulate(double lx, double ly, double rx, double ry, double[] out)
+	{
+		left_rays.rayDirection(lx, ly, left_ray);
+		right_rays.rayDirection(rx, ry, right_ray);
+		
+		return Find3DPoint.raysIntersectionPoint(
+				left_rays.getOriginX(), left_rays.getOriginY(), left_rays.getOriginZ(),
+				left_ray[XYZ.X], left_ray[XYZ.Y], left_ray[XYZ.Z],
+				right_rays.getOriginX(), right_rays.getOriginY(), right_rays.getOriginZ(),
+				right_ray[XYZ.X], right_ray[XYZ.Y], right_ray[XYZ.Z],
+				out);
+	}
+	
+	/*
+	 * Makes every ordering of 0 to n-1 
+	 */
+	private static int[][] permutations(int n)
+	{
+		int count = 1;
+		for(int i = 2; i <= n; i++)
+			count *= i;
+		
+		int[][] all = new int[count][n];
+		int[] p = new int[n];
+		for(int i = 0; i < n; i++)
+			p[i] = i;
+		
+		for(int k = 0; k < count; k++)
+		{
+			System.arraycopy(p, 0, all[k], 0, n);
+			
+			// Next ordering in lexicographic order
+			int i = n - 2;
+			while(i >= 0 && p[i] > p[i + 1])
+				i--;
+			if(i < 0)
+				break;
+			int j = n - 1;
+			while(p[j] < p[i])
+				j--;
+			int t = p[i]; p[i] = p[j]; p[j] = t;
+			for(int a = i + 1, b = n - 1; a < b; a++, b--)
+			{
+				t = p[a]; p[a] = p[b]; p[b] = t;
+			}
+		}
+		return all;
+	}
+}
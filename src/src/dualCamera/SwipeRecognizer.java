@@ -0,0 +1,281 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    SwipeRecognizer.java
+*/
+package dualCamera;
+
+import util.XYZ;
+
+/**
+ * SwipeRecognizer finds a point moving quickly along the X, Y or Z axis. The
+ * point is the average of the first two real points, or whichever of them 
+ * was found. The window starts again whenever the markers the point is 
+ * made from change, since losing one moves the point without the hand 
+ * moving.
+ * <p>
+ * The points from the last window of time are kept in a ring with the time
+ * of each frame. Each frame the new point is added, the points older than 
+ * the window are dropped, and the move along each axis is measured from the
+ * oldest point left. Once the move along an axis is longer than the distance
+ * for that axis and faster than the speed a SWIPE is fired with the 
+ * direction the point moved, where it started and how fast it went from 
+ * there, and the window starts again from the point.
+ * <p>
+ * Everything is measured from the frame times, in the units of the 
+ * DualMoteCamera and seconds, so the same hand movement makes the same swipe
+ * however many frames the Wii Remotes send. Each point is added and dropped 
+ * once so a frame takes the same time however long the window is.
+ * 
+ * @author Amy Ciavolino
+ */
+public class SwipeRecognizer implements GestureRecognizer
+{
+	/**
+	 * Defaults for the speed, in mm per second, the distance, in mm, and the
+	 * window, in milliseconds
+	 */
+	public static final double DFLT_SPEED = 300;
+	public static final double DFLT_DISTANCE = 60;
+	public static final long DFLT_WINDOW_MILLIS = 250;
+	
+	/**
+	 * What averagedMarkers gives when neither marker was found
+	 */
+	static final long NO_MARKERS = averagedMarkers(PointTracker.NO_ID, PointTracker.NO_ID);
+	
+	/**
+	 * The most points the window can hold, 2.5 seconds of frames at 200 a 
+	 * second. Older points are dropped early when it is full.
+	 */
+	private static final int CAPACITY = 512;
+	
+	private double speed = DFLT_SPEED;
+	private final double[] distance = {DFLT_DISTANCE, DFLT_DISTANCE, DFLT_DISTANCE};
+	private long window_nanos = DFLT_WINDOW_MILLIS * 1000000;
+	
+	/**
+	 * The points in the window, x, y, z for each, and their times. The 
+	 * oldest is at head and there are size of them.
+	 */
+	private final double[] ring = new double[CAPACITY * 3];
+	private final long[] times = new long[CAPACITY];
+	private int head = 0;
+	private int size = 0;
+	
+	/**
+	 * The point this frame and the markers it was made from. See 
+	 * averagedMarkers.
+	 */
+	private final double[] point = new double[3];
+	private long markers = NO_MARKERS;
+	
+	public void update(DualCameraFrame frame, GestureEngine engine)
+	{
+		if(!averagePoint(frame, point))
+		{
+			size = 0;
+			markers = NO_MARKERS;
+			return;
+		}
+		long time = frame.getTime();
+		
+		//When a marker is lost or found the point jumps without the hand 
+		//moving, so the window starts again from the new point
+		long used = averagedMarkers(frame);
+		if(used != markers)
+			size = 0;
+		markers = used;
+		
+		//Time should never go backwards, start again if it does
+		if(size > 0 && time < times[(head + size - 1) % CAPACITY])
+			size = 0;
+		
+		add(time);
+		while(size > 1 && time - times[head] > window_nanos)
+		{
+			head = (head + 1) % CAPACITY;
+			size--;
+		}
+		
+		double seconds = (time - times[head]) / 1e9;
+		if(seconds <= 0)
+			return;
+		
+		//The axis that moved furthest past its distance fast enough
+		int o = head * 3, axis = -1;
+		double furthest = 0;
+		for(int d = XYZ.X; d <= XYZ.Z; d++)
+		{
+			double moved = Math.abs(point[d] - ring[o + d]);
+			if(moved >= distance[d] && moved / seconds >= speed && moved / distance[d] > furthest)
+			{
+				furthest = moved / distance[d];
+				axis = d;
+			}
+		}
+		
+		if(axis >= 0)
+		{
+			fire(engine, axis, (point[axis] > ring[o + axis]) ? 1 : -1, time, seconds);
+			
+			//Start the window again from this point
+			head = (head + size - 1) % CAPACITY;
+			size = 1;
+		}
+	}
+	
+	private void add(long time)
+	{
+		if(size == CAPACITY)
+		{
+			head = (head + 1) % CAPACITY;
+			size--;
+		}
+		int i = (head + size) % CAPACITY;
+		ring[i * 3 + XYZ.X] = point[XYZ.X];
+		ring[i * 3 + XYZ.Y] = point[XYZ.Y];
+		ring[i * 3 + XYZ.Z] = point[XYZ.Z];
+		times[i] = time;
+		size++;
+	}
+	
+	/*
+	 * Fires the swipe with the average velocity across the window
+	 */
+	private void fire(GestureEngine engine, int axis, int direction, long time, double seconds)
+	{
+		int o = head * 3;
+		double vx = (point[XYZ.X] - ring[o + XYZ.X]) / seconds;
+		double vy = (point[XYZ.Y] - ring[o + XYZ.Y]) / seconds;
+		double vz = (point[XYZ.Z] - ring[o + XYZ.Z]) / seconds;
+		
+		engine.fire(new GestureEvent(this, GestureEvent.SWIPE, time, point[XYZ.X], point[XYZ.Y], point[XYZ.Z],
+				vx, vy, vz, axis, direction, new XYZ(ring[o + XYZ.X], ring[o + XYZ.Y], ring[o + XYZ.Z])));
+	}
+	
+	public void reset()
+	{
+		size = 0;
+		markers = NO_MARKERS;
+	}
+	
+	/**
+	 * Finds the average of the first two real points of a frame, or 
+	 * whichever of them was found.
+	 * @param frame The frame.
+	 * @param out An array of at least 3 for the point.
+	 * @return false if neither was found.
+	 */
+	static boolean averagePoint(DualCameraFrame frame, double[] out)
+	{
+		boolean first = frame.isFound(0), second = frame.isFound(1);
+		if(first && second)
+		{
+			out[XYZ.X] = (frame.getX(0) + frame.getX(1)) / 2;
+			out[XYZ.Y] = (frame.getY(0) + frame.getY(1)) / 2;
+			out[XYZ.Z] = (frame.getZ(0) + frame.getZ(1)) / 2;
+			return true;
+		}
+		if(!first && !second)
+			return false;
+		
+		int i = first ? 0 : 1;
+		out[XYZ.X] = frame.getX(i);
+		out[XYZ.Y] = frame.getY(i);
+		out[XYZ.Z] = frame.getZ(i);
+		return true;
+	}
+	
+	/**
+	 * Returns which tracked markers averagePoint used for a frame. When it 
+	 * changes, because a marker was lost, found or swapped, the point jumps
+	 * by up to half the distance between the markers even though the hand 
+	 * did not move.
+	 * @param frame The frame.
+	 * @return the IDs of the first two real points, NO_ID for each one not
+	 * found, packed into a long.
+	 */
+	static long averagedMarkers(DualCameraFrame frame)
+	{
+		return averagedMarkers(frame.isFound(0) ? frame.getPointId(0) : PointTracker.NO_ID,
+				frame.isFound(1) ? frame.getPointId(1) : PointTracker.NO_ID);
+	}
+	
+	private static long averagedMarkers(int first, int second)
+	{
+		return ((long) first << 32) | (second & 0xFFFFFFFFL);
+	}
+	
+	/* Set Methods */
+	
+	/**
+	 * Sets how fast the point must move along an axis, on average across 
+	 * the move, to make a swipe. Must be positive.
+	 * @param speed The speed in the units of the DualMoteCamera per second.
+	 */
+	public void setSpeed(double speed)
+	{
+		if(speed > 0)
+			this.speed = speed;
+	}
+	
+	/**
+	 * Sets how far the point must move along an axis to make a swipe. Must 
+	 * be positive.
+	 * @param axis XYZ.X, XYZ.Y or XYZ.Z
+	 * @param distance The distance in the units of the DualMoteCamera.
+	 */
+	public void setDistance(int axis, double distance)
+	{
+		if(distance > 0 && axis >= XYZ.X && axis <= XYZ.Z)
+			this.distance[axis] = distance;
+	}
+	
+	/**
+	 * Sets how far back the move is measured from. A swipe must cover its 
+	 * distance within the window, so the window should be at least the 
+	 * largest distance divided by the speed. Must be positive.
+	 * @param millis The window in milliseconds.
+	 */
+	public void setWindow(long millis)
+	{
+		if(millis > 0)
+			window_nanos = millis * 1000000;
+	}
+	
+	/* Get Methods */
+	
+	public double getSpeed()
+	{
+		return speed;
+	}
+	
+	public double getDistance(int axis)
+	{
+		return distance[axis];
+	}
+	
+	public long getWindow()
+	{
+		return window_nanos / 1000000;
+	}
+}
@@ -0,0 +1,61 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    TemplateGestureEvent.java
+*/
+package dualCamera;
+
+import util.XYZ;
+
+/**
+ * TemplateGestureEvent is a stroke TemplateRecognizer matched to one of its
+ * templates. The name is the name of the template.
+ * 
+ * @author Jason Creighton
+ */
+public class TemplateGestureEvent extends GestureEvent
+{
+	private final GestureTemplate template;
+	private final double distance;
+	
+	TemplateGestureEvent(TemplateRecognizer source, GestureTemplate template, double distance, long time, 
+			double x, double y, double z, double vx, double vy, double vz, XYZ origin)
+	{
+		super(source, template.getName(), time, x, y, z, vx, vy, vz, NO_AXIS, 0, origin);
+		this.template = template;
+		this.distance = distance;
+	}
+	
+	public GestureTemplate getTemplate()
+	{
+		return template;
+	}
+	
+	/**
+	 * Returns how far the stroke was from the template, the warped mean 
+	 * squared distance between their normalized points. 0 is a perfect match.
+	 * @return the distance.
+	 */
+	public double getDistance()
+	{
+		return distance;
+	}
+}
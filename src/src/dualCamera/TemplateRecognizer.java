@@ -0,0 +1,665 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    TemplateRecognizer.java
+*/
+package dualCamera;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import util.XYZ;
+
+/**
+ * TemplateRecognizer finds shapes drawn in the air, such as circles, check 
+ * marks and letters, by matching strokes against a library of recorded
+ * GestureTemplates.
+ * <p>
+ * The point is the average of the first two real points, or whichever was
+ * found, the same as SwipeRecognizer. The last CAPACITY points are kept in 
+ * a ring. A stroke starts when the point moves faster than the start speed 
+ * and ends when it has been slower than the stop speed for the pause time,
+ * when it is lost, or when the markers it is made from change. Only then is
+ * the stroke matched, so the frames in between only add a point to the 
+ * ring.
+ * <p>
+ * The stroke is normalized the same way the templates are and compared to 
+ * each one with dynamic time warping inside a window of 
+ * GestureTemplate.WINDOW points. Most templates never need the full warp:
+ * <ul>
+ * <li>LB_Keogh, how far the stroke is outside the template's envelope, is a
+ * lower bound on the warped distance, so a template whose bound is already 
+ * worse than the best so far is skipped.</li>
+ * <li>The warp abandons a template as soon as the best it could still do, 
+ * the smallest cost in the current row plus the bound for the rows left, is
+ * worse than the best so far.</li>
+ * </ul>
+ * A few hundred templates take well under a millisecond, less than one frame.
+ * With setParallel the templates are split over a pool of threads that 
+ * share the best so far. The best template is fired as a 
+ * TemplateGestureEvent if its distance is under the threshold.
+ * 
+ * @author Jason Creighton
+ */
+public class TemplateRecognizer implements GestureRecognizer
+{
+	/**
+	 * How many points the ring keeps, 2.5 seconds at 100 reports a second
+	 */
+	public static final int CAPACITY = 256;
+	
+	/**
+	 * Defaults for finding strokes, speeds in mm per second
+	 */
+	public static final double DFLT_START_SPEED = 300;
+	public static final double DFLT_STOP_SPEED  = 100;
+	public static final long   DFLT_PAUSE_MILLIS = 150;
+	public static final double DFLT_MIN_LENGTH  = 100;
+	
+	/**
+	 * The default most distance a match can have
+	 */
+	public static final double DFLT_THRESHOLD = 0.15;
+	
+	/**
+	 * How much each frame's speed counts in the smoothed speed
+	 */
+	private static final double SPEED_WEIGHT = 0.3;
+	
+	/**
+	 * The fewest points a stroke can have and the fewest templates worth 
+	 * splitting over threads
+	 */
+	private static final int MIN_POINTS = 8;
+	private static final int MIN_PARALLEL = 64;
+	
+	private static final int N = GestureTemplate.POINTS;
+	private static final int R = GestureTemplate.WINDOW;
+	
+	private double start_speed = DFLT_START_SPEED;
+	private double stop_speed = DFLT_STOP_SPEED;
+	private long pause_nanos = DFLT_PAUSE_MILLIS * 1000000;
+	private double min_length = DFLT_MIN_LENGTH;
+	private double threshold = DFLT_THRESHOLD;
+	private volatile boolean parallel = false;
+	
+	/**
+	 * Copied whenever a template is added or removed
+	 */
+	private volatile GestureTemplate[] templates = new GestureTemplate[0];
+	
+	/**
+	 * The ring of points, x, y, z for each, and the time of each. next is
+	 * how many points have ever been added.
+	 */
+	private final double[] ring = new double[CAPACITY * 3];
+	private final long[] times = new long[CAPACITY];
+	private long next = 0;
+	private boolean has_previous = false;
+	
+	/**
+	 * The stroke being drawn, from the point added as stroke_start. still is
+	 * when the point slowed down, or 0 if it is moving. The smoothed speed
+	 * lags behind, so a stroke starts back at the last point that was still,
+	 * rest, and has already moved rest_length.
+	 */
+	private boolean stroking = false;
+	private long stroke_start;
+	private long rest = 0;
+	private double rest_length = 0;
+	private long still = 0;
+	private double speed = 0;
+	private double stroke_length = 0;
+	
+	/**
+	 * The last stroke, normalized
+	 */
+	private final double[] stroke = new double[N * 3];
+	private boolean has_stroke = false;
+	
+	/**
+	 * Space for matching on this thread
+	 */
+	private final Matcher matcher = new Matcher();
+	private final double[] point = new double[3];
+	private long markers = SwipeRecognizer.NO_MARKERS;
+	
+	public void update(DualCameraFrame frame, GestureEngine engine)
+	{
+		long time = frame.getTime();
+		boolean found = SwipeRecognizer.averagePoint(frame, point);
+		long used = found ? SwipeRecognizer.averagedMarkers(frame) : SwipeRecognizer.NO_MARKERS;
+		
+		//Losing the point ends a stroke, and so does a change in the markers
+		//it is made from since the point jumps without the hand moving
+		if(!found || used != markers)
+		{
+			if(stroking)
+				endStroke(engine, next - 1, time);
+			has_previous = false;
+			speed = 0;
+		}
+		markers = used;
+		if(!found)
+			return;
+		
+		if(has_previous)
+		{
+			int last = (int)((next - 1) % CAPACITY);
+			double dx = point[XYZ.X] - ring[last * 3 + XYZ.X];
+			double dy = point[XYZ.Y] - ring[last * 3 + XYZ.Y];
+			double dz = point[XYZ.Z] - ring[last * 3 + XYZ.Z];
+			double moved = Math.sqrt(dx * dx + dy * dy + dz * dz);
+			double seconds = (time - times[last]) / 1e9;
+			double now = (seconds > 0) ? moved / seconds : 0;
+			speed += SPEED_WEIGHT * (now - speed);
+			
+			if(stroking)
+				stroke_length += moved;
+			else if(now < stop_speed)
+				rest = next;
+			else
+				rest_length += moved;
+		}
+		else
+			rest = next;
+		if(rest == next)
+			rest_length = 0;
+		
+		add(point, time);
+		
+		if(!stroking)
+		{
+			if(has_previous && speed > start_speed)
+			{
+				stroking = true;
+				stroke_start = Math.max(rest, next - CAPACITY);
+				still = 0;
+				stroke_length = rest_length;
+			}
+		}
+		else if(speed < stop_speed)
+		{
+			if(still == 0)
+				still = time;
+			else if(time - still >= pause_nanos)
+				endStroke(engine, next - 1, time);
+		}
+		else
+			still = 0;
+		
+		//The ring only keeps the latest CAPACITY points of a long stroke
+		if(stroking && next - stroke_start > CAPACITY)
+			stroke_start = next - CAPACITY;
+		has_previous = true;
+	}
+	
+	private void add(double[] p, long time)
+	{
+		int i = (int)(next % CAPACITY);
+		ring[i * 3 + XYZ.X] = p[XYZ.X];
+		ring[i * 3 + XYZ.Y] = p[XYZ.Y];
+		ring[i * 3 + XYZ.Z] = p[XYZ.Z];
+		times[i] = time;
+		next++;
+	}
+	
+	/*
+	 * Matches the stroke from stroke_start to end and fires the best match
+	 */
+	private void endStroke(GestureEngine engine, long end, long time)
+	{
+		stroking = false;
+		int count = (int)(end - stroke_start + 1);
+		if(count < MIN_POINTS || stroke_length < min_length)
+			return;
+		
+		int first = (int)(stroke_start % CAPACITY);
+		if(!GestureTemplate.normalize(ring, first, count, CAPACITY, stroke))
+			return;
+		has_stroke = true;
+		
+		GestureTemplate[] library = templates;
+		if(library.length == 0)
+			return;
+		
+		int best;
+		double distance;
+		matcher.best = Double.POSITIVE_INFINITY;
+		if(parallel && library.length >= MIN_PARALLEL && Runtime.getRuntime().availableProcessors() > 1)
+			best = matchParallel(library);
+		else
+			best = matcher.match(stroke, library, 0, library.length, null);
+		distance = matcher.best;
+		
+		distance /= N;
+		if(best < 0 || distance > threshold)
+			return;
+		
+		int a = first * 3, b = (int)(end % CAPACITY) * 3;
+		double seconds = (times[(int)(end % CAPACITY)] - times[first]) / 1e9;
+		double vx = 0, vy = 0, vz = 0;
+		if(seconds > 0)
+		{
+			vx = (ring[b + XYZ.X] - ring[a + XYZ.X]) / seconds;
+			vy = (ring[b + XYZ.Y] - ring[a + XYZ.Y]) / seconds;
+			vz = (ring[b + XYZ.Z] - ring[a + XYZ.Z]) / seconds;
+		}
+		engine.fire(new TemplateGestureEvent(this, library[best], distance, time, 
+				ring[b + XYZ.X], ring[b + XYZ.Y], ring[b + XYZ.Z], vx, vy, vz,
+				new XYZ(ring[a + XYZ.X], ring[a + XYZ.Y], ring[a + XYZ.Z])));
+	}
+	
+	/*
+	 * The best distance found by any thread, as the bits of a double
+	 */
+	private final AtomicLong shared_best = new AtomicLong();
+	
+	/*
+	 * Splits the templates over the pool. Returns the index of the best 
+	 * template, -1 if none, and leaves its distance in matcher.best.
+	 */
+	private int matchParallel(final GestureTemplate[] library)
+	{
+		shared_best.set(Double.doubleToLongBits(Double.POSITIVE_INFINITY));
+		int threads = Math.min(Runtime.getRuntime().availableProcessors(), library.length / (MIN_PARALLEL / 2));
+		int size = (library.length + threads - 1) / threads;
+		
+		List<Future<Matcher>> futures = new ArrayList<Future<Matcher>>(threads - 1);
+		int from = 0;
+		for(int t = 0; t < threads - 1 && from + size < library.length; t++, from += size)
+		{
+			final int start = from, end = from + size;
+			futures.add(Pool.EXECUTOR.submit(new Callable<Matcher>() {
+				public Matcher call()
+				{
+					Matcher m = new Matcher();
+					m.best = Double.POSITIVE_INFINITY;
+					m.found = m.match(stroke, library, start, end, shared_best);
+					return m;
+				}
+			}));
+		}
+		
+		//This thread takes the last chunk
+		int best = matcher.match(stroke, library, from, library.length, shared_best);
+		boolean interrupted = false;
+		for(Future<Matcher> f : futures)
+		{
+			while(true)
+			{
+				try
+				{
+					Matcher m = f.get();
+					if(m.found >= 0 && m.best < matcher.best)
+					{
+						matcher.best = m.best;
+						best = m.found;
+					}
+					break;
+				}
+				catch (InterruptedException e)
+				{
+					interrupted = true;
+				}
+				catch (ExecutionException e)
+				{
+					throw new RuntimeException(e.getCause());
+				}
+			}
+		}
+		if(interrupted)
+			Thread.currentThread().interrupt();
+		return best;
+	}
+	
+	/*
+	 * Matches a stroke to templates. Each thread has its own so there is no
+	 * locking other than the shared best.
+	 */
+	private static class Matcher
+	{
+		double best;
+		int found;
+		
+		private final double[] bound = new double[N];
+		private final double[] tail = new double[N + 1];
+		private double[] row = new double[N];
+		private double[] previous_row = new double[N];
+		
+		/*
+		 * Finds the best of templates from to to. shared is the best of every
+		 * thread, or null. Returns the index of the best or -1 if none beat
+		 * best.
+		 */
+		int match(double[] stroke, GestureTemplate[] templates, int from, int to, AtomicLong shared)
+		{
+			int index = -1;
+			for(int t = from; t < to; t++)
+			{
+				double limit = best;
+				if(shared != null)
+					limit = Math.min(limit, Double.longBitsToDouble(shared.get()));
+				
+				GestureTemplate template = templates[t];
+				if(lowerBound(stroke, template, limit) >= limit)
+					continue;
+				
+				double d = warp(stroke, template, limit);
+				if(d < best)
+				{
+					best = d;
+					index = t;
+					if(shared != null)
+						share(shared, d);
+				}
+			}
+			return index;
+		}
+		
+		/*
+		 * LB_Keogh, how far the stroke is outside the template's envelope.
+		 * Keeps the bound of each point for abandoning the warp.
+		 */
+		private double lowerBound(double[] stroke, GestureTemplate template, double limit)
+		{
+			double total = 0;
+			for(int i = 0; i < N; i++)
+			{
+				double b = 0;
+				for(int d = 0; d < 3; d++)
+				{
+					int k = i * 3 + d;
+					double v = stroke[k];
+					if(v > template.upper[k])
+						b += (v - template.upper[k]) * (v - template.upper[k]);
+					else if(v < template.lower[k])
+						b += (template.lower[k] - v) * (template.lower[k] - v);
+				}
+				bound[i] = b;
+				total += b;
+				if(total >= limit)
+					return total;
+			}
+			
+			tail[N] = 0;
+			for(int i = N - 1; i >= 0; i--)
+				tail[i] = tail[i + 1] + bound[i];
+			return total;
+		}
+		
+		/*
+		 * Dynamic time warping inside the window, the sum of the squared 
+		 * distances of the matched points. Gives up and returns infinity once
+		 * it can not get under limit.
+		 */
+		private double warp(double[] stroke, GestureTemplate template, double limit)
+		{
+			double[] t = template.points;
+			for(int i = 0; i < N; i++)
+			{
+				double smallest = Double.POSITIVE_INFINITY;
+				int lo = Math.max(0, i - R), hi = Math.min(N - 1, i + R);
+				for(int j = 0; j < N; j++)
+				{
+					if(j < lo || j > hi)
+					{
+						row[j] = Double.POSITIVE_INFINITY;
+						continue;
+					}
+					
+					double dx = stroke[i * 3] - t[j * 3];
+					double dy = stroke[i * 3 + 1] - t[j * 3 + 1];
+					double dz = stroke[i * 3 + 2] - t[j * 3 + 2];
+					double cost = dx * dx + dy * dy + dz * dz;
+					
+					double before;
+					if(i == 0 && j == 0)
+						before = 0;
+					else
+					{
+						before = Double.POSITIVE_INFINITY;
+						if(i > 0)
+							before = Math.min(before, previous_row[j]);
+						if(j > 0)
+							before = Math.min(before, row[j - 1]);
+						if(i > 0 && j > 0)
+							before = Math.min(before, previous_row[j - 1]);
+					}
+					row[j] = cost + before;
+					smallest = Math.min(smallest, row[j]);
+				}
+				
+				//Every row left adds at least its bound
+				if(smallest + tail[i + 1] >= limit)
+					return Double.POSITIVE_INFINITY;
+				
+				double[] swap = previous_row;
+				previous_row = row;
+				row = swap;
+			}
+			return previous_row[N - 1];
+		}
+		
+		/*
+		 * Lowers the shared best if d is better
+		 */
+		private static void share(AtomicLong shared, double d)
+		{
+			while(true)
+			{
+				long bits = shared.get();
+				if(Double.longBitsToDouble(bits) <= d || shared.compareAndSet(bits, Double.doubleToLongBits(d)))
+					return;
+			}
+		}
+	}
+	
+	public void reset()
+	{
+		stroking = false;
+		has_previous = false;
+		speed = 0;
+		markers = SwipeRecognizer.NO_MARKERS;
+	}
+	
+	/* Templates */
+	
+	/**
+	 * Adds a template to match strokes against.
+	 * @param template The template.
+	 */
+	public synchronized void addTemplate(GestureTemplate template)
+	{
+		GestureTemplate[] added = new GestureTemplate[templates.length + 1];
+		System.arraycopy(templates, 0, added, 0, templates.length);
+		added[templates.length] = template;
+		templates = added;
+	}
+	
+	/**
+	 * Removes every template with a name.
+	 * @param name The name of the templates to remove.
+	 */
+	public synchronized void removeTemplates(String name)
+	{
+		List<GestureTemplate> kept = new ArrayList<GestureTemplate>();
+		for(GestureTemplate t : templates)
+			if(!t.getName().equals(name))
+				kept.add(t);
+		templates = kept.toArray(new GestureTemplate[kept.size()]);
+	}
+	
+	/**
+	 * Returns the templates.
+	 * @return a copy of the templates.
+	 */
+	public GestureTemplate[] getTemplates()
+	{
+		return templates.clone();
+	}
+	
+	/**
+	 * Makes a template from the last stroke drawn, matched or not, so new
+	 * gestures can be recorded by drawing them. Only call it from a 
+	 * GestureListener or DualCameraListener, the stroke is changed while 
+	 * frames are made.
+	 * @param name The name of the new template.
+	 * @return the template or null if no stroke has been drawn.
+	 */
+	public GestureTemplate recordLastStroke(String name)
+	{
+		if(!has_stroke)
+			return null;
+		
+		double[] x = new double[N], y = new double[N], z = new double[N];
+		for(int i = 0; i < N; i++)
+		{
+			x[i] = stroke[i * 3 + XYZ.X];
+			y[i] = stroke[i * 3 + XYZ.Y];
+			z[i] = stroke[i * 3 + XYZ.Z];
+		}
+		return new GestureTemplate(name, x, y, z, N);
+	}
+	
+	/* Set Methods */
+	
+	/**
+	 * Sets how fast the point must move to start a stroke.
+	 * @param speed The speed in units per second.
+	 */
+	public void setStartSpeed(double speed)
+	{
+		if(speed > 0)
+			start_speed = speed;
+	}
+	
+	/**
+	 * Sets how slow the point must be moving for the pause time to end a 
+	 * stroke.
+	 * @param speed The speed in units per second.
+	 */
+	public void setStopSpeed(double speed)
+	{
+		if(speed > 0)
+			stop_speed = speed;
+	}
+	
+	/**
+	 * Sets how long the point must stay slow to end a stroke.
+	 * @param millis The pause in milliseconds.
+	 */
+	public void setPause(long millis)
+	{
+		if(millis > 0)
+			pause_nanos = millis * 1000000;
+	}
+	
+	/**
+	 * Sets how long a stroke must be to be matched.
+	 * @param length The length in the units of the DualMoteCamera.
+	 */
+	public void setMinLength(double length)
+	{
+		if(length >= 0)
+			min_length = length;
+	}
+	
+	/**
+	 * Sets the most distance a match can have and still be fired. See 
+	 * TemplateGestureEvent.getDistance.
+	 * @param threshold The distance.
+	 */
+	public void setThreshold(double threshold)
+	{
+		if(threshold > 0)
+			this.threshold = threshold;
+	}
+	
+	/**
+	 * Sets whether big libraries of templates are matched on a pool of 
+	 * threads.
+	 * @param parallel true to spread matching over the cores.
+	 */
+	public void setParallel(boolean parallel)
+	{
+		this.parallel = parallel;
+	}
+	
+	/* Get Methods */
+	
+	public double getStartSpeed()
+	{
+		return start_speed;
+	}
+	
+	public double getStopSpeed()
+	{
+		return stop_speed;
+	}
+	
+	public long getPause()
+	{
+		return pause_nanos / 1000000;
+	}
+	
+	public double getMinLength()
+	{
+		return min_length;
+	}
+	
+	public double getThreshold()
+	{
+		return threshold;
+	}
+	
+	public boolean isParallel()
+	{
+		return parallel;
+	}
+	
+	/*
+	 * The pool is only made the first time matching is split
+	 */
+	private static class Pool
+	{
+		static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+				Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+					
+			private final AtomicInteger count = new AtomicInteger();
+			
+			public Thread newThread(Runnable r)
+			{
+				Thread t = new Thread(r, "TemplateRecognizer-" + count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+}
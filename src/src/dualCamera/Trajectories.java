@@ -0,0 +1,228 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    Trajectories.java
+*/
+package dualCamera;
+
+import java.util.Random;
+
+import util.XYZ;
+
+/**
+ * Trajectories makes the Trajectories that SimulatedRig can play. Points are
+ * given as arrays of X, Y and Z. With the default board, the middle of what
+ * both cameras see is about {304.8, 0, 700}.
+ * 
+ * @author Amy Ciavolino
+ */
+public class Trajectories
+{
+	private Trajectories()
+	{
+	}
+	
+	/**
+	 * Markers that do not move.
+	 * @param points The X, Y and Z of each marker.
+	 * @return the Trajectory
+	 */
+	public static Trajectory fixed(final double[]... points)
+	{
+		return new Trajectory() {
+			
+			public int getMarkers()
+			{
+				return points.length;
+			}
+			
+			public boolean getPosition(int marker, double seconds, double[] out)
+			{
+				out[XYZ.X] = points[marker][XYZ.X];
+				out[XYZ.Y] = points[marker][XYZ.Y];
+				out[XYZ.Z] = points[marker][XYZ.Z];
+				return true;
+			}
+		};
+	}
+	
+	/**
+	 * Two markers side by side that move from one point to another at a
+	 * steady speed and then stay there. 
+	 * 
+	 * @param from Where the middle of the markers starts.
+	 * @param to Where the middle of the markers ends.
+	 * @param seconds How long the swipe takes.
+	 * @param separation How far apart the markers are in X.
+	 * @return the Trajectory
+	 */
+	public static Trajectory swipe(final double[] from, final double[] to, final double seconds, final double separation)
+	{
+		return new Trajectory() {
+			
+			public int getMarkers()
+			{
+				return 2;
+			}
+			
+			public boolean getPosition(int marker, double time, double[] out)
+			{
+				double t = Math.min(1, Math.max(0, time / seconds));
+				for(int i = 0; i < 3; i++)
+					out[i] = from[i] + (to[i] - from[i]) * t;
+				out[XYZ.X] += (marker == 0) ? -separation/2 : separation/2;
+				return true;
+			}
+		};
+	}
+	
+	/**
+	 * Two markers that close together until they touch and then open back
+	 * up, over and over. This is a pinch and then an unpinch.
+	 * 
+	 * @param center Where the markers meet.
+	 * @param gap How far apart the markers are in X when open.
+	 * @param seconds How long closing takes. Opening takes the same.
+	 * @return the Trajectory
+	 */
+	public static Trajectory pinch(final double[] center, final double gap, final double seconds)
+	{
+		return new Trajectory() {
+			
+			public int getMarkers()
+			{
+				return 2;
+			}
+			
+			public boolean getPosition(int marker, double time, double[] out)
+			{
+				double phase = (time / seconds) % 2;
+				double open = (phase < 1) ? 1 - phase : phase - 1;
+				out[XYZ.X] = center[XYZ.X] + ((marker == 0) ? -gap/2 : gap/2) * open;
+				out[XYZ.Y] = center[XYZ.Y];
+				out[XYZ.Z] = center[XYZ.Z];
+				return true;
+			}
+		};
+	}
+	
+	/**
+	 * Markers spread evenly around a circle facing the cameras that turns
+	 * around its center.
+	 * 
+	 * @param center The center of the circle.
+	 * @param radius The radius of the circle.
+	 * @param period How long one turn takes in seconds.
+	 * @param markers How many markers are on the circle.
+	 * @return the Trajectory
+	 */
+	public static Trajectory circle(final double[] center, final double radius, final double period, final int markers)
+	{
+		return new Trajectory() {
+			
+			public int getMarkers()
+			{
+				return markers;
+			}
+			
+			public boolean getPosition(int marker, double time, double[] out)
+			{
+				double angle = 2 * Math.PI * (time / period + (double) marker / markers);
+				out[XYZ.X] = center[XYZ.X] + radius * Math.cos(angle);
+				out[XYZ.Y] = center[XYZ.Y] + radius * Math.sin(angle);
+				out[XYZ.Z] = center[XYZ.Z];
+				return true;
+			}
+		};
+	}
+	
+	/**
+	 * Markers that wander smoothly around a point. Each axis of each marker
+	 * is a sum of sine waves with random speeds and phases, so the same seed
+	 * always gives the same movement and any time can be found directly.
+	 * 
+	 * @param seed The seed for the random speeds and phases.
+	 * @param center The point the markers wander around.
+	 * @param range About how far the markers wander from the center.
+	 * @param markers How many markers there are.
+	 * @return the Trajectory
+	 */
+	public static Trajectory random(long seed, final double[] center, final double range, final int markers)
+	{
+		final int waves = 3;
+		Random random = new Random(seed);
+		final double[] frequency = new double[markers * 3 * waves];
+		final double[] phase = new double[markers * 3 * waves];
+		for(int i = 0; i < frequency.length; i++)
+		{
+			frequency[i] = 2 * Math.PI * (0.1 + random.nextDouble());
+			phase[i] = 2 * Math.PI * random.nextDouble();
+		}
+		
+		return new Trajectory() {
+			
+			public int getMarkers()
+			{
+				return markers;
+			}
+			
+			public boolean getPosition(int marker, double time, double[] out)
+			{
+				for(int axis = 0; axis < 3; axis++)
+				{
+					double sum = 0;
+					int start = (marker * 3 + axis) * waves;
+					for(int w = start; w < start + waves; w++)
+						sum += Math.sin(frequency[w] * time + phase[w]);
+					out[axis] = center[axis] + range * sum / waves;
+				}
+				return true;
+			}
+		};
+	}
+	
+	/**
+	 * Hides one marker of a Trajectory for a while, like a hand blocking it.
+	 * 
+	 * @param trajectory The Trajectory to hide a marker in.
+	 * @param marker The marker to hide.
+	 * @param from When it is hidden in seconds.
+	 * @param to When it can be seen again in seconds.
+	 * @return the Trajectory
+	 */
+	public static Trajectory occlude(final Trajectory trajectory, final int marker, final double from, final double to)
+	{
+		return new Trajectory() {
+			
+			public int getMarkers()
+			{
+				return trajectory.getMarkers();
+			}
+			
+			public boolean getPosition(int m, double time, double[] out)
+			{
+				if(!trajectory.getPosition(m, time, out))
+					return false;
+				return m != marker || time < from || time >= to;
+			}
+		};
+	}
+}
@@ -0,0 +1,52 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    Trajectory.java
+*/
+package dualCamera;
+
+/**
+ * A Trajectory says where each marker is over time for a SimulatedRig.
+ * Positions are in the same units and space as the points DualMoteCamera
+ * finds, with the left Wii Remote at the origin. See Trajectories for the
+ * built in ones.
+ * 
+ * @author Amy Ciavolino
+ */
+public interface Trajectory
+{
+	/**
+	 * Returns how many markers there are.
+	 * @return the number of markers
+	 */
+	public int getMarkers();
+	
+	/**
+	 * Finds where a marker is. Should not make any objects since it is 
+	 * called for every marker in every frame.
+	 * 
+	 * @param marker The marker, from 0 to getMarkers() - 1.
+	 * @param seconds The time since the start of the simulation.
+	 * @param out An array of at least 3 to put the X, Y and Z in.
+	 * @return false if the marker can not be seen at that time.
+	 */
+	public boolean getPosition(int marker, double seconds, double[] out);
+}
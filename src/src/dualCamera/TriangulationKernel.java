@@ -0,0 +1,57 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    TriangulationKernel.java
+*/
+package dualCamera;
+
+/**
+ * A TriangulationKernel does the math of Find3DPoint.raysIntersectionPoint
+ * for a block of ray pairs at once. BatchTriangulator works out the ray 
+ * directions and passes them to the kernel. Every ray of a camera starts at
+ * the same place so the starts are passed once.
+ * <p>
+ * ScalarTriangulationKernel does one pair at a time with Find3DPoint. 
+ * VectorTriangulationKernel, which is built separately, does several pairs
+ * at once with the Vector API when it is available. See BatchTriangulator.
+ * 
+ * @author Jason Creighton
+ */
+public interface TriangulationKernel
+{
+	/**
+	 * Finds the midpoint and the length of the shortest line between each 
+	 * pair of rays. Pairs with no point get NaN for everything.
+	 * 
+	 * @param lox, loy, loz The start of every left ray.
+	 * @param ldx, ldy, ldz The direction of each left ray, from index 0.
+	 * @param rox, roy, roz The start of every right ray.
+	 * @param rdx, rdy, rdz The direction of each right ray, from index 0.
+	 * @param count The number of pairs.
+	 * @param x, y, z Where the midpoints are put.
+	 * @param gap Where the lengths of the shortest lines are put.
+	 * @param offset Where the answer for pair 0 goes in x, y, z and gap.
+	 * @return The number of pairs that had a point.
+	 */
+	public int intersect(double lox, double loy, double loz, double[] ldx, double[] ldy, double[] ldz,
+			double rox, double roy, double roz, double[] rdx, double[] rdy, double[] rdz, int count,
+			double[] x, double[] y, double[] z, double[] gap, int offset);
+}
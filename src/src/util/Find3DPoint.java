@@ -33,7 +33,18 @@ package util;
 
 public class Find3DPoint {
 	
-	private static final double EPS = 0.001;
+	/**
+	 * Directions and denominators smaller than this count as 0, meaning 
+	 * there is no solution. Other triangulation code uses it to give the
+	 * same answers.
+	 */
+	public static final double EPS = 0.001;
+	
+	/**
+	 * Position of the length of the shortest line in the array filled in by
+	 * the primitive raysIntersectionPoint. The point is at XYZ.X, XYZ.Y and XYZ.Z.
+	 */
+	public static final int GAP = 3;
 	
 	/**
 	 * Calculate the line segment PaPb that is the shortest route between two
@@ -49,42 +60,67 @@ public class Find3DPoint {
 	 * @param rightd some point along the right ray
 	 * @return null if no solution exists or the 3D point with an error measurement
 	 */
-	
 	public static XYZ raysIntersectionPoint( XYZ lefto, XYZ leftd,XYZ righto, XYZ rightd )
 	{
-		// Initialize all of the variables.
-		XYZ found;
-		XYZ pa = new XYZ();
-		XYZ pb = new XYZ();
-		XYZ p13 = new XYZ();
-		XYZ p43 = new XYZ();
-		XYZ p21 = new XYZ();
-		double d1343,d4321,d1321,d4343,d2121, numer, denom, mua, mub;
+		double[] out = new double[4];
 		
-		// It returns null if there is no solution.
-		p13.setX( lefto.getX() - righto.getX() );
-		p13.setY( lefto.getY() - righto.getY() );
-		p13.setZ( lefto.getZ() - righto.getZ() );
-		p43.setX( rightd.getX() - righto.getX() );
-		p43.setY( rightd.getY() - righto.getY() );
-		p43.setZ( rightd.getZ() - righto.getZ() );
-		if (Math.abs(p43.getX())  < EPS && Math.abs(p43.getY())  < EPS && Math.abs(p43.getZ())  < EPS)
-			return null;
-		p21.setX( leftd.getX() - lefto.getX() );
-		p21.setY( leftd.getY() - lefto.getY() );
-		p21.setZ( leftd.getZ() - lefto.getZ() );
-		if (Math.abs(p21.getX())  < EPS && Math.abs(p21.getY())  < EPS && Math.abs(p21.getZ())  < EPS)
+		if(!raysIntersectionPoint(lefto.getX(), lefto.getY(), lefto.getZ(),
+				leftd.getX() - lefto.getX(), leftd.getY() - lefto.getY(), leftd.getZ() - lefto.getZ(),
+				righto.getX(), righto.getY(), righto.getZ(),
+				rightd.getX() - righto.getX(), rightd.getY() - righto.getY(), rightd.getZ() - righto.getZ(),
+				out))
 			return null;
+		
+		XYZ found = new XYZ( out[XYZ.X], out[XYZ.Y], out[XYZ.Z], out[GAP] );
+		found.setError( out[GAP] );
+		   
+		return found;
+	}
+	
+	/**
+	 * Same as raysIntersectionPoint above but takes each ray as a start and a 
+	 * direction and puts the answer in an array passed in. This does not make 
+	 * any new objects so it can be called for every point of every frame.
+	 * The answer is put in out like this:
+	 * <blockquote><pre>
+	 *    out[XYZ.X], out[XYZ.Y], out[XYZ.Z]  the midpoint of the shortest line
+	 *    out[Find3DPoint.GAP]                the length of the shortest line
+	 * </pre></blockquote>
+	 * 
+	 * @param lox, loy, loz the left ray start
+	 * @param ldx, ldy, ldz the left ray direction
+	 * @param rox, roy, roz the right ray start
+	 * @param rdx, rdy, rdz the right ray direction
+	 * @param out an array of at least 4 to put the answer in
+	 * @return false if no solution exists, out is not changed when there is no solution
+	 */
+	public static boolean raysIntersectionPoint( double lox, double loy, double loz,
+			double ldx, double ldy, double ldz,
+			double rox, double roy, double roz,
+			double rdx, double rdy, double rdz,
+			double[] out )
+	{
+		double d1343,d4321,d1321,d4343,d2121, numer, denom, mua, mub;
+		
+		// p13 is between the starts, p21 is the left direction and p43 is the right direction.
+		// It returns false if there is no solution.
+		double p13x = lox - rox;
+		double p13y = loy - roy;
+		double p13z = loz - roz;
+		if (Math.abs(rdx)  < EPS && Math.abs(rdy)  < EPS && Math.abs(rdz)  < EPS)
+			return false;
+		if (Math.abs(ldx)  < EPS && Math.abs(ldy)  < EPS && Math.abs(ldz)  < EPS)
+			return false;
 
-		d1343 = p13.getX() * p43.getX() + p13.getY() * p43.getY() + p13.getZ() * p43.getZ();
-		d4321 = p43.getX() * p21.getX() + p43.getY() * p21.getY() + p43.getZ() * p21.getZ();
-		d1321 = p13.getX() * p21.getX() + p13.getY() * p21.getY() + p13.getZ() * p21.getZ();
-		d4343 = p43.getX() * p43.getX() + p43.getY() * p43.getY() + p43.getZ() * p43.getZ();
-		d2121 = p21.getX() * p21.getX() + p21.getY() * p21.getY() + p21.getZ() * p21.getZ();
+		d1343 = p13x * rdx + p13y * rdy + p13z * rdz;
+		d4321 = rdx * ldx + rdy * ldy + rdz * ldz;
+		d1321 = p13x * ldx + p13y * ldy + p13z * ldz;
+		d4343 = rdx * rdx + rdy * rdy + rdz * rdz;
+		d2121 = ldx * ldx + ldy * ldy + ldz * ldz;
 		
 		denom = d2121 * d4343 - d4321 * d4321;
 		if (Math.abs(denom) < EPS)
-			return null;
+			return false;
 		numer = d1343 * d4321 - d1321 * d4343;
 
 		mua = numer / denom;
@@ -92,26 +128,24 @@ public class Find3DPoint {
 
 		// This sets the two points where the line between the two rays is perpendicular to both rays.
 		// That line is by definition the shortest line segment and where the rays are the closest.
-		pa.setX( lefto.getX() + mua * p21.getX() );
-		pa.setY( lefto.getY() + mua * p21.getY() );
-		pa.setZ( lefto.getZ() + mua * p21.getZ() );
-		pb.setX( righto.getX() + mub * p43.getX() );
-		pb.setY( righto.getY() + mub * p43.getY() );
-		pb.setZ( righto.getZ() + mub * p43.getZ() );
+		double pax = lox + mua * ldx;
+		double pay = loy + mua * ldy;
+		double paz = loz + mua * ldz;
+		double pbx = rox + mub * rdx;
+		double pby = roy + mub * rdy;
+		double pbz = roz + mub * rdz;
 		
 		// This calculates the midpoint between the two ends of the shortest line segment.
-		double midX = ( pa.getX() + pb.getX() )/2.0;
-		double midY = ( pa.getY() + pb.getY() )/2.0;
-		double midZ = ( pa.getZ() + pb.getZ() )/2.0;
+		out[XYZ.X] = ( pax + pbx )/2.0;
+		out[XYZ.Y] = ( pay + pby )/2.0;
+		out[XYZ.Z] = ( paz + pbz )/2.0;
 		
 		// This calculates the length of the shortest line segment.
-		double length = Math.sqrt( ( pa.getX() - pb.getX() ) * ( pa.getX() - pb.getX() ) +
-				( pa.getY() - pb.getY() ) * ( pa.getY() - pb.getY() ) +
-				( pa.getZ() - pb.getZ() ) * ( pa.getZ() - pb.getZ() ) );
-		  
-		found = new XYZ( midX, midY, midZ, length );
-		   
-		return found;
+		out[GAP] = Math.sqrt( ( pax - pbx ) * ( pax - pbx ) +
+				( pay - pby ) * ( pay - pby ) +
+				( paz - pbz ) * ( paz - pbz ) );
+		
+		return true;
 	}
 
 }
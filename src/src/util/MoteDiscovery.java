@@ -0,0 +1,437 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    MoteDiscovery.java
+*/
+package util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * MoteDiscovery looks for a number of motes without holding up the thread 
+ * that asked for them. It is a Future that is done as soon as enough motes
+ * are found and set up, or fails with a TimeoutException if that does not 
+ * happen by the deadline. Each mote is set up on its own thread as soon as
+ * it is found so a slow mote does not hold up the others. 
+ * <blockquote><pre>
+ *     MoteDiscovery&lt;Mote&gt; discovery = MultiMoteFinder.findMotes(2, 30, TimeUnit.SECONDS, null);
+ *     List&lt;Mote&gt; motes = discovery.get();
+ * </pre></blockquote>
+ * The motes come back in the order they were found. When discovery times 
+ * out or is cancelled, the motes found so far are left connected and 
+ * getFound returns them so they can be disconnected. When it succeeds, 
+ * every other mote, such as one found late, one past the number wanted or 
+ * one that could not be set up, is given back to the MoteSource to release.
+ * 
+ * @param <M> The kind of mote found, Mote for real Wii Remotes.
+ * @author Amy Ciavolino
+ */
+public class MoteDiscovery<M> implements Future<List<M>>, MoteSource.Listener<M>
+{
+	/**
+	 * Sets up each mote as it is found, such as turning on LEDs
+	 */
+	public interface Setup<M>
+	{
+		public void setUp(M mote) throws Exception;
+	}
+	
+	/**
+	 * Told how discovery is going. Called from the discovery and set up 
+	 * threads so it should be quick.
+	 */
+	public interface Listener<M>
+	{
+		/**
+		 * A mote was found and is being set up.
+		 * @param found How many motes have been found.
+		 */
+		public void moteFound(M mote, int found);
+		
+		/**
+		 * A mote is set up and ready.
+		 * @param ready How many motes are ready.
+		 */
+		public void moteReady(M mote, int ready);
+		
+		/**
+		 * A mote could not be set up or was lost before discovery finished.
+		 * It is not counted. 
+		 */
+		public void moteFailed(M mote, Throwable cause);
+	}
+	
+	private final MoteSource<M> source;
+	private final int wanted;
+	private final Setup<M> setup;
+	private final Listener<M> listener;
+	
+	/**
+	 * The motes in the order they were found and the ones that are ready
+	 */
+	private final List<M> found = new ArrayList<M>();
+	private final List<M> ready = new ArrayList<M>();
+	
+	private ExecutorService setups;
+	private ScheduledExecutorService deadline;
+	
+	private boolean done = false;
+	private boolean cancelled = false;
+	private Throwable failure = null;
+	private List<M> result = null;
+	
+	/**
+	 * Makes a discovery. Call start to start looking.
+	 * 
+	 * @param source Where the motes come from.
+	 * @param wanted How many motes to find.
+	 * @param setup What to do to each mote as it is found, or null.
+	 * @param listener Told how discovery is going, or null.
+	 */
+	public MoteDiscovery(MoteSource<M> source, int wanted, Setup<M> setup, Listener<M> listener)
+	{
+		if(wanted <= 0)
+			throw new IllegalArgumentException("wanted must be at least 1");
+		this.source = source;
+		this.wanted = wanted;
+		this.setup = setup;
+		this.listener = listener;
+	}
+	
+	/**
+	 * Starts looking for motes.
+	 * @param timeout How long to look for, 0 or less to look until found 
+	 * or cancelled.
+	 * @param unit The unit of timeout.
+	 * @return this discovery
+	 */
+	public synchronized MoteDiscovery<M> start(long timeout, TimeUnit unit)
+	{
+		if(setups != null || done)
+			return this;
+		
+		setups = Executors.newCachedThreadPool(daemon("MoteDiscovery-setup"));
+		if(timeout > 0)
+		{
+			deadline = Executors.newSingleThreadScheduledExecutor(daemon("MoteDiscovery-deadline"));
+			deadline.schedule(new Runnable() {
+				public void run()
+				{
+					finish(null, new TimeoutException("found " + getReadyCount() + " of " + wanted + " motes"));
+				}
+			}, timeout, unit);
+		}
+		
+		try
+		{
+			source.start(this);
+		}
+		catch (RuntimeException e)
+		{
+			finish(null, e);
+		}
+		return this;
+	}
+	
+	/*
+	 * Implementation of method in MoteSource.Listener. 
+	 * Sets up the mote on its own thread.
+	 */
+	public void moteFound(final M mote)
+	{
+		int count;
+		boolean late;
+		synchronized(this)
+		{
+			if(found.contains(mote))
+				return;
+			late = done;
+			if(!late)
+				found.add(mote);
+			count = found.size();
+		}
+		if(late)
+		{
+			//Nobody will get this one so it has to be let go of here
+			release(mote);
+			return;
+		}
+		if(listener != null)
+			listener.moteFound(mote, count);
+		
+		try
+		{
+			setups.execute(new Runnable() {
+				public void run()
+				{
+					setUp(mote);
+				}
+			});
+		}
+		catch (RejectedExecutionException e)
+		{
+			//Discovery finished while this mote was being found
+			releaseIfUnused(mote);
+		}
+	}
+	
+	/*
+	 * Lets go of a mote that did not make it into the motes returned. When 
+	 * discovery failed the motes are left for whoever called getFound.
+	 */
+	private void releaseIfUnused(M mote)
+	{
+		boolean unused;
+		synchronized(this)
+		{
+			unused = result != null && !result.contains(mote);
+		}
+		if(unused)
+			release(mote);
+	}
+	
+	/*
+	 * Lets go of a mote nobody will get
+	 */
+	private void release(M mote)
+	{
+		try
+		{
+			source.release(mote);
+		}
+		catch (RuntimeException e)
+		{
+			System.out.println("Could not release mote: " + e.getMessage());
+		}
+	}
+	
+	/*
+	 * Implementation of method in MoteSource.Listener. 
+	 * A mote lost before discovery is done is forgotten.
+	 */
+	public void moteLost(M mote)
+	{
+		synchronized(this)
+		{
+			if(done || !found.remove(mote))
+				return;
+			ready.remove(mote);
+		}
+		if(listener != null)
+			listener.moteFailed(mote, new IllegalStateException("mote disconnected"));
+	}
+	
+	/*
+	 * Sets up a mote and finishes if it is the last one needed
+	 */
+	private void setUp(M mote)
+	{
+		try
+		{
+			if(setup != null)
+				setup.setUp(mote);
+		}
+		catch (Exception e)
+		{
+			synchronized(this)
+			{
+				found.remove(mote);
+			}
+			if(listener != null)
+				listener.moteFailed(mote, e);
+			release(mote);
+			return;
+		}
+		
+		List<M> motes = null;
+		int count;
+		boolean late;
+		synchronized(this)
+		{
+			if(!found.contains(mote))
+				return;
+			late = done;
+			if(!late)
+				ready.add(mote);
+			count = ready.size();
+			
+			//Keep the order they were found in
+			if(!late && count >= wanted)
+			{
+				motes = new ArrayList<M>(wanted);
+				for(M m : found)
+					if(ready.contains(m) && motes.size() < wanted)
+						motes.add(m);
+			}
+		}
+		if(late)
+		{
+			releaseIfUnused(mote);
+			return;
+		}
+		if(listener != null)
+			listener.moteReady(mote, count);
+		if(motes != null)
+			finish(motes, null);
+	}
+	
+	/*
+	 * Stops looking and wakes up anything waiting. Only the first call counts.
+	 */
+	private void finish(List<M> motes, Throwable cause)
+	{
+		List<M> unused = new ArrayList<M>();
+		synchronized(this)
+		{
+			if(done)
+				return;
+			done = true;
+			result = (motes == null) ? null : Collections.unmodifiableList(motes);
+			failure = cause;
+			notifyAll();
+			
+			if(setups != null)
+				setups.shutdown();
+			if(deadline != null)
+				deadline.shutdownNow();
+			
+			//Motes still being set up are released when their set up ends
+			if(motes != null)
+				for(M m : ready)
+					if(!motes.contains(m))
+						unused.add(m);
+		}
+		try
+		{
+			source.stop();
+		}
+		catch (RuntimeException e)
+		{
+			System.out.println("Could not stop discovery: " + e.getMessage());
+		}
+		for(M m : unused)
+			release(m);
+	}
+	
+	/* Future Methods */
+	
+	public boolean cancel(boolean mayInterruptIfRunning)
+	{
+		synchronized(this)
+		{
+			if(done)
+				return false;
+			cancelled = true;
+		}
+		finish(null, new CancellationException());
+		return true;
+	}
+	
+	public synchronized boolean isCancelled()
+	{
+		return cancelled;
+	}
+	
+	public synchronized boolean isDone()
+	{
+		return done;
+	}
+	
+	public synchronized List<M> get() throws InterruptedException, ExecutionException
+	{
+		while(!done)
+			wait();
+		return result();
+	}
+	
+	public synchronized List<M> get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException
+	{
+		long end = System.nanoTime() + unit.toNanos(timeout);
+		while(!done)
+		{
+			long left = end - System.nanoTime();
+			if(left <= 0)
+				throw new TimeoutException();
+			TimeUnit.NANOSECONDS.timedWait(this, left);
+		}
+		return result();
+	}
+	
+	/*
+	 * The motes, or the reason there are none
+	 */
+	private List<M> result() throws ExecutionException
+	{
+		if(cancelled)
+			throw new CancellationException();
+		if(failure != null)
+			throw new ExecutionException(failure);
+		return result;
+	}
+	
+	/* Get Methods */
+	
+	/**
+	 * Returns every mote found so far, whether or not it is set up.
+	 * @return the motes in the order they were found
+	 */
+	public synchronized List<M> getFound()
+	{
+		return new ArrayList<M>(found);
+	}
+	
+	public synchronized int getReadyCount()
+	{
+		return ready.size();
+	}
+	
+	public int getWanted()
+	{
+		return wanted;
+	}
+	
+	/*
+	 * Threads that do not keep the program running
+	 */
+	private static ThreadFactory daemon(final String name)
+	{
+		return new ThreadFactory() {
+			public Thread newThread(Runnable r)
+			{
+				Thread t = new Thread(r, name);
+				t.setDaemon(true);
+				return t;
+			}
+		};
+	}
+}
@@ -0,0 +1,95 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    MoteFinderSource.java
+*/
+package util;
+
+import motej.Mote;
+import motej.MoteFinder;
+import motej.MoteFinderListener;
+import motej.event.MoteDisconnectedEvent;
+import motej.event.MoteDisconnectedListener;
+
+/**
+ * The MoteSource that finds real Wii Remotes over Bluetooth with motej's 
+ * MoteFinder. This works best when the red "hard sync" button is pressed 
+ * on the Wii Remotes.
+ * 
+ * @author Amy Ciavolino
+ */
+public class MoteFinderSource implements MoteSource<Mote>, MoteFinderListener
+{
+	private MoteFinder finder;
+	private volatile Listener<Mote> listener;
+	
+	/**
+	 * Starts Bluetooth discovery.
+	 * @throws RuntimeException from motej if Bluetooth is turned off.
+	 */
+	public synchronized void start(Listener<Mote> listener)
+	{
+		this.listener = listener;
+		if(finder == null)
+		{
+			finder = MoteFinder.getMoteFinder();
+			finder.addMoteFinderListener(this);
+		}
+		finder.startDiscovery();
+	}
+	
+	public synchronized void stop()
+	{
+		if(finder != null)
+		{
+			finder.stopDiscovery();
+			finder.removeMoteFinderListener(this);
+			finder = null;
+		}
+	}
+	
+	/**
+	 * Disconnects the Wii Remote.
+	 */
+	public void release(Mote mote)
+	{
+		mote.disconnect();
+	}
+	
+	/*
+	 * Implementation of method in MoteFinderListener. 
+	 * This is runs when a Wii Remote is found.
+	 */
+	public void moteFound(final Mote mote)
+	{
+		final Listener<Mote> l = listener;
+		if(l == null)
+			return;
+		
+		mote.addMoteDisconnectedListener(new MoteDisconnectedListener<Mote>() {
+			public void moteDisconnected(MoteDisconnectedEvent<Mote> evt)
+			{
+				l.moteLost(mote);
+			}
+		});
+		l.moteFound(mote);
+	}
+}
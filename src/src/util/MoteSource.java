@@ -0,0 +1,64 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    MoteSource.java
+*/
+package util;
+
+/**
+ * A MoteSource finds Wii Remotes for MoteDiscovery. MoteFinderSource finds 
+ * real ones with motej's MoteFinder. StandInMoteSource hands out whatever 
+ * motes it is given, for trying out discovery without Bluetooth.
+ * 
+ * @param <M> The kind of mote found.
+ * @author Amy Ciavolino
+ */
+public interface MoteSource<M>
+{
+	/**
+	 * Told about motes as they are found and lost
+	 */
+	public interface Listener<M>
+	{
+		public void moteFound(M mote);
+		
+		public void moteLost(M mote);
+	}
+	
+	/**
+	 * Starts looking for motes. Each mote found is passed to the listener, 
+	 * from any thread.
+	 * @param listener The listener to tell about motes.
+	 */
+	public void start(Listener<M> listener);
+	
+	/**
+	 * Stops looking for motes. Motes already found stay connected.
+	 */
+	public void stop();
+	
+	/**
+	 * Lets go of a mote nobody wants, like one found after discovery is 
+	 * done, so its connection is not left open.
+	 * @param mote The mote to let go of.
+	 */
+	public void release(M mote);
+}
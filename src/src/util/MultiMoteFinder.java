@@ -23,31 +23,60 @@
 */
 package util;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import motej.Mote;
-import motej.MoteFinder;
-import motej.MoteFinderListener;
-import motej.event.MoteDisconnectedEvent;
-import motej.event.MoteDisconnectedListener;
 
 /**
  * @author Amy Ciavolino
  */
-public class MultiMoteFinder implements MoteFinderListener
+public class MultiMoteFinder
 {
-
-	private List<Mote> motes;
-	private int num_of_motes;
-	private Object lock = new Object();
-	private MoteFinder finder;
+	/**
+	 * How long each mote rumbles when it is found
+	 */
+	private static final long RUMBLE_MILLIS = 500l;
+	
+	/**
+	 * Sets up each Wii Remote as it is found. It rumbles and the LEDs light
+	 * up so it is easy to tell it connected.
+	 */
+	public static final MoteDiscovery.Setup<Mote> MOTE_SETUP = new MoteDiscovery.Setup<Mote>() {
+		public void setUp(Mote mote)
+		{
+			mote.setPlayerLeds(new boolean[] { true, false, false, true });
+			mote.rumble(RUMBLE_MILLIS);
+		}
+	};
+	
+	/**
+	 * Prints how discovery is going.
+	 */
+	public static final MoteDiscovery.Listener<Mote> PRINTER = new MoteDiscovery.Listener<Mote>() {
+		public void moteFound(Mote mote, int found)
+		{
+			System.out.println("Found mote: " + mote.getBluetoothAddress());
+		}
+		
+		public void moteReady(Mote mote, int ready)
+		{
+			System.out.println("Mote ready: " + mote.getBluetoothAddress());
+		}
+		
+		public void moteFailed(Mote mote, Throwable cause)
+		{
+			System.out.println("Lost mote: " + mote.getBluetoothAddress() + " " + cause.getMessage());
+		}
+	};
 	
 	/**
 	 * Returns a list of Wii Remotes found and connected to via Bluetooth. This
 	 * works best hen the red "hard sync" button is pressed on the Wii Remotes.
 	 * Continue to press buttons on the remotes to keep the the LEDs flashing
-	 * until the remotes connect.
+	 * until the remotes connect. This waits until they are all found, use 
+	 * findMotes to look for them without waiting.
 	 * 
 	 * You can write code like this to add a listener to each mote:
 	 * <blockquote><pre>
@@ -65,86 +94,83 @@ public class MultiMoteFinder implements MoteFinderListener
 	 */
 	public static List<Mote> getMotes(int motesToFind)
 	{
-		MultiMoteFinder finder = new MultiMoteFinder();
-		
-		if(motesToFind  > 0)
-			finder.num_of_motes = motesToFind;
-		else
+		return getMotes(motesToFind, 0);
+	}
+	
+	/**
+	 * The same as getMotes but gives up after a while. Any Wii Remotes that 
+	 * connected before then are disconnected.
+	 * 
+	 * @param motesToFind The number of Wii Remotes to connect to.
+	 * @param timeoutMillis How long to look for, 0 to look until found.
+	 * @return a list of the Wii Remotes that were connected to or null if 
+	 * they were not all found.
+	 */
+	public static List<Mote> getMotes(int motesToFind, long timeoutMillis)
+	{
+		if(motesToFind <= 0)
 			return null;
 		
-		boolean done = false;
-		while(!done)
+		System.out.println("Looking for " + motesToFind + " wiimotes..");
+		System.out.println("Please wait...");
+		MoteDiscovery<Mote> discovery = findMotes(motesToFind, timeoutMillis, TimeUnit.MILLISECONDS, PRINTER);
+		
+		while(true)
 		{
 			try
 			{
-				finder.findMotes();
-				done = true;
-			} 
-			catch (InterruptedException e) 
+				List<Mote> motes = discovery.get();
+				System.out.println("Motes found!");
+				return motes;
+			}
+			catch (InterruptedException e)
 			{
 				System.out.print("Searching intrrupted. Searching again...");
 			}
-			catch (Exception e)
+			catch (ExecutionException e)
 			{
-				System.out.println("There was an error. Bluetooth maybe turned off.");
+				if(e.getCause() instanceof java.util.concurrent.TimeoutException)
+					System.out.println("Could not find the wiimotes, " + e.getCause().getMessage());
+				else
+					System.out.println("There was an error. Bluetooth maybe turned off.");
+				
+				for(Mote m : discovery.getFound())
+					m.disconnect();
 				return null;
 			}
 		}
-		return finder.motes;
 	}
-
 	
-	private void findMotes() throws InterruptedException
+	/**
+	 * Starts looking for Wii Remotes and returns right away. Each one is set
+	 * up with MOTE_SETUP as it is found.
+	 * 
+	 * @param motesToFind The number of Wii Remotes to connect to.
+	 * @param timeout How long to look for, 0 to look until found or cancelled.
+	 * @param unit The unit of timeout.
+	 * @param listener Told how discovery is going, or null.
+	 * @return The discovery, a Future of the Wii Remotes found.
+	 */
+	public static MoteDiscovery<Mote> findMotes(int motesToFind, long timeout, TimeUnit unit, MoteDiscovery.Listener<Mote> listener)
 	{
-		motes = new ArrayList<Mote>();
-		finder = MoteFinder.getMoteFinder();
-		finder.addMoteFinderListener(this);
-		System.out.println("Starting discovery..");
-		
-		while(motes.size() < num_of_motes)
-		{
-			finder.startDiscovery();
-			
-			System.out.println("Looking for " + num_of_motes + " wiimotes..");
-			System.out.println("Please wait...");
-			
-			synchronized(lock) {
-				lock.wait();
-			}
-			
-			//wait for a bit to let motes finish connecting if they need to 
-			Thread.sleep(2000l);
-			
-			finder.stopDiscovery();
-		}
-		
-		System.out.println("Motes found!");
+		return findMotes(new MoteFinderSource(), motesToFind, timeout, unit, MOTE_SETUP, listener);
 	}
 	
-	/*
-	 * Implementation of method in MoteFinderListener. 
-	 * This is runs when a Wii Remote is found.
+	/**
+	 * Starts looking for motes from any MoteSource, such as a stand-in for
+	 * testing.
+	 * 
+	 * @param source Where the motes come from.
+	 * @param motesToFind The number of motes to find.
+	 * @param timeout How long to look for, 0 to look until found or cancelled.
+	 * @param unit The unit of timeout.
+	 * @param setup What to do to each mote as it is found, or null.
+	 * @param listener Told how discovery is going, or null.
+	 * @return The discovery, a Future of the motes found.
 	 */
-	public void moteFound(final Mote mote) 
+	public static <M> MoteDiscovery<M> findMotes(MoteSource<M> source, int motesToFind, long timeout, TimeUnit unit,
+			MoteDiscovery.Setup<M> setup, MoteDiscovery.Listener<M> listener)
 	{
-		System.out.println("Found mote: " + mote.getBluetoothAddress());
-		mote.rumble(2000l);
-		
-		//as the motes are found the LED lights up
-		mote.setPlayerLeds(new boolean[] { true, false, false, true });
-		
-		//I don't think this helps anything...
-		mote.addMoteDisconnectedListener(new MoteDisconnectedListener<Mote>(){
-			public void moteDisconnected(MoteDisconnectedEvent<Mote> evt) {
-				motes.remove(mote);
-			}
-		});
-		
-		motes.add(mote);
-		
-		if(motes.size() >= num_of_motes)
-			synchronized(lock) {
-				lock.notifyAll();
-			}
+		return new MoteDiscovery<M>(source, motesToFind, setup, listener).start(timeout, unit);
 	}
 }
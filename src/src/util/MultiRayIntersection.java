@@ -0,0 +1,175 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    MultiRayIntersection.java
+*/
+package util;
+
+/**
+ * MultiRayIntersection finds the point closest to any number of rays, for
+ * rigs with more than two cameras. Find3DPoint takes the midpoint of the 
+ * shortest line between two rays, this finds the point where the sum of 
+ * the squared distances to every ray is smallest, which for two rays is 
+ * the same midpoint.
+ * <p>
+ * For a ray starting at o going in the unit direction d, the squared 
+ * distance from a point p is (p - o)' (I - dd') (p - o). Adding that up 
+ * for every ray and setting the derivative to 0 gives
+ * <blockquote><pre>
+ *    sum(I - dd') p = sum((I - dd') o)
+ * </pre></blockquote>
+ * which is a 3x3 system solved directly. Only the sums are kept, so adding
+ * a ray is a fixed amount of work, no matter how many rays there are, and 
+ * nothing is made. Use it like this for each point:
+ * <blockquote><pre>
+ *    rays.reset();
+ *    rays.addRay(ox, oy, oz, dx, dy, dz);   //for each camera that sees the point
+ *    if(rays.solve(out)) ...
+ * </pre></blockquote>
+ * The error put in out[Find3DPoint.GAP] is twice the root mean square 
+ * distance from the point to the rays. For two rays that is the length of
+ * the shortest line between them, the same as Find3DPoint gives, so errors
+ * can be compared no matter how many cameras saw the point.
+ * 
+ * @author Jason Creighton
+ */
+public class MultiRayIntersection
+{
+	/**
+	 * Determinants smaller than this mean the rays are all parallel 
+	 */
+	private static final double EPS = 1e-9;
+	
+	/**
+	 * sum(I - dd') stored as the upper half of a symmetric matrix
+	 */
+	private double axx, axy, axz, ayy, ayz, azz;
+	
+	/**
+	 * sum((I - dd') o)
+	 */
+	private double bx, by, bz;
+	
+	/**
+	 * sum(o' (I - dd') o), used for the error
+	 */
+	private double c;
+	
+	private int rays;
+	
+	/**
+	 * Forgets all the rays added.
+	 */
+	public void reset()
+	{
+		axx = axy = axz = ayy = ayz = azz = 0;
+		bx = by = bz = c = 0;
+		rays = 0;
+	}
+	
+	/**
+	 * Adds a ray. The direction does not need to be unit length.
+	 * 
+	 * @param ox, oy, oz Where the ray starts.
+	 * @param dx, dy, dz The direction of the ray.
+	 * @return false if the direction was too short to use and the ray was 
+	 * not added.
+	 */
+	public boolean addRay(double ox, double oy, double oz, double dx, double dy, double dz)
+	{
+		double length = Math.sqrt(dx*dx + dy*dy + dz*dz);
+		if(length < Find3DPoint.EPS)
+			return false;
+		dx /= length;
+		dy /= length;
+		dz /= length;
+		
+		// I - dd'
+		double mxx = 1 - dx*dx, mxy = -dx*dy, mxz = -dx*dz;
+		double myy = 1 - dy*dy, myz = -dy*dz;
+		double mzz = 1 - dz*dz;
+		
+		axx += mxx; axy += mxy; axz += mxz;
+		ayy += myy; ayz += myz;
+		azz += mzz;
+		
+		double mox = mxx*ox + mxy*oy + mxz*oz;
+		double moy = mxy*ox + myy*oy + myz*oz;
+		double moz = mxz*ox + myz*oy + mzz*oz;
+		bx += mox;
+		by += moy;
+		bz += moz;
+		c  += ox*mox + oy*moy + oz*moz;
+		
+		rays++;
+		return true;
+	}
+	
+	/**
+	 * Finds the point closest to all the rays added. 
+	 * <blockquote><pre>
+	 *    out[XYZ.X], out[XYZ.Y], out[XYZ.Z]  the point
+	 *    out[Find3DPoint.GAP]                twice the RMS distance to the rays
+	 * </pre></blockquote>
+	 * 
+	 * @param out an array of at least 4 to put the answer in
+	 * @return false if there are less than 2 rays or they are all parallel,
+	 * out is not changed when there is no solution
+	 */
+	public boolean solve(double[] out)
+	{
+		if(rays < 2)
+			return false;
+		
+		// The inverse of a symmetric 3x3 matrix from its cofactors
+		double cxx = ayy*azz - ayz*ayz;
+		double cxy = axz*ayz - axy*azz;
+		double cxz = axy*ayz - axz*ayy;
+		double det = axx*cxx + axy*cxy + axz*cxz;
+		if(Math.abs(det) < EPS)
+			return false;
+		double cyy = axx*azz - axz*axz;
+		double cyz = axy*axz - axx*ayz;
+		double czz = axx*ayy - axy*axy;
+		
+		double px = (cxx*bx + cxy*by + cxz*bz) / det;
+		double py = (cxy*bx + cyy*by + cyz*bz) / det;
+		double pz = (cxz*bx + cyz*by + czz*bz) / det;
+		
+		// The sum of squared distances is p'Ap - 2p'b + c, and Ap = b at the answer
+		double squared = Math.max(0, c - (px*bx + py*by + pz*bz));
+		
+		out[XYZ.X] = px;
+		out[XYZ.Y] = py;
+		out[XYZ.Z] = pz;
+		out[Find3DPoint.GAP] = 2 * Math.sqrt(squared / rays);
+		return true;
+	}
+	
+	/**
+	 * Returns how many rays have been added since the last reset.
+	 * @return the number of rays
+	 */
+	public int getRayCount()
+	{
+		return rays;
+	}
+}
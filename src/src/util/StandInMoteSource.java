@@ -0,0 +1,120 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    StandInMoteSource.java
+*/
+package util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A MoteSource that hands out whatever motes it is given instead of 
+ * looking for real ones, so MoteDiscovery can be tried out without 
+ * Bluetooth or Wii Remotes. Motes added before start are found as soon as 
+ * it starts, and ones added after are found right away on the thread that 
+ * adds them. Motes MoteDiscovery lets go of are kept for getReleased.
+ * <blockquote><pre>
+ *     StandInMoteSource&lt;String&gt; source = new StandInMoteSource&lt;String&gt;();
+ *     MoteDiscovery&lt;String&gt; discovery = MultiMoteFinder.findMotes(source, 2, 1, TimeUnit.SECONDS, null, null);
+ *     source.add("left");
+ *     source.add("right");
+ *     List&lt;String&gt; motes = discovery.get();
+ * </pre></blockquote>
+ * 
+ * @param <M> The kind of mote handed out.
+ * @author Amy Ciavolino
+ */
+public class StandInMoteSource<M> implements MoteSource<M>
+{
+	private final List<M> waiting = new ArrayList<M>();
+	private final List<M> released = new ArrayList<M>();
+	private Listener<M> listener;
+	
+	public void start(Listener<M> listener)
+	{
+		List<M> motes;
+		synchronized(this)
+		{
+			this.listener = listener;
+			motes = new ArrayList<M>(waiting);
+			waiting.clear();
+		}
+		for(M mote : motes)
+			listener.moteFound(mote);
+	}
+	
+	/**
+	 * Motes added after this are still handed out, the way a real one can 
+	 * finish connecting just as discovery stops.
+	 */
+	public void stop()
+	{
+	}
+	
+	public synchronized void release(M mote)
+	{
+		released.add(mote);
+	}
+	
+	/**
+	 * Hands out a mote, or keeps it until start if not started.
+	 * @param mote The mote to be found.
+	 */
+	public void add(M mote)
+	{
+		Listener<M> l;
+		synchronized(this)
+		{
+			l = listener;
+			if(l == null)
+				waiting.add(mote);
+		}
+		if(l != null)
+			l.moteFound(mote);
+	}
+	
+	/**
+	 * Acts as if a mote that was found has disconnected.
+	 * @param mote The mote that was lost.
+	 */
+	public void lose(M mote)
+	{
+		Listener<M> l;
+		synchronized(this)
+		{
+			l = listener;
+		}
+		if(l != null)
+			l.moteLost(mote);
+	}
+	
+	/* Get Methods */
+	
+	/**
+	 * Returns the motes MoteDiscovery let go of.
+	 * @return the released motes in the order they were released
+	 */
+	public synchronized List<M> getReleased()
+	{
+		return new ArrayList<M>(released);
+	}
+}
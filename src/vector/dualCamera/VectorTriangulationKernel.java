@@ -0,0 +1,138 @@
+/**
+* Project: NuWii
+* Authors: Amy Ciavolino -   AmyCiav@gmail.com
+* 		   Camille Marvin -  sapphiremirage@gmail.com
+*          James Coddington- jxc6857@rit.edu
+*          Jason Creighton - jtc6189@gmail.com
+*          
+* Developed at: NSF Computer Science REU at Rochester Institute of Technology, Summer 2010
+*          
+* Code Available at: http://code.google.com/p/nuwii/
+* 
+* Acknowledgments: This material is based upon work supported by the 
+*                   National Science Foundation under Award No. CCF-0851743.
+* 
+* License: This work is licensed under Creative Commons GNU General Public License License
+* See http://www.gnu.org/licenses/gpl-3.0.html for the full details
+* See http://creativecommons.org/licenses/GPL/2.0/ for summary.
+* 
+*/
+
+/**
+* File:    VectorTriangulationKernel.java
+*/
+package dualCamera;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import util.Find3DPoint;
+import util.XYZ;
+
+/**
+ * A TriangulationKernel that does as many ray pairs at once as the CPU has
+ * double lanes, using the jdk.incubator.vector module. It does the same 
+ * operations in the same order as Find3DPoint so the answers match it to
+ * within rounding, see BatchTriangulator.TOLERANCE.
+ * <p>
+ * This is kept out of src since it needs JDK 16 or newer. Compile it with 
+ * the rest of the classes and run with the module added:
+ * <blockquote><pre>
+ *     javac --add-modules jdk.incubator.vector -d out src/dualCamera/*.java src/util/*.java vector/dualCamera/*.java
+ *     java --add-modules jdk.incubator.vector ...
+ * </pre></blockquote>
+ * BatchTriangulator loads it by name and uses ScalarTriangulationKernel 
+ * when it is not there or the module is not added.
+ * 
+ * @author Jason Creighton
+ */
+public class VectorTriangulationKernel implements TriangulationKernel
+{
+	private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+	
+	public int intersect(double lox, double loy, double loz, double[] ldx, double[] ldy, double[] ldz,
+			double rox, double roy, double roz, double[] rdx, double[] rdy, double[] rdz, int count,
+			double[] x, double[] y, double[] z, double[] gap, int offset)
+	{
+		// p13 is between the starts, the same for every pair
+		double p13x = lox - rox;
+		double p13y = loy - roy;
+		double p13z = loz - roz;
+		DoubleVector nan = DoubleVector.broadcast(SPECIES, Double.NaN);
+		
+		int found = 0;
+		int i = 0;
+		int bound = SPECIES.loopBound(count);
+		for(; i < bound; i += SPECIES.length())
+		{
+			DoubleVector lx = DoubleVector.fromArray(SPECIES, ldx, i);
+			DoubleVector ly = DoubleVector.fromArray(SPECIES, ldy, i);
+			DoubleVector lz = DoubleVector.fromArray(SPECIES, ldz, i);
+			DoubleVector rx = DoubleVector.fromArray(SPECIES, rdx, i);
+			DoubleVector ry = DoubleVector.fromArray(SPECIES, rdy, i);
+			DoubleVector rz = DoubleVector.fromArray(SPECIES, rdz, i);
+			
+			DoubleVector d1343 = rx.mul(p13x).add(ry.mul(p13y)).add(rz.mul(p13z));
+			DoubleVector d4321 = rx.mul(lx).add(ry.mul(ly)).add(rz.mul(lz));
+			DoubleVector d1321 = lx.mul(p13x).add(ly.mul(p13y)).add(lz.mul(p13z));
+			DoubleVector d4343 = rx.mul(rx).add(ry.mul(ry)).add(rz.mul(rz));
+			DoubleVector d2121 = lx.mul(lx).add(ly.mul(ly)).add(lz.mul(lz));
+			
+			DoubleVector denom = d2121.mul(d4343).sub(d4321.mul(d4321));
+			DoubleVector numer = d1343.mul(d4321).sub(d1321.mul(d4343));
+			DoubleVector mua = numer.div(denom);
+			DoubleVector mub = d1343.add(d4321.mul(mua)).div(d4343);
+			
+			// The ends of the shortest line between the rays
+			DoubleVector pax = lx.mul(mua).add(lox);
+			DoubleVector pay = ly.mul(mua).add(loy);
+			DoubleVector paz = lz.mul(mua).add(loz);
+			DoubleVector pbx = rx.mul(mub).add(rox);
+			DoubleVector pby = ry.mul(mub).add(roy);
+			DoubleVector pbz = rz.mul(mub).add(roz);
+			
+			DoubleVector gx = pax.sub(pbx);
+			DoubleVector gy = pay.sub(pby);
+			DoubleVector gz = paz.sub(pbz);
+			DoubleVector length = gx.mul(gx).add(gy.mul(gy)).add(gz.mul(gz)).sqrt();
+			
+			// Pairs with no solution, the same tests Find3DPoint makes. The compares
+			// are written out here since a mask passed out of a method is not
+			// kept in a register and each one becomes an object.
+			VectorMask<Double> none = rx.abs().compare(VectorOperators.LT, Find3DPoint.EPS)
+					.and(ry.abs().compare(VectorOperators.LT, Find3DPoint.EPS))
+					.and(rz.abs().compare(VectorOperators.LT, Find3DPoint.EPS))
+					.or(lx.abs().compare(VectorOperators.LT, Find3DPoint.EPS)
+						.and(ly.abs().compare(VectorOperators.LT, Find3DPoint.EPS))
+						.and(lz.abs().compare(VectorOperators.LT, Find3DPoint.EPS)))
+					.or(denom.abs().compare(VectorOperators.LT, Find3DPoint.EPS));
+			
+			pax.add(pbx).div(2).blend(nan, none).intoArray(x, offset + i);
+			pay.add(pby).div(2).blend(nan, none).intoArray(y, offset + i);
+			paz.add(pbz).div(2).blend(nan, none).intoArray(z, offset + i);
+			length.blend(nan, none).intoArray(gap, offset + i);
+			found += SPECIES.length() - none.trueCount();
+		}
+		
+		//The pairs left over after the last full vector are done one at a time
+		double[] out = new double[4];
+		for(; i < count; i++)
+		{
+			int o = offset + i;
+			if(Find3DPoint.raysIntersectionPoint(lox, loy, loz, ldx[i], ldy[i], ldz[i],
+					rox, roy, roz, rdx[i], rdy[i], rdz[i], out))
+			{
+				x[o] = out[XYZ.X];
+				y[o] = out[XYZ.Y];
+				z[o] = out[XYZ.Z];
+				gap[o] = out[Find3DPoint.GAP];
+				found++;
+			}
+			else
+				x[o] = y[o] = z[o] = gap[o] = Double.NaN;
+		}
+		return found;
+	}
+}